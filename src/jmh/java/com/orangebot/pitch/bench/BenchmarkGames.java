@@ -0,0 +1,38 @@
+package com.orangebot.pitch.bench;
+
+import com.orangebot.pitch.FastRandom;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.strats.SimpleStrategy;
+
+/**
+ * Games shared by the benchmarks.
+ */
+final class BenchmarkGames {
+
+    private BenchmarkGames() {
+    }
+
+    /**
+     * Creates a game of four simple strategies.
+     * @param seed The seed of the game's random source.
+     * @return The game.
+     */
+    static PitchGame createGame(long seed) {
+        final FastRandom random = new FastRandom(seed);
+        final SimpleStrategy s = new SimpleStrategy(random);
+        return new PitchGame(random, s, s, s, s);
+    }
+
+    /**
+     * Sets up and deals a round and plays it up to the first hand.
+     * @param game The game.
+     */
+    static void dealToFirstTrick(PitchGame game) {
+        game.setupRound();
+        game.dealRound();
+        game.bid();
+        game.discard();
+        game.redealRound();
+        game.bury();
+    }
+}
@@ -0,0 +1,80 @@
+package com.orangebot.pitch.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.orangebot.pitch.CardGame;
+import com.orangebot.pitch.CardGame.Card;
+import com.orangebot.pitch.FastRandom;
+import com.orangebot.pitch.PitchGame;
+
+/**
+ * Benchmarks the CardGame moves and shuffles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CardGameBenchmark {
+    private CardGame cards;
+    private Card card;
+    private int deckSlot;
+    private int discardSlot;
+
+    @Setup
+    public void setup() {
+        cards = new CardGame(PitchGame.LISTS);
+        cards.setRandom(new FastRandom(1L));
+        card = Card.get(0);
+        deckSlot = cards.getSlot(PitchGame.DECK);
+        discardSlot = cards.getSlot(PitchGame.DISCARD);
+    }
+
+    @Benchmark
+    public long moveCard() {
+        cards.move(card, PitchGame.DECK, PitchGame.DISCARD);
+        cards.move(card, PitchGame.DISCARD, PitchGame.DECK);
+        return cards.getMask(PitchGame.DECK);
+    }
+
+    @Benchmark
+    public long moveCardBySlot() {
+        cards.move(card, deckSlot, discardSlot);
+        cards.move(card, discardSlot, deckSlot);
+        return cards.getMask(deckSlot);
+    }
+
+    @Benchmark
+    public long moveAll() {
+        cards.moveAll(PitchGame.DECK);
+        return cards.getMask(PitchGame.DECK);
+    }
+
+    @Benchmark
+    public long shuffle() {
+        cards.shuffle(PitchGame.DECK);
+        return cards.getMask(PitchGame.DECK);
+    }
+
+    @Benchmark
+    public long deal() {
+        cards.moveAll(PitchGame.DECK);
+        cards.move(PitchGame.DECK, PitchGame.P1, 9);
+        cards.move(PitchGame.DECK, PitchGame.P2, 9);
+        cards.move(PitchGame.DECK, PitchGame.P3, 9);
+        cards.move(PitchGame.DECK, PitchGame.P4, 9);
+        return cards.getMask(PitchGame.P4);
+    }
+}
@@ -0,0 +1,76 @@
+package com.orangebot.pitch.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.PitchGame.PlayerId;
+import com.orangebot.pitch.TrumpTable;
+import com.orangebot.pitch.solver.DoubleDummySolver;
+
+/**
+ * Benchmarks the double-dummy solver on deals taken after the bury.
+ * The transposition table is cleared before every solve, so that a deal
+ * seen before is not answered from the table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DoubleDummySolverBenchmark {
+    private static final int DEALS = 4096;
+    private static final PlayerId[] PLAYERS = { PitchGame.P1, PitchGame.P2, PitchGame.P3, PitchGame.P4 };
+
+    /**
+     * A solver and a fixed set of deals to solve in turn.
+     */
+    @State(Scope.Thread)
+    public static class SolverState {
+        DoubleDummySolver solver;
+        int[][] deals;
+        PlayerId[] leads;
+        int next;
+
+        @Setup
+        public void setup() {
+            final PitchGame game = BenchmarkGames.createGame(1L);
+            solver = new DoubleDummySolver(16);
+            deals = new int[DEALS][4];
+            leads = new PlayerId[DEALS];
+
+            for (int i = 0; i < DEALS; i++) {
+                BenchmarkGames.dealToFirstTrick(game);
+
+                final TrumpTable table = TrumpTable.get(game.getTrump());
+                for (int j = 0; j < PLAYERS.length; j++) {
+                    deals[i][j] = table.getHandKey(game.getHandMask(PLAYERS[j]));
+                }
+                leads[i] = game.getLead();
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void setupInvocation() {
+            solver.clear();
+        }
+    }
+
+    @Benchmark
+    public int solve(SolverState state) {
+        final int i = state.next;
+        state.next = (i + 1) % DEALS;
+        return state.solver.solve(state.deals[i], state.leads[i]);
+    }
+}
@@ -0,0 +1,138 @@
+package com.orangebot.pitch.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.orangebot.pitch.CardGame.Card;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.PitchGame.Player;
+
+/**
+ * Benchmarks the PitchGame round, trick play and strategy decisions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PitchGameBenchmark {
+
+    /**
+     * A game that plays whole rounds.
+     */
+    @State(Scope.Thread)
+    public static class RoundState {
+        PitchGame game;
+
+        @Setup
+        public void setup() {
+            game = BenchmarkGames.createGame(1L);
+        }
+    }
+
+    /**
+     * A batch of games that are dealt up to the first trick before every
+     * iteration.  Playing the tricks uses up a game, so every call takes
+     * the next game of the batch, and a single shot iteration is one call
+     * per game, scored per game.  Dealing in the iteration setup keeps it
+     * out of the measurement without the per-call overhead of an
+     * invocation setup.
+     */
+    @State(Scope.Thread)
+    public static class TrickState {
+        static final int BATCH = 256;
+
+        PitchGame[] games;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setupTrial() {
+            games = new PitchGame[BATCH];
+            for (int i = 0; i < BATCH; i++) {
+                games[i] = BenchmarkGames.createGame(2L + i);
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void setupIteration() {
+            for (PitchGame game : games) {
+                BenchmarkGames.dealToFirstTrick(game);
+            }
+            next = 0;
+        }
+
+        PitchGame nextGame() {
+            return games[next++];
+        }
+    }
+
+    /**
+     * A game that is dealt up to the first trick with a player to lead.
+     */
+    @State(Scope.Thread)
+    public static class DecisionState {
+        PitchGame game;
+        Player player;
+
+        @Setup
+        public void setup() {
+            game = BenchmarkGames.createGame(3L);
+            while (player == null) {
+                BenchmarkGames.dealToFirstTrick(game);
+                for (PitchGame.PlayerId id : new PitchGame.PlayerId[] { PitchGame.P1, PitchGame.P2, PitchGame.P3, PitchGame.P4 }) {
+                    if (game.getPlayer(id).getHand().size() >= 4) {
+                        player = game.getPlayer(id);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int playRound(RoundState state) {
+        state.game.playRound();
+        return state.game.getRoundScore(0);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 500, batchSize = TrickState.BATCH)
+    @Measurement(iterations = 200, batchSize = TrickState.BATCH)
+    @OperationsPerInvocation(TrickState.BATCH)
+    public int playHand(TrickState state) {
+        final PitchGame game = state.nextGame();
+        game.playHand();
+        return game.getRoundScore(0);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 500, batchSize = TrickState.BATCH)
+    @Measurement(iterations = 200, batchSize = TrickState.BATCH)
+    @OperationsPerInvocation(TrickState.BATCH)
+    public int playHands(TrickState state) {
+        final PitchGame game = state.nextGame();
+        for (int i = 0; i < 6; i++) {
+            game.playHand();
+        }
+        return game.getRoundScore(0);
+    }
+
+    @Benchmark
+    public Card playCard(DecisionState state) {
+        return state.player.getStrategy().playCard(state.player);
+    }
+}
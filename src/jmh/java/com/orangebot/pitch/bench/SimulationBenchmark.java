@@ -0,0 +1,171 @@
+package com.orangebot.pitch.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.orangebot.pitch.FastRandom;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.sim.BatchEngine;
+import com.orangebot.pitch.sim.SimulationData;
+
+/**
+ * Benchmarks the simulation data and the simulation loop.
+ *
+ * The simulation loop is measured on one thread and on all available
+ * processors.  The ratio of the two throughputs is the scaling factor.
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark {
+    private static final int SAMPLES = 4096;
+    private static final int BATCH = 256;
+
+    /**
+     * Results recorded from real rounds, replayed into the data.
+     */
+    @State(Scope.Thread)
+    public static class DataState {
+        SimulationData data;
+        int[] keys;
+        int[] points;
+        int index;
+
+        @Setup
+        public void setup() {
+            final PitchGame game = BenchmarkGames.createGame(4L);
+            data = new SimulationData();
+            keys = new int[SAMPLES];
+            points = new int[SAMPLES];
+            for (int i = 0; i < SAMPLES; i++) {
+                game.playRound();
+                keys[i] = game.getBidKey();
+                points[i] = game.getRoundScore(game.getBiddingTeam());
+            }
+        }
+    }
+
+    /**
+     * A data set filled with a million rounds.
+     */
+    @State(Scope.Benchmark)
+    public static class SnapshotState {
+        SimulationData data;
+        PrintWriter out;
+
+        @Setup
+        public void setup() {
+            final PitchGame game = BenchmarkGames.createGame(5L);
+            data = new SimulationData();
+            for (int i = 0; i < 1_000_000; i++) {
+                game.playRound();
+                data.add(game.getBidKey(), game.getRoundScore(game.getBiddingTeam()));
+            }
+            out = new PrintWriter(new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                }
+            });
+        }
+    }
+
+    /**
+     * One simulation worker: a game and its private shard.
+     */
+    @State(Scope.Thread)
+    public static class WorkerState {
+        PitchGame game;
+        SimulationData shard;
+
+        @Setup
+        public void setup() {
+            game = BenchmarkGames.createGame(new FastRandom().nextLong());
+            shard = new SimulationData();
+        }
+    }
+
+    /**
+     * One batch worker: a batch engine and its private shard.
+     */
+    @State(Scope.Thread)
+    public static class BatchState {
+        BatchEngine engine;
+        SimulationData shard;
+
+        @Setup
+        public void setup() {
+            engine = new BatchEngine(BATCH);
+            shard = new SimulationData();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public long add(DataState state) {
+        final int i = state.index++ & (SAMPLES - 1);
+        state.data.add(state.keys[i], state.points[i]);
+        return state.data.getCount();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void writeSnapshot(SnapshotState state) throws IOException {
+        state.data.write(state.out);
+        state.out.flush();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(1)
+    public long simulateOneThread(WorkerState state) {
+        return simulateRound(state);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(Threads.MAX)
+    public long simulateAllThreads(WorkerState state) {
+        return simulateRound(state);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    @Threads(1)
+    public long simulateBatch(BatchState state) {
+        state.engine.playRounds();
+        state.engine.addTo(state.shard);
+        return state.shard.getCount();
+    }
+
+    private static long simulateRound(WorkerState state) {
+        state.game.resetGame();
+        state.game.playRound();
+        state.shard.add(state.game.getBidKey(), state.game.getRoundScore(state.game.getBiddingTeam()));
+        return state.shard.getCount();
+    }
+}
@@ -1,11 +1,14 @@
 package com.orangebot.pitch;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 
 import org.apache.commons.lang3.Validate;
 
@@ -18,9 +21,32 @@
  *
  * It is transactional, so that all cards can always be tracked
  * to a single location.
+ *
+ * The cards are the shared {@link Card} instances, each with an index
+ * from 0 to 53, and each location is a single 64-bit word with one bit
+ * per card.  Moves, membership tests and counts are bit operations.
+ * The order of the cards within a location follows a single card
+ * sequence shared by all locations, which is rearranged by
+ * {@link #shuffle(Object)} and {@link #sort(Object, Comparator)}.
+ *
+ * Every key is also a small integer slot, its position in the
+ * constructor arguments.  Callers on a hot path can resolve their keys
+ * once with {@link #getSlot(Object)} and use the methods that take
+ * slots, which do not hash; the methods that take keys look up the slot
+ * and call them.  Keys should not be {@code Integer}s, which are easily
+ * confused with slots.
  */
 public class CardGame {
-    private final Map<Object, List<Card>> lists;
+    public static final int DECK_SIZE = 54;
+
+    private final Map<Object, Integer> slots;
+    private final long[] masks;
+    private final int[] order;
+    private final int[] positions;
+    private final Card[] sortBuffer;
+    private final View[] views;
+    private final int[] versions;
+    private RandomSource random;
 
     /**
      * Creates a new card game.
@@ -30,7 +56,14 @@ public CardGame(final Object... keys) {
         Validate.notNull(keys);
         Validate.notEmpty(keys);
         Validate.noNullElements(keys);
-        lists = new HashMap<>();
+        slots = new HashMap<>();
+        masks = new long[keys.length];
+        order = new int[DECK_SIZE];
+        positions = new int[DECK_SIZE];
+        sortBuffer = new Card[DECK_SIZE];
+        views = new View[keys.length];
+        versions = new int[keys.length];
+        random = new FastRandom();
         initLists(keys);
         initDeck(keys[0]);
     }
@@ -40,8 +73,9 @@ public CardGame(final Object... keys) {
      * @param keys Array of sublists by key names.
      */
     private void initLists(final Object[] keys) {
-        for (Object obj : keys) {
-            lists.put(obj, new ArrayList<Card>());
+        for (int i = 0; i < keys.length; i++) {
+            slots.put(keys[i], i);
+            views[i] = new View(i);
         }
     }
 
@@ -50,28 +84,172 @@ private void initLists(final Object[] keys) {
      * @param deckKey The deck key name.
      */
     private void initDeck(Object deckKey) {
-        final List<Card> deck = lists.get(deckKey);
+        for (int i = 0; i < DECK_SIZE; i++) {
+            order[i] = i;
+        }
 
-        for (Suit suit : Suit.values()) {
-            for (Rank rank : Rank.values()) {
-                if (suit != Suit.JOKER && rank != Rank.LOW && rank != Rank.HIGH) {
-                    deck.add(new Card(rank, suit));
-                }
-            }
+        masks[slot(deckKey)] = (1L << DECK_SIZE) - 1;
+    }
+
+    /**
+     * Sets the source of randomness used by {@link #shuffle(Object)}.
+     * @param random The random source.
+     */
+    public void setRandom(final RandomSource random) {
+        Validate.notNull(random);
+        this.random = random;
+    }
+
+    /**
+     * Returns the slot of a key.
+     * @param key The list key name.
+     * @return The slot, the position of the key in the constructor arguments.
+     * @throws IllegalArgumentException If the key is unknown.
+     */
+    public int getSlot(final Object key) {
+        return slot(key);
+    }
+
+    /**
+     * Returns the number of locations.
+     * @return The number of slots.
+     */
+    public int getSlotCount() {
+        return masks.length;
+    }
+
+    /**
+     * Returns the location slot for a key.
+     * Every public method that takes a key checks it here.
+     * @param key The list key name.
+     * @return The slot index.
+     */
+    private int slot(final Object key) {
+        final Integer slot = slots.get(key);
+        if (slot == null) {
+            // Validate's messages allocate on every call, and this runs on every move
+            throw new IllegalArgumentException("Unknown key: " + key);
         }
+        return slot;
+    }
 
-        deck.add(new Card(Rank.LOW, Suit.JOKER));
-        deck.add(new Card(Rank.HIGH, Suit.JOKER));
+    /**
+     * Returns the card with the given index.
+     * @param index The card index (0-53).
+     * @return The card.
+     * @deprecated Cards are shared by all games; use {@link Card#get(int)}.
+     */
+    @Deprecated
+    public Card getCard(final int index) {
+        return Card.get(index);
     }
 
     /**
-     * Returns a read-only list of cards in the sublist by key name.
+     * Returns a read-only snapshot of the cards in the sublist by key name.
+     * The snapshot is a copy and does not change when cards are moved.
+     * Use {@link #view(Object)} when a snapshot is not required.
      * @param key The list key name.
      * @return Read-only list of cards.
      */
     public List<Card> get(final Object key) {
-        Validate.notNull(key);
-        return Collections.unmodifiableList(new ArrayList<Card>(lists.get(key)));
+        return get(slot(key));
+    }
+
+    /**
+     * Returns a read-only snapshot of the cards in a location.
+     * @param slot The location slot.
+     * @return Read-only list of cards.
+     * @see #get(Object)
+     */
+    public List<Card> get(final int slot) {
+        final long mask = masks[slot];
+        final List<Card> result = new ArrayList<>(Long.bitCount(mask));
+        for (int i = 0; i < DECK_SIZE; i++) {
+            if ((mask & (1L << order[i])) != 0) {
+                result.add(Card.CARDS[order[i]]);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Returns a live read-only view of the cards in the sublist.
+     *
+     * The view is owned by the card game and always reflects the
+     * current contents of the sublist.  Repeated calls return the same
+     * instance, and reading the view does not allocate.
+     * @param key The list key name.
+     * @return Live read-only list of cards.
+     */
+    public List<Card> view(final Object key) {
+        return views[slot(key)];
+    }
+
+    /**
+     * Returns a live read-only view of the cards in a location.
+     * @param slot The location slot.
+     * @return Live read-only list of cards.
+     * @see #view(Object)
+     */
+    public List<Card> view(final int slot) {
+        return views[slot];
+    }
+
+    /**
+     * Returns the cards in the sublist as a bit mask.
+     * Bit n is set if the card with index n is in the sublist.
+     * @param key The list key name.
+     * @return The card mask.
+     */
+    public long getMask(final Object key) {
+        return masks[slot(key)];
+    }
+
+    /**
+     * Returns the cards in a location as a bit mask.
+     * @param slot The location slot.
+     * @return The card mask.
+     */
+    public long getMask(final int slot) {
+        return masks[slot];
+    }
+
+    /**
+     * Returns the number of cards in the sublist.
+     * @param key The list key name.
+     * @return The number of cards.
+     */
+    public int size(final Object key) {
+        return Long.bitCount(masks[slot(key)]);
+    }
+
+    /**
+     * Returns the number of cards in a location.
+     * @param slot The location slot.
+     * @return The number of cards.
+     */
+    public int size(final int slot) {
+        return Long.bitCount(masks[slot]);
+    }
+
+    /**
+     * Returns true if the card is in the sublist.
+     * @param key The list key name.
+     * @param card The card.
+     * @return True if the sublist contains the card.
+     */
+    public boolean contains(final Object key, final Card card) {
+        return (masks[slot(key)] & card.bit()) != 0;
+    }
+
+    /**
+     * Returns true if the card is in a location.
+     * @param slot The location slot.
+     * @param card The card.
+     * @return True if the location contains the card.
+     */
+    public boolean contains(final int slot, final Card card) {
+        return (masks[slot] & card.bit()) != 0;
     }
 
     /**
@@ -81,16 +259,44 @@ public List<Card> get(final Object key) {
      * @param to The destination list.
      */
     public void move(final Card card, final Object from, final Object to) {
+        move(card, slot(from), slot(to));
+    }
+
+    /**
+     * Moves a single card from one location to another.
+     * @param card The card to move.
+     * @param fromSlot The source slot.
+     * @param toSlot The destination slot.
+     */
+    public void move(final Card card, final int fromSlot, final int toSlot) {
         Validate.notNull(card);
-        Validate.notNull(from);
-        Validate.notNull(to);
+        moveMask(card.bit(), fromSlot, toSlot);
+    }
 
-        final List<Card> fromList = lists.get(from);
-        final List<Card> toList = lists.get(to);
-        final int index = fromList.indexOf(card);
-        if (index >= 0) {
-            toList.add(fromList.remove(index));
-        }
+    /**
+     * Moves a set of cards from one list to another list.
+     * Cards in the mask that are not in the source list are ignored.
+     * @param cards The bit mask of cards to move.
+     * @param from The source list.
+     * @param to The destination list.
+     */
+    public void moveMask(final long cards, final Object from, final Object to) {
+        moveMask(cards, slot(from), slot(to));
+    }
+
+    /**
+     * Moves a set of cards from one location to another.
+     * Cards in the mask that are not in the source location are ignored.
+     * @param cards The bit mask of cards to move.
+     * @param fromSlot The source slot.
+     * @param toSlot The destination slot.
+     */
+    public void moveMask(final long cards, final int fromSlot, final int toSlot) {
+        final long moved = masks[fromSlot] & cards;
+        masks[fromSlot] &= ~moved;
+        masks[toSlot] |= moved;
+        versions[fromSlot]++;
+        versions[toSlot]++;
     }
 
     /**
@@ -99,9 +305,16 @@ public void move(final Card card, final Object from, final Object to) {
      * @param to The destination list.
      */
     public void move(final Object from, final Object to) {
-        Validate.notNull(from);
-        Validate.notNull(to);
-        move(from, to, 1);
+        move(slot(from), slot(to), 1);
+    }
+
+    /**
+     * Moves the first card from one location to another.
+     * @param fromSlot The source slot.
+     * @param toSlot The destination slot.
+     */
+    public void move(final int fromSlot, final int toSlot) {
+        move(fromSlot, toSlot, 1);
     }
 
     /**
@@ -111,16 +324,33 @@ public void move(final Object from, final Object to) {
      * @param count The number of cards to move.
      */
     public void move(final Object from, final Object to, final int count) {
-        Validate.notNull(from);
-        Validate.notNull(to);
-        Validate.inclusiveBetween(0, lists.get(from).size(), count);
-
-        final List<Card> fromList = lists.get(from);
-        final List<Card> toList = lists.get(to);
+        move(slot(from), slot(to), count);
+    }
 
-        for (int i = 0; i < count; i++) {
-            toList.add(fromList.remove(0));
+    /**
+     * Moves the first n cards from one location to another.
+     * @param fromSlot The source slot.
+     * @param toSlot The destination slot.
+     * @param count The number of cards to move.
+     */
+    public void move(final int fromSlot, final int toSlot, final int count) {
+        final long fromMask = masks[fromSlot];
+        Validate.inclusiveBetween(0, Long.bitCount(fromMask), count);
+
+        long moved = 0L;
+        int remaining = count;
+        for (int i = 0; remaining > 0; i++) {
+            final long bit = 1L << order[i];
+            if ((fromMask & bit) != 0) {
+                moved |= bit;
+                remaining--;
+            }
         }
+
+        masks[fromSlot] = fromMask & ~moved;
+        masks[toSlot] |= moved;
+        versions[fromSlot]++;
+        versions[toSlot]++;
     }
 
     /**
@@ -129,12 +359,20 @@ public void move(final Object from, final Object to, final int count) {
      * @param to The destination list.
      */
     public void moveAll(final Object from, final Object to) {
-        Validate.notNull(from);
-        Validate.notNull(to);
+        moveAll(slot(from), slot(to));
+    }
 
-        final int count = lists.get(from).size();
-        if (count > 0) {
-            move(from, to, count);
+    /**
+     * Moves all cards from one location to another.
+     * @param fromSlot The source slot.
+     * @param toSlot The destination slot.
+     */
+    public void moveAll(final int fromSlot, final int toSlot) {
+        if (fromSlot != toSlot) {
+            masks[toSlot] |= masks[fromSlot];
+            masks[fromSlot] = 0L;
+            versions[fromSlot]++;
+            versions[toSlot]++;
         }
     }
 
@@ -143,13 +381,19 @@ public void moveAll(final Object from, final Object to) {
      * @param to The destination list.
      */
     public void moveAll(final Object to) {
-        Validate.notNull(to);
+        moveAll(slot(to));
+    }
 
-        for (Object obj : lists.keySet()) {
-            if (!obj.equals(to)) {
-                moveAll(obj, to);
-            }
+    /**
+     * Moves all cards from all locations to one location.
+     * @param toSlot The destination slot.
+     */
+    public void moveAll(final int toSlot) {
+        for (int i = 0; i < masks.length; i++) {
+            masks[i] = 0L;
+            versions[i]++;
         }
+        masks[toSlot] = (1L << DECK_SIZE) - 1;
     }
 
     /**
@@ -157,8 +401,66 @@ public void moveAll(final Object to) {
      * @param key The list key name.
      */
     public void shuffle(final Object key) {
-        Validate.notNull(key);
-        Collections.shuffle(lists.get(key));
+        shuffle(slot(key));
+    }
+
+    /**
+     * Shuffles a location.
+     * @param slot The location slot.
+     */
+    public void shuffle(final int slot) {
+        final int n = collect(masks[slot]);
+        for (int i = n - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final int tmp = order[positions[i]];
+            order[positions[i]] = order[positions[j]];
+            order[positions[j]] = tmp;
+        }
+        versions[slot]++;
+    }
+
+    /**
+     * Puts the cards of a list in a known order.
+     * The list must hold exactly the given cards.
+     * @param key The list key name.
+     * @param indexes The card indexes in the new order.
+     */
+    public void arrange(final Object key, final int[] indexes) {
+        arrange(slot(key), indexes);
+    }
+
+    /**
+     * Puts the cards of a location in a known order.
+     * @param slot The location slot.
+     * @param indexes The card indexes in the new order.
+     * @see #arrange(Object, int[])
+     */
+    public void arrange(final int slot, final int[] indexes) {
+        long mask = 0L;
+        for (int i = 0; i < indexes.length; i++) {
+            mask |= 1L << indexes[i];
+        }
+        Validate.isTrue(mask == masks[slot] && indexes.length == Long.bitCount(mask),
+                "Cards do not match the list");
+
+        final int n = collect(mask);
+        for (int i = 0; i < n; i++) {
+            order[positions[i]] = indexes[i];
+        }
+        versions[slot]++;
+    }
+
+    /**
+     * Restores the original card sequence of a new card game.
+     * A seeded shuffle after a reset always gives the same result.
+     */
+    public void resetOrder() {
+        for (int i = 0; i < DECK_SIZE; i++) {
+            order[i] = i;
+        }
+        for (int i = 0; i < versions.length; i++) {
+            versions[i]++;
+        }
     }
 
     /**
@@ -167,25 +469,148 @@ public void shuffle(final Object key) {
      * @param c The list comparator.
      */
     public void sort(final Object key, final Comparator<Card> c) {
-        Validate.notNull(key);
-        Collections.sort(lists.get(key), c);
+        sort(slot(key), c);
+    }
+
+    /**
+     * Sorts a location.
+     * @param slot The location slot.
+     * @param c The list comparator.
+     */
+    public void sort(final int slot, final Comparator<Card> c) {
+        final int n = collect(masks[slot]);
+        for (int i = 0; i < n; i++) {
+            sortBuffer[i] = Card.CARDS[order[positions[i]]];
+        }
+        Arrays.sort(sortBuffer, 0, n, c);
+        for (int i = 0; i < n; i++) {
+            order[positions[i]] = sortBuffer[i].index;
+        }
+        versions[slot]++;
+    }
+
+    /**
+     * Collects the sequence positions of all cards in a mask.
+     * @param mask The card mask.
+     * @return The number of positions written to the positions buffer.
+     */
+    private int collect(final long mask) {
+        int n = 0;
+        for (int i = 0; i < DECK_SIZE; i++) {
+            if ((mask & (1L << order[i])) != 0) {
+                positions[n++] = i;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * The View class is a live read-only list of the cards in one location.
+     *
+     * The cards are cached in a fixed array that is refreshed only when
+     * the location has changed since the last read.
+     */
+    private final class View extends AbstractList<Card> implements RandomAccess {
+        private final int slot;
+        private final Card[] items;
+        private int size;
+        private int version;
+
+        /**
+         * Creates a new view.
+         * @param slot The location slot.
+         */
+        private View(final int slot) {
+            this.slot = slot;
+            this.items = new Card[DECK_SIZE];
+            this.version = -1;
+        }
+
+        /**
+         * Refreshes the cached cards if the card game has changed.
+         */
+        private void refresh() {
+            if (version != versions[slot]) {
+                final long mask = masks[slot];
+                int n = 0;
+                for (int i = 0; i < DECK_SIZE; i++) {
+                    if ((mask & (1L << order[i])) != 0) {
+                        items[n++] = Card.CARDS[order[i]];
+                    }
+                }
+                size = n;
+                version = versions[slot];
+            }
+        }
+
+        @Override
+        public Card get(final int index) {
+            refresh();
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return items[index];
+        }
+
+        @Override
+        public int size() {
+            refresh();
+            return size;
+        }
+
+        @Override
+        public boolean contains(final Object obj) {
+            return obj instanceof Card && (masks[slot] & ((Card) obj).bit()) != 0;
+        }
     }
 
     /**
      * The card class represents a single card.
+     *
+     * There is one shared instance per card, so cards are compared by
+     * identity and can be used as array indexes through {@link #index()}.
+     * The index of a suited card is suit ordinal * 13 + rank ordinal,
+     * and the low and high jokers are 52 and 53.
      */
     public static final class Card {
+        private static final int SUITED_RANKS = 13;
+        private static final int RANK_COUNT = Rank.values().length;
+        private static final Card[] CARDS = buildCards();
+        private static final Card[] LOOKUP = buildLookup();
+
         private final Rank rank;
         private final Suit suit;
+        private final int index;
 
         /**
          * Creates a new card.
          * @param rank The rank (ace, king, ten, etc).
          * @param suit The suit (hearts, clubs, etc).
+         * @param index The card index (0-53).
          */
-        private Card(Rank rank, Suit suit) {
+        private Card(Rank rank, Suit suit, int index) {
             this.rank = rank;
             this.suit = suit;
+            this.index = index;
+        }
+
+        /**
+         * Returns the card with an index.
+         * @param index The card index (0-53).
+         * @return The card.
+         */
+        public static Card get(int index) {
+            return CARDS[index];
+        }
+
+        /**
+         * Returns the card with a rank and suit.
+         * @param rank The rank.
+         * @param suit The suit.
+         * @return The card, or null if there is no such card.
+         */
+        public static Card get(Rank rank, Suit suit) {
+            return LOOKUP[suit.ordinal() * RANK_COUNT + rank.ordinal()];
         }
 
         /**
@@ -205,26 +630,38 @@ public Suit suit() {
         }
 
         /**
-         * Returns a semi unique hash code.
+         * Returns the card index within the deck.
+         * @return The card index (0-53).
+         */
+        public int index() {
+            return this.index;
+        }
+
+        /**
+         * Returns the single bit mask for this card.
+         * @return The card bit.
+         */
+        public long bit() {
+            return 1L << this.index;
+        }
+
+        /**
+         * Returns the ordinal, so that hashing is the same in every run.
          * @return The hash code.
          */
         @Override
         public int hashCode() {
-            return rank.hashCode() + 31 * suit.hashCode();
+            return index;
         }
 
         /**
-         * Returns whether the object is the same as this card.
+         * Returns whether the object is this card.
+         * Every card has a single instance.
          * @return True if equal.
          */
         @Override
         public boolean equals(Object obj) {
-            if (obj == null || !(obj instanceof Card)) {
-                return false;
-            }
-
-            Card other = (Card) obj;
-            return this.rank == other.rank && this.suit == other.suit;
+            return this == obj;
         }
 
         /**
@@ -235,6 +672,29 @@ public boolean equals(Object obj) {
         public String toString() {
             return rank + " of " + suit;
         }
+
+        private static Card[] buildCards() {
+            final Card[] cards = new Card[DECK_SIZE];
+            for (Suit suit : Suit.values()) {
+                for (Rank rank : Rank.values()) {
+                    if (suit != Suit.JOKER && rank != Rank.LOW && rank != Rank.HIGH) {
+                        final int index = suit.ordinal() * SUITED_RANKS + rank.ordinal();
+                        cards[index] = new Card(rank, suit, index);
+                    }
+                }
+            }
+            cards[DECK_SIZE - 2] = new Card(Rank.LOW, Suit.JOKER, DECK_SIZE - 2);
+            cards[DECK_SIZE - 1] = new Card(Rank.HIGH, Suit.JOKER, DECK_SIZE - 1);
+            return cards;
+        }
+
+        private static Card[] buildLookup() {
+            final Card[] lookup = new Card[Suit.values().length * RANK_COUNT];
+            for (Card c : CARDS) {
+                lookup[c.suit.ordinal() * RANK_COUNT + c.rank.ordinal()] = c;
+            }
+            return lookup;
+        }
     }
 
     public static enum Rank {
@@ -0,0 +1,108 @@
+package com.orangebot.pitch;
+
+import java.io.PrintStream;
+
+import org.apache.commons.lang3.Validate;
+
+import com.orangebot.pitch.CardGame.Card;
+import com.orangebot.pitch.CardGame.Suit;
+import com.orangebot.pitch.PitchGame.GameListener;
+import com.orangebot.pitch.PitchGame.PlayedCard;
+import com.orangebot.pitch.PitchGame.Player;
+
+/**
+ * The ConsoleGameListener class prints a game as it is played.
+ * This is the log of {@link PitchGame#setLoggingEnabled(boolean)}.
+ */
+public class ConsoleGameListener implements GameListener {
+    private final PrintStream out;
+    private int round;
+    private int hand;
+    private int seats;
+
+    public ConsoleGameListener(PrintStream out) {
+        Validate.notNull(out);
+        this.out = out;
+    }
+
+    @Override
+    public void onDeal(PitchGame game) {
+        hand = 0;
+        seats = 0;
+        out.println();
+        out.println("Round " + (++round));
+    }
+
+    @Override
+    public void onBid(PitchGame game, Player player, int bid) {
+        if (bid > 0) {
+            out.println(player + " bids " + bid);
+        } else {
+            out.println(player + " passes");
+        }
+    }
+
+    @Override
+    public void onTrump(PitchGame game, Player bidder, Suit trump) {
+        out.println("High bid: " + game.getHighBid());
+        out.println("Bidder: " + bidder);
+        out.println("Suit: " + trump);
+    }
+
+    @Override
+    public void onDiscard(PitchGame game, Player bidder) {
+        out.println("Bid hand: " + bidder.getHandString());
+    }
+
+    @Override
+    public void onRedeal(PitchGame game, Player bidder) {
+        out.println("Play hand: " + bidder.getHandString());
+    }
+
+    @Override
+    public void onBury(PitchGame game, Player player, Card card) {
+        out.println(player + " buries " + card);
+    }
+
+    @Override
+    public void onPlay(PitchGame game, Player player, Card card) {
+        nextSeat();
+        out.println(player + " plays " + card);
+    }
+
+    @Override
+    public void onOut(PitchGame game, Player player) {
+        nextSeat();
+        out.println(player + " is out");
+        if (seats % 4 == 0 && player.getPlayedCards().isEmpty()) {
+            // Nobody played, so no trick ends the hand
+            out.println();
+        }
+    }
+
+    @Override
+    public void onTrickWon(PitchGame game, PlayedCard highCard, int team0Points, int team1Points) {
+        out.println("High card = " + highCard);
+        out.println("Round score delta: " + team0Points + ", " + team1Points);
+        out.println("Round score: " + game.getRoundScore(0) + ", " + game.getRoundScore(1));
+        out.println();
+    }
+
+    @Override
+    public void onRoundEnd(PitchGame game, boolean made) {
+        out.println("Round Score: " + game.getRoundScore(0) + ", " + game.getRoundScore(1));
+        out.println(made ? "Made the bid!" : "Went set!");
+        out.println("Game Score: " + game.getScore(0) + ", " + game.getScore(1));
+        out.println();
+    }
+
+    /**
+     * Every seat plays or sits out each hand, so every fourth seat
+     * starts a new hand.
+     */
+    private void nextSeat() {
+        if (seats++ % 4 == 0) {
+            out.println("Hand " + (++hand));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.orangebot.pitch;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The FastRandom class is a small, fast, non-cryptographic generator.
+ *
+ * It implements xoshiro256** with the state expanded from a 64-bit seed
+ * by SplitMix64.  The same seed always produces the same sequence, so
+ * seeded runs are reproducible.  Instances are not thread safe and
+ * share no state, so each thread should create its own.
+ */
+public final class FastRandom implements RandomSource {
+    private static final AtomicLong SEED_UNIQUIFIER = new AtomicLong(0x2545F4914F6CDD1DL);
+
+    private long s0;
+    private long s1;
+    private long s2;
+    private long s3;
+
+    /**
+     * Creates a new generator with a seed that is unique to this instance.
+     */
+    public FastRandom() {
+        this(SEED_UNIQUIFIER.addAndGet(0x9E3779B97F4A7C15L) ^ System.nanoTime());
+    }
+
+    /**
+     * Creates a new generator with an explicit seed.
+     * @param seed The seed.
+     */
+    public FastRandom(final long seed) {
+        setSeed(seed);
+    }
+
+    /**
+     * Resets the generator to the start of the sequence for a seed.
+     * @param seed The seed.
+     */
+    public void setSeed(final long seed) {
+        long x = seed;
+        x += 0x9E3779B97F4A7C15L;
+        s0 = mix(x);
+        x += 0x9E3779B97F4A7C15L;
+        s1 = mix(x);
+        x += 0x9E3779B97F4A7C15L;
+        s2 = mix(x);
+        x += 0x9E3779B97F4A7C15L;
+        s3 = mix(x);
+    }
+
+    /**
+     * Returns a new generator seeded from this one.
+     * Useful for giving each thread its own reproducible stream.
+     * @return The new generator.
+     */
+    public FastRandom split() {
+        return new FastRandom(nextLong());
+    }
+
+    @Override
+    public long nextLong() {
+        final long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        final long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return result;
+    }
+
+    @Override
+    public int nextInt(final int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+
+        // Multiply-shift with rejection (Lemire) to avoid modulo bias
+        long m = (nextLong() >>> 32) * bound;
+        long low = m & 0xFFFFFFFFL;
+        if (low < bound) {
+            final long threshold = (0x100000000L - bound) % bound;
+            while (low < threshold) {
+                m = (nextLong() >>> 32) * bound;
+                low = m & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (m >>> 32);
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * SplitMix64 finalizer.
+     * @param z The input value.
+     * @return The mixed value.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,349 @@
+package com.orangebot.pitch;
+
+import org.apache.commons.lang3.Validate;
+
+import com.orangebot.pitch.CardGame.Suit;
+import com.orangebot.pitch.PitchGame.PlayerId;
+
+/**
+ * The GameState class is a compact copy of the trick play of a round
+ * that can play cards and take them back.
+ *
+ * It holds the cards of the four hands, the hand in progress, the cards
+ * of the finished hands, the round scores, the lead and the trump.  It
+ * follows the rules of {@link PitchGame#playHand()}: the players with
+ * trump play in seat order from the lead, the highest card takes the
+ * hand and leads the next one, and the deuce scores for the team that
+ * plays it.  After the bury every card held is trump.
+ *
+ * {@link #makeMove(int)} and {@link #unmakeMove()} are constant time and
+ * do not allocate: every move saves the few values it changes on a
+ * preallocated undo stack.  To start in the middle of a hand, set the
+ * state at the start of the hand with the played cards still in their
+ * hands, and make the played cards as moves.
+ *
+ * A state is not thread safe; copy it for each thread.
+ */
+public final class GameState {
+    /** The largest number of moves that can be made. */
+    public static final int MAX_MOVES = CardGame.DECK_SIZE;
+
+    private static final int STRIDE = 7;
+    private static final PlayerId[] PLAYERS = { PitchGame.P1, PitchGame.P2, PitchGame.P3, PitchGame.P4 };
+
+    private final long[] hands;
+    private final int[] roundScore;
+    private final int[] moves;
+    private final int[] undo;
+    private final long[] undoMasks;
+    private Suit trump;
+    private TrumpTable table;
+    private long trumpMask;
+    private long handMask;
+    private long playedMask;
+    private int lead;
+    private int seat;
+    private int remaining;
+    private int highSeat;
+    private int highValue;
+    private int handStart;
+    private int depth;
+
+    public GameState() {
+        this.hands = new long[4];
+        this.roundScore = new int[2];
+        this.moves = new int[MAX_MOVES];
+        this.undo = new int[MAX_MOVES * STRIDE];
+        this.undoMasks = new long[MAX_MOVES * 2];
+        set(new long[4], Suit.HEARTS, PitchGame.P1);
+    }
+
+    /**
+     * Creates a copy of another state, including its moves.
+     * @param other The state to copy.
+     */
+    public GameState(GameState other) {
+        this();
+        copyFrom(other);
+    }
+
+    /**
+     * Copies the state of a game at the start of a hand, typically after
+     * {@link PitchGame#bury()}.
+     * @param game The game.
+     */
+    public void set(PitchGame game) {
+        for (int i = 0; i < hands.length; i++) {
+            hands[i] = game.getHandMask(PLAYERS[i]);
+        }
+        setTrump(game.getTrump());
+        roundScore[0] = game.getRoundScore(0);
+        roundScore[1] = game.getRoundScore(1);
+        playedMask = game.getPlayer(game.getLead()).getPlayedMask();
+        startRound(game.getLead().getIndex());
+    }
+
+    /**
+     * Sets the state at the start of a hand, with no points taken.
+     * @param masks The card masks of the four players.
+     * @param trump The trump suit.
+     * @param lead The player who leads the hand.
+     */
+    public void set(long[] masks, Suit trump, PlayerId lead) {
+        Validate.isTrue(masks.length == 4, "Four hands are required");
+        Validate.notNull(lead);
+        long all = 0L;
+        for (int i = 0; i < hands.length; i++) {
+            Validate.isTrue((all & masks[i]) == 0, "Hands must not share cards");
+            all |= masks[i];
+            hands[i] = masks[i];
+        }
+        setTrump(trump);
+        roundScore[0] = 0;
+        roundScore[1] = 0;
+        playedMask = 0L;
+        startRound(lead.getIndex());
+    }
+
+    /**
+     * Copies another state, including its moves, so that they can be
+     * taken back from either state.
+     * @param other The state to copy.
+     */
+    public void copyFrom(GameState other) {
+        System.arraycopy(other.hands, 0, hands, 0, hands.length);
+        roundScore[0] = other.roundScore[0];
+        roundScore[1] = other.roundScore[1];
+        System.arraycopy(other.moves, 0, moves, 0, other.depth);
+        System.arraycopy(other.undo, 0, undo, 0, other.depth * STRIDE);
+        System.arraycopy(other.undoMasks, 0, undoMasks, 0, other.depth * 2);
+        trump = other.trump;
+        table = other.table;
+        trumpMask = other.trumpMask;
+        handMask = other.handMask;
+        playedMask = other.playedMask;
+        lead = other.lead;
+        seat = other.seat;
+        remaining = other.remaining;
+        highSeat = other.highSeat;
+        highValue = other.highValue;
+        handStart = other.handStart;
+        depth = other.depth;
+    }
+
+    public Suit getTrump() {
+        return trump;
+    }
+
+    /**
+     * Returns the cards held by a player.
+     * @param seat The seat index.
+     * @return The card mask.
+     */
+    public long getHandMask(int seat) {
+        return hands[seat];
+    }
+
+    /**
+     * Returns the cards played to the hand in progress.
+     * @return The card mask.
+     */
+    public long getCenterMask() {
+        return handMask;
+    }
+
+    /**
+     * Returns the cards played to the finished hands.
+     * @return The card mask.
+     */
+    public long getPlayedMask() {
+        return playedMask;
+    }
+
+    public int getRoundScore(int team) {
+        return roundScore[team];
+    }
+
+    /**
+     * Returns the seat that led the hand in progress, or that leads the
+     * next hand.
+     * @return The seat index.
+     */
+    public int getLead() {
+        return lead;
+    }
+
+    /**
+     * Returns the seat to play next.
+     * @return The seat index.
+     */
+    public int getSeat() {
+        return seat;
+    }
+
+    /**
+     * Returns the seat holding the high card of the hand in progress.
+     * @return The seat index, or -1 if no card is played yet.
+     */
+    public int getHighSeat() {
+        return highSeat;
+    }
+
+    /**
+     * Returns the cards that the seat to play next can play.
+     * @return The card mask, or 0 when the round is finished.
+     */
+    public long getMoves() {
+        return remaining == 0 ? 0L : hands[seat] & trumpMask;
+    }
+
+    /**
+     * Returns true when no player holds trump.
+     * @return True if the trick play is finished.
+     */
+    public boolean isFinished() {
+        return remaining == 0;
+    }
+
+    /**
+     * Returns the number of moves that can be taken back.
+     * @return The number of moves.
+     */
+    public int getMoveCount() {
+        return depth;
+    }
+
+    /**
+     * Returns a move that can be taken back.
+     * @param i The move number, from 0 for the oldest.
+     * @return The card index.
+     */
+    public int getMove(int i) {
+        return moves[i];
+    }
+
+    /**
+     * Returns the seat that made a move that can be taken back.
+     * @param i The move number, from 0 for the oldest.
+     * @return The seat index.
+     */
+    public int getMoveSeat(int i) {
+        return undo[i * STRIDE];
+    }
+
+    /**
+     * Plays a card for the seat to play next.
+     * @param index The card index.
+     * @throws IllegalArgumentException If the seat cannot play the card.
+     */
+    public void makeMove(int index) {
+        final long bit = 1L << index;
+        if ((getMoves() & bit) == 0) {
+            throw new IllegalArgumentException("Card is not playable");
+        }
+
+        final int u = depth * STRIDE;
+        undo[u] = seat;
+        undo[u + 1] = lead;
+        undo[u + 2] = remaining;
+        undo[u + 3] = highSeat;
+        undo[u + 4] = highValue;
+        undo[u + 5] = handStart;
+        undo[u + 6] = roundScore[0] | roundScore[1] << 16;
+        undoMasks[2 * depth] = handMask;
+        undoMasks[2 * depth + 1] = playedMask;
+        moves[depth++] = index;
+
+        hands[seat] &= ~bit;
+        handMask |= bit;
+        final int value = table.getSortValue(index);
+        if (value > highValue) {
+            highValue = value;
+            highSeat = seat;
+        }
+
+        if (--remaining == 0) {
+            finishHand();
+        } else {
+            nextSeat();
+        }
+    }
+
+    /**
+     * Takes back the last move.
+     * @throws IllegalStateException If there is no move to take back.
+     */
+    public void unmakeMove() {
+        if (depth == 0) {
+            throw new IllegalStateException("No move to take back");
+        }
+
+        final int index = moves[--depth];
+        final int u = depth * STRIDE;
+        seat = undo[u];
+        lead = undo[u + 1];
+        remaining = undo[u + 2];
+        highSeat = undo[u + 3];
+        highValue = undo[u + 4];
+        handStart = undo[u + 5];
+        roundScore[0] = undo[u + 6] & 0xFFFF;
+        roundScore[1] = undo[u + 6] >>> 16;
+        handMask = undoMasks[2 * depth];
+        playedMask = undoMasks[2 * depth + 1];
+        hands[seat] |= 1L << index;
+    }
+
+    private void setTrump(Suit trump) {
+        Validate.notNull(trump);
+        this.trump = trump;
+        this.table = TrumpTable.get(trump);
+        this.trumpMask = table.getTrumpMask();
+    }
+
+    private void startRound(int lead) {
+        this.handMask = 0L;
+        this.depth = 0;
+        this.lead = lead;
+        startHand();
+    }
+
+    /**
+     * Scores the finished hand and starts the next one.
+     * The deuce scores for the team that played it, and every other
+     * card for the team of the high card.
+     */
+    private void finishHand() {
+        final int highTeam = highSeat & 1;
+        for (int i = handStart; i < depth; i++) {
+            final int index = moves[i];
+            final int team = table.getSortValue(index) == 2 ? undo[i * STRIDE] & 1 : highTeam;
+            roundScore[team] += table.getPointValue(index);
+        }
+        playedMask |= handMask;
+        handMask = 0L;
+        lead = highSeat;
+        startHand();
+    }
+
+    private void startHand() {
+        handStart = depth;
+        highSeat = -1;
+        highValue = 0;
+        remaining = 0;
+        for (int i = 0; i < 4; i++) {
+            if ((hands[i] & trumpMask) != 0) {
+                remaining++;
+            }
+        }
+        seat = lead;
+        if (remaining > 0 && (hands[seat] & trumpMask) == 0) {
+            nextSeat();
+        }
+    }
+
+    private void nextSeat() {
+        do {
+            seat = (seat + 1) & 3;
+        } while ((hands[seat] & trumpMask) == 0);
+    }
+}
@@ -0,0 +1,169 @@
+package com.orangebot.pitch;
+
+/**
+ * The HandKey class encodes a set of trump cards as a small integer.
+ *
+ * There are 16 trump cards for any trump suit.  Bit n of a hand key is
+ * set if the hand holds the trump card with sort value n + 2, so every
+ * trump holding has a unique key between 0 and 65535 that is independent
+ * of the trump suit.  Keys can be used directly as array indexes.
+ *
+ * Keys can also be ranked densely: holdings are ordered by size, and
+ * within a size by their colexicographic order, so the holdings of at
+ * most k cards have the ranks 0 to {@link #count(int)} - 1.
+ */
+public final class HandKey {
+    public static final int TRUMP_COUNT = 16;
+    public static final int SIZE = 1 << TRUMP_COUNT;
+
+    private static final String[] NAMES = {
+        "2", "3", "4", "5", "6", "7", "8", "9", "10", "JL", "JH", "LJ", "J", "Q", "K", "A"
+    };
+
+    private static final int[] POINTS = {
+        1, 3, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 1, 0, 0, 1
+    };
+
+    /** The key of all trump cards that score points. */
+    public static final int POINT_CARDS = buildPointCards();
+
+    private static final int[][] BINOMIAL = buildBinomials();
+
+    private HandKey() {
+    }
+
+    /**
+     * Returns the key bit for a trump sort value.
+     * @param sortValue The trump sort value (2-17).
+     * @return The key bit.
+     */
+    public static int bit(final int sortValue) {
+        return 1 << (sortValue - 2);
+    }
+
+    /**
+     * Returns the number of cards in a hand key.
+     * @param key The hand key.
+     * @return The number of cards.
+     */
+    public static int size(final int key) {
+        return Integer.bitCount(key);
+    }
+
+    /**
+     * Returns the point value of the trump card for a key bit.
+     * @param bit The bit position (0-15).
+     * @return The point value.
+     */
+    public static int pointValue(final int bit) {
+        return POINTS[bit];
+    }
+
+    /**
+     * Returns the total point value of the cards in a hand key.
+     * @param key The hand key.
+     * @return The number of points.
+     */
+    public static int points(final int key) {
+        int result = 0;
+        for (int m = key; m != 0; m &= m - 1) {
+            result += POINTS[Integer.numberOfTrailingZeros(m)];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of holdings with at most the given number of cards.
+     * @param maxSize The maximum number of cards.
+     * @return The number of holdings.
+     */
+    public static int count(final int maxSize) {
+        int result = 0;
+        for (int k = 0; k <= Math.min(maxSize, TRUMP_COUNT); k++) {
+            result += BINOMIAL[TRUMP_COUNT][k];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the dense rank of a hand key.
+     * @param key The hand key.
+     * @return The rank.
+     */
+    public static int rank(final int key) {
+        final int size = size(key);
+        int result = count(size - 1);
+        int i = 1;
+        for (int m = key; m != 0; m &= m - 1) {
+            result += BINOMIAL[Integer.numberOfTrailingZeros(m)][i++];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the hand key with the given dense rank.
+     * @param rank The rank, from 0 to count(16) - 1.
+     * @return The hand key.
+     */
+    public static int unrank(final int rank) {
+        int r = rank;
+        int size = 0;
+        while (r >= BINOMIAL[TRUMP_COUNT][size]) {
+            r -= BINOMIAL[TRUMP_COUNT][size];
+            size++;
+        }
+
+        int key = 0;
+        int p = TRUMP_COUNT - 1;
+        for (int i = size; i > 0; i--) {
+            while (BINOMIAL[p][i] > r) {
+                p--;
+            }
+            key |= 1 << p;
+            r -= BINOMIAL[p][i];
+            p--;
+        }
+        return key;
+    }
+
+    private static int buildPointCards() {
+        int key = 0;
+        for (int i = 0; i < TRUMP_COUNT; i++) {
+            if (POINTS[i] > 0) {
+                key |= 1 << i;
+            }
+        }
+        return key;
+    }
+
+    private static int[][] buildBinomials() {
+        final int[][] result = new int[TRUMP_COUNT + 1][TRUMP_COUNT + 1];
+        for (int n = 0; n <= TRUMP_COUNT; n++) {
+            result[n][0] = 1;
+            for (int k = 1; k <= n; k++) {
+                result[n][k] = result[n - 1][k - 1] + result[n - 1][k];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the display string for a hand key.
+     * Cards are listed from highest to lowest, separated by spaces,
+     * matching {@link PitchGame.Player#getHandString()} for a sorted hand.
+     * @param key The hand key.
+     * @return The display string.
+     */
+    public static String toString(final int key) {
+        final StringBuilder b = new StringBuilder();
+        for (int i = TRUMP_COUNT - 1; i >= 0; i--) {
+            if ((key & (1 << i)) != 0) {
+                if (b.length() > 0) {
+                    b.append(" ");
+                }
+                b.append(NAMES[i]);
+            }
+        }
+        return b.toString();
+    }
+}
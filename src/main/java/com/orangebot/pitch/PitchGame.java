@@ -1,6 +1,7 @@
 package com.orangebot.pitch;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -10,6 +11,8 @@
 import com.orangebot.pitch.CardGame.Card;
 import com.orangebot.pitch.CardGame.Rank;
 import com.orangebot.pitch.CardGame.Suit;
+import com.orangebot.pitch.metrics.Phase;
+import com.orangebot.pitch.metrics.RoundSampler;
 
 public class PitchGame {
     public static final String DECK = "deck";
@@ -21,37 +24,77 @@ public class PitchGame {
     public static final PlayerId P4 = new PlayerId(3);
     public static final Object[] LISTS = { DECK, DISCARD, CENTER, P1, P2, P3, P4 };
     public static final int WIN_SCORE = 52;
+    private static final GameListener[] NO_LISTENERS = new GameListener[0];
 
     private final CardGame cards;
+    private final int deckSlot;
+    private final int discardSlot;
+    private final int centerSlot;
+    private final RandomSource random;
     private final Player[] players;
     private final List<PlayedCard> played;
+    private final List<PlayedCard> playedView;
+    private final PlayedCard[] playedCards;
     private final Comparator<Card> cardComparator;
-    private final Comparator<PlayedCard> playedCardComparator;
     private final int[] gameScore;
     private final int[] roundScore;
     private int nextBidIndex;
     private int highBid;
     private Suit trump;
+    private TrumpTable table;
     private Player bidder;
     private Player lead;
-    private String bidToken;
-    private boolean loggingEnabled;
+    private Player contractBidder;
+    private int contractBid;
+    private Suit contractTrump;
+    private int bidKey;
+    private long playedMask;
+    private final int[] handKeys;
+    private final int[] capturedKeys;
+    private int centerKey;
+    private PlayedCard highCard;
+    private GameListener[] listeners;
+    private GameListener consoleListener;
+    private RoundSampler sampler;
+    private boolean timing;
 
     public PitchGame(PlayerStrategy... playerStrategies) {
+        this(new FastRandom(), playerStrategies);
+    }
+
+    /**
+     * Creates a new game that shuffles with the given random source.
+     * @param random The random source.
+     * @param playerStrategies The four player strategies.
+     */
+    public PitchGame(RandomSource random, PlayerStrategy... playerStrategies) {
+        Validate.notNull(random);
         Validate.notNull(playerStrategies);
         Validate.noNullElements(playerStrategies);
         Validate.inclusiveBetween(4, 4, playerStrategies.length);
 
+        this.random = random;
         this.cards = new CardGame(DECK, DISCARD, CENTER, P1, P2, P3, P4);
+        this.cards.setRandom(random);
+        this.deckSlot = cards.getSlot(DECK);
+        this.discardSlot = cards.getSlot(DISCARD);
+        this.centerSlot = cards.getSlot(CENTER);
         this.gameScore = new int[2];
         this.roundScore = new int[2];
+        this.handKeys = new int[4];
+        this.capturedKeys = new int[2];
         this.players = new Player[] {
                 new Player(P1, P3, playerStrategies[0]),
                 new Player(P2, P4, playerStrategies[1]),
                 new Player(P3, P1, playerStrategies[2]),
                 new Player(P4, P2, playerStrategies[3]),
         };
-        this.played = new ArrayList<PlayedCard>();
+        this.played = new ArrayList<PlayedCard>(4);
+        this.playedView = Collections.unmodifiableList(played);
+        this.playedCards = new PlayedCard[4];
+        for (int i = 0; i < playedCards.length; i++) {
+            playedCards[i] = new PlayedCard(null, null);
+        }
 
         this.cardComparator = new Comparator<Card>(){
             @Override
@@ -59,27 +102,111 @@ public int compare(Card c1, Card c2) {
                 return -Integer.compare(getSortValue(c1), getSortValue(c2));
             }};
 
-        this.playedCardComparator = new Comparator<PlayedCard>(){
-            @Override
-            public int compare(PlayedCard c1, PlayedCard c2) {
-                return -Integer.compare(getSortValue(c1.getCard()), getSortValue(c2.getCard()));
-            }};
+        this.listeners = NO_LISTENERS;
+        setTrump(Suit.HEARTS);
+    }
 
-        this.trump = Suit.HEARTS;
+    public RandomSource getRandom() {
+        return random;
     }
 
+    /**
+     * Returns the bidder's trump holding after the discard as a hand key.
+     * @return The bid hand key.
+     * @see HandKey
+     */
+    public int getBidKey() {
+        return bidKey;
+    }
+
+    /**
+     * Returns the display string of the bidder's trump holding.
+     * @return The bid hand string.
+     */
     public String getBidToken() {
-        return bidToken;
+        return HandKey.toString(bidKey);
     }
 
     public int getScore(int team) {
         return gameScore[team];
     }
 
+    /**
+     * Returns the team that won the game.
+     * A team wins when it reaches {@link #WIN_SCORE}.  If both teams reach
+     * it in the same round, the bidder goes out: the bidding team wins.
+     * @return The winning team, or -1 if neither team has reached the win score.
+     */
+    public int getWinningTeam() {
+        final boolean out0 = gameScore[0] >= WIN_SCORE;
+        final boolean out1 = gameScore[1] >= WIN_SCORE;
+        if (out0 && out1) {
+            return getBiddingTeam();
+        }
+        return out0 ? 0 : out1 ? 1 : -1;
+    }
+
     public int getHighBid() {
         return highBid;
     }
 
+    public int getRoundScore(int team) {
+        return roundScore[team];
+    }
+
+    public int getBiddingTeam() {
+        return bidder.getId().getTeam();
+    }
+
+    public Player getPlayer(PlayerId id) {
+        return players[id.getIndex()];
+    }
+
+    public Suit getTrump() {
+        return trump;
+    }
+
+    /**
+     * Returns the player who leads the next hand.
+     * @return The lead player id.
+     */
+    public PlayerId getLead() {
+        return lead.getId();
+    }
+
+    /**
+     * Returns the player who opens the next auction.
+     * @return The player id.
+     */
+    public PlayerId getNextBidder() {
+        return players[nextBidIndex % 4].getId();
+    }
+
+    /**
+     * Sets the player who opens the next auction.
+     * @param id The player id.
+     */
+    public void setNextBidder(PlayerId id) {
+        nextBidIndex = id.getIndex();
+    }
+
+    /**
+     * Returns a live read-only view of the cards left in the deck.
+     * @return The deck cards in deal order.
+     */
+    public List<Card> getDeck() {
+        return cards.view(deckSlot);
+    }
+
+    /**
+     * Returns the cards held by a player as a card mask.
+     * @param id The player id.
+     * @return The card mask.
+     */
+    public long getHandMask(PlayerId id) {
+        return cards.getMask(players[id.getIndex()].slot);
+    }
+
     /**
      * Resets the game state.
      */
@@ -92,15 +219,14 @@ public void resetGame() {
         }
         nextBidIndex = 0;
         highBid = 0;
-        cards.moveAll(DECK);
-        cards.shuffle(DECK);
+        cards.moveAll(deckSlot);
+        cards.resetOrder();
+        cards.shuffle(deckSlot);
+        updateKeys();
     }
 
     public void playGame() {
-        int round = 0;
         while (gameScore[0] < WIN_SCORE && gameScore[1] < WIN_SCORE) {
-            println();
-            println("Round " + (++round));
             playRound();
         }
     }
@@ -109,20 +235,87 @@ public void playGame() {
      * Plays a single round.
      */
     public void playRound() {
-        setupRound();
+        final long start = startRound();
         dealRound();
+        playDealtRound(start);
+    }
+
+    /**
+     * Plays a single round where one player is dealt a known hand.
+     * @param seat The player who receives the hand.
+     * @param hand The mask of the nine cards dealt to the player.
+     */
+    public void playRound(PlayerId seat, long hand) {
+        final long start = startRound();
+        dealRound(seat, hand);
+        playDealtRound(start);
+    }
+
+    /**
+     * Plays a single round with a known deal.
+     * @param deal The card indexes in deal order, see {@link #dealRound(int[])}.
+     */
+    public void playRound(int[] deal) {
+        final long start = startRound();
+        dealRound(deal);
+        playDealtRound(start);
+    }
+
+    /**
+     * Sets up a round and decides if its phases are timed.
+     * @return The {@link System#nanoTime()} at the start of a timed round.
+     */
+    private long startRound() {
+        timing = sampler != null && sampler.startRound();
+        final long start = timing ? System.nanoTime() : 0L;
+        setupRound();
+        return start;
+    }
+
+    /**
+     * Plays the rest of a round after the deal.
+     * @param start The start of the deal, if the round is timed.
+     */
+    private void playDealtRound(long start) {
+        long t = timing ? sampler.record(Phase.DEAL_ROUND, start) : 0L;
         bid();
+        if (timing) {
+            t = sampler.record(Phase.BID, t);
+        }
         discard();
+        if (timing) {
+            t = sampler.record(Phase.DISCARD, t);
+        }
         redealRound();
+        if (timing) {
+            t = sampler.record(Phase.REDEAL_ROUND, t);
+        }
         bury();
+        if (timing) {
+            t = sampler.record(Phase.BURY, t);
+        }
 
         for (int i = 0; i < 6; i++) {
-            println("Hand " + (i + 1));
             playHand();
-            println();
+            if (timing) {
+                t = sampler.record(Phase.PLAY_HAND, t);
+            }
         }
 
         finishRound();
+        if (timing) {
+            sampler.record(Phase.FINISH_ROUND, t);
+            timing = false;
+        }
+    }
+
+    /**
+     * Sets the sampler that counts the rounds and times the phases of
+     * some of them.  Each game needs a sampler of its own thread.
+     * @param sampler The sampler, or null for no metrics.
+     */
+    public void setRoundSampler(RoundSampler sampler) {
+        this.sampler = sampler;
     }
 
     /**
@@ -132,60 +325,158 @@ public void setupRound() {
         for (int i = 0; i < roundScore.length; i++) {
             roundScore[i] = 0;
         }
+        playedMask = 0L;
+        for (Player p : players) {
+            p.buriedMask = 0L;
+        }
+        capturedKeys[0] = 0;
+        capturedKeys[1] = 0;
     }
 
     /**
      * Finishes the round by tallying the scores.
      */
     public void finishRound() {
-        println("Round Score: " + roundScore[0] + ", " + roundScore[1]);
-
         int biddingTeam = bidder.getId().getTeam();
         int otherTeam = (biddingTeam + 1) % 2;
+        boolean made = roundScore[biddingTeam] >= highBid;
 
-        if (roundScore[biddingTeam] >= highBid) {
-            println("Made the bid!");
+        if (made) {
             gameScore[0] += roundScore[0];
             gameScore[1] += roundScore[1];
         } else {
-            println("Went set!");
             gameScore[biddingTeam] -= highBid;
             gameScore[otherTeam] += roundScore[otherTeam];
         }
 
-        println("Game Score: " + gameScore[0] + ", " + gameScore[1]);
-        println();
+        for (GameListener l : listeners) {
+            l.onRoundEnd(this, made);
+        }
     }
 
     /**
      * Deals the round.
      */
     public void dealRound() {
-        cards.moveAll(DECK);
-        cards.shuffle(DECK);
+        cards.moveAll(deckSlot);
+        cards.shuffle(deckSlot);
+
+        for (Player p : players) {
+            cards.move(deckSlot, p.slot, 9);
+            p.setOut(false);
+        }
+        updateKeys();
+
+        for (GameListener l : listeners) {
+            l.onDeal(this);
+        }
+    }
+
+    /**
+     * Deals the round with a known hand for one player.
+     * The other players are dealt from the shuffled remainder.
+     * @param seat The player who receives the hand.
+     * @param hand The mask of the nine cards dealt to the player.
+     */
+    public void dealRound(PlayerId seat, long hand) {
+        Validate.isTrue(Long.bitCount(hand) == 9, "Hand must have nine cards");
+        cards.moveAll(deckSlot);
+        cards.moveMask(hand, deckSlot, players[seat.getIndex()].slot);
+        cards.shuffle(deckSlot);
+
+        for (Player p : players) {
+            if (!p.getId().equals(seat)) {
+                cards.move(deckSlot, p.slot, 9);
+            }
+            p.setOut(false);
+        }
+        updateKeys();
+
+        for (GameListener l : listeners) {
+            l.onDeal(this);
+        }
+    }
+
+    /**
+     * Deals the round in a known order.
+     * The first 36 cards go to the players in seat order, nine each,
+     * and the rest stay in the deck in order for the redeal.
+     * @param deal The indexes of all the cards in deal order.
+     */
+    public void dealRound(int[] deal) {
+        Validate.isTrue(deal.length == CardGame.DECK_SIZE, "Deal must have every card");
+        cards.moveAll(deckSlot);
+        cards.arrange(deckSlot, deal);
 
         for (Player p : players) {
-            cards.move(DECK, p.getId(), 9);
+            cards.move(deckSlot, p.slot, 9);
             p.setOut(false);
         }
+        updateKeys();
+
+        for (GameListener l : listeners) {
+            l.onDeal(this);
+        }
+    }
+
+    /**
+     * Fixes the contract for the following rounds.
+     * The auction is skipped, and the given player is the bidder with
+     * the given bid and trump suit.  Used to collect statistics
+     * conditioned on the bidder.
+     * @param bidderId The bidder.
+     * @param bid The bid.
+     * @param trump The trump suit.
+     */
+    public void setContract(PlayerId bidderId, int bid, Suit trump) {
+        Validate.notNull(bidderId);
+        Validate.notNull(trump);
+        this.contractBidder = players[bidderId.getIndex()];
+        this.contractBid = bid;
+        this.contractTrump = trump;
+    }
+
+    /**
+     * Clears a fixed contract, so that following rounds hold an auction.
+     */
+    public void clearContract() {
+        this.contractBidder = null;
     }
 
     /**
      * Auctions the bid.
      */
     public void bid() {
+        if (contractBidder != null) {
+            highBid = contractBid;
+            bidder = contractBidder;
+            setTrump(contractTrump);
+            lead = bidder;
+            nextBidIndex++;
+            for (GameListener l : listeners) {
+                l.onTrump(this, bidder, trump);
+            }
+            return;
+        }
+
         highBid = 3;
 
         for (int i = 0; i < 4; i++) {
             int playerIndex = (nextBidIndex + i) % 4;
             Player player = players[playerIndex];
+            final long decisionStart = timing ? System.nanoTime() : 0L;
             int playerBid = player.getStrategy().getBid(player);
+            if (timing) {
+                sampler.record(Phase.DECISION, decisionStart);
+            }
             if (playerBid > highBid) {
-                println(player + " bids " + playerBid);
                 highBid = playerBid;
                 bidder = player;
             } else {
-                println(player + " passes");
+                playerBid = 0;
+            }
+            for (GameListener l : listeners) {
+                l.onBid(this, player, playerBid);
             }
         }
 
@@ -196,13 +487,17 @@ public void bid() {
             highBid = 4;
         }
 
-        trump = bidder.getStrategy().getSuit(bidder);
+        final long decisionStart = timing ? System.nanoTime() : 0L;
+        setTrump(bidder.getStrategy().getSuit(bidder));
+        if (timing) {
+            sampler.record(Phase.DECISION, decisionStart);
+        }
         lead = bidder;
         nextBidIndex++;
 
-        println("High bid: " + highBid);
-        println("Bidder: " + bidder);
-        println("Suit: " + trump);
+        for (GameListener l : listeners) {
+            l.onTrump(this, bidder, trump);
+        }
     }
 
     /**
@@ -214,9 +509,12 @@ public void discard() {
         }
 
         // Track what the bidding hand was
-        cards.sort(bidder.getId(), cardComparator);
-        bidToken = bidder.getHandString();
-        println("Bid hand: " + bidToken);
+        cards.sort(bidder.slot, cardComparator);
+        bidKey = table.getHandKey(cards.getMask(bidder.slot));
+
+        for (GameListener l : listeners) {
+            l.onDiscard(this, bidder);
+        }
     }
 
     /**
@@ -224,12 +522,7 @@ public void discard() {
      * @param p The player.
      */
     public void discardPlayer(Player p) {
-        List<Card> hand = cards.get(p.getId());
-        for (Card card : hand) {
-            if (!isTrump(card)) {
-                cards.move(card, p.getId(), DISCARD);
-            }
-        }
+        cards.moveMask(~table.getTrumpMask(), p.slot, discardSlot);
     }
 
     /**
@@ -241,10 +534,14 @@ public void redealRound() {
         }
 
         // Remainder goes to the bidder
-        cards.moveAll(DECK, bidder.getId());
+        cards.moveAll(deckSlot, bidder.slot);
         discardPlayer(bidder);
-        cards.sort(bidder.getId(), cardComparator);
-        println("Play hand: " + bidder.getHandString());
+        updateKey(bidder);
+        cards.sort(bidder.slot, cardComparator);
+
+        for (GameListener l : listeners) {
+            l.onRedeal(this, bidder);
+        }
     }
 
     /**
@@ -252,12 +549,13 @@ public void redealRound() {
      * @param p The player.
      */
     public void redealPlayer(Player p) {
-        final int count = cards.get(p.getId()).size();
+        final int count = cards.size(p.slot);
         final int need = 6 - count;
         if (need > 0) {
-            final int moveCount = Math.min(need, cards.get(DECK).size());
-            cards.move(DECK, p.getId(), moveCount);
+            final int moveCount = Math.min(need, cards.size(deckSlot));
+            cards.move(deckSlot, p.slot, moveCount);
             discardPlayer(p);
+            updateKey(p);
         }
     }
 
@@ -275,59 +573,88 @@ public void bury() {
      * @param p The player.
      */
     public void buryPlayer(Player p) {
-        while (p.getHand().size() > 6) {
+        while (cards.size(p.slot) > 6) {
             Card c = p.getMyLowestCard(false, true, false);
             if (c == null) {
                 c = p.getMyLowestCard(true, true, false);
             }
-            println(p + " buries " + c);
-            cards.move(c, p.getId(), DISCARD);
+            cards.move(c, p.slot, discardSlot);
+            p.buriedMask |= c.bit();
+            handKeys[p.getId().getIndex()] &= ~table.getHandKey(c.bit());
+            for (GameListener l : listeners) {
+                l.onBury(this, p, c);
+            }
         }
     }
 
     /**
      * Plays a single hand.
+     *
+     * The high card is tracked as the cards are played, and the played
+     * card records are reused from hand to hand, so a hand allocates
+     * nothing unless a listener does.
      */
     public void playHand() {
         // Clear the table
-        cards.moveAll(CENTER, DISCARD);
+        cards.moveAll(centerSlot, discardSlot);
+        centerKey = 0;
         played.clear();
+        highCard = null;
+        int highValue = 0;
 
         for (int i = 0; i < 4; i++) {
             Player p = players[(lead.getId().getIndex() + i) % 4];
-            cards.sort(p.getId(), cardComparator);
+            cards.sort(p.slot, cardComparator);
             if (p.hasTrump()) {
-                print(p + " plays ");
+                final long decisionStart = timing ? System.nanoTime() : 0L;
                 Card card = p.getStrategy().playCard(p);
-                cards.move(card, p.getId(), CENTER);
-                played.add(new PlayedCard(p.getId(), card));
-                println(card);
+                if (timing) {
+                    sampler.record(Phase.DECISION, decisionStart);
+                }
+                cards.move(card, p.slot, centerSlot);
+                final int keyBit = table.getHandKey(card.bit());
+                handKeys[p.getId().getIndex()] &= ~keyBit;
+                centerKey |= keyBit;
+                PlayedCard playedCard = playedCards[played.size()];
+                playedCard.set(p.getId(), card);
+                played.add(playedCard);
+                playedMask |= card.bit();
+                if (getSortValue(card) > highValue) {
+                    highValue = getSortValue(card);
+                    highCard = playedCard;
+                }
+                for (GameListener l : listeners) {
+                    l.onPlay(this, p, card);
+                }
             } else {
                 p.setOut(true);
-                println(p + " is out");
+                for (GameListener l : listeners) {
+                    l.onOut(this, p);
+                }
             }
         }
 
-        if (!played.isEmpty()) {
-            cards.sort(CENTER, cardComparator);
-            Collections.sort(played, playedCardComparator);
-
-            PlayedCard highCard = played.get(0);
-            println("High card = " + highCard);
-
+        if (highCard != null) {
             int highCardTeam = highCard.getPlayerId().getTeam();
-            int[] scoreDelta = new int[2];
-            for (PlayedCard c : played) {
-                int cardTeam = c.getPlayerId().getTeam();
-                int team = c.getCard().rank() == Rank.DEUCE ? cardTeam : highCardTeam;
-                scoreDelta[team] += getPointValue(c.getCard());
+            int delta0 = 0;
+            int delta1 = 0;
+            for (int i = 0, n = played.size(); i < n; i++) {
+                PlayedCard c = played.get(i);
+                int team = c.getCard().rank() == Rank.DEUCE ? c.getPlayerId().getTeam() : highCardTeam;
+                capturedKeys[team] |= table.getHandKey(c.getCard().bit());
+                if (team == 0) {
+                    delta0 += getPointValue(c.getCard());
+                } else {
+                    delta1 += getPointValue(c.getCard());
+                }
             }
-            println("Round score delta: " + scoreDelta[0] + ", " + scoreDelta[1]);
-            roundScore[0] += scoreDelta[0];
-            roundScore[1] += scoreDelta[1];
-            println("Round score: " + roundScore[0] + ", " + roundScore[1]);
+            roundScore[0] += delta0;
+            roundScore[1] += delta1;
 
             lead = players[highCard.getPlayerId().getIndex()];
+            for (GameListener l : listeners) {
+                l.onTrickWon(this, highCard, delta0, delta1);
+            }
         }
     }
 
@@ -347,13 +674,107 @@ public static Suit getLeftJackSuit(Suit s) {
         }
     }
 
+    /**
+     * Sets the trump suit and selects the matching trump table.
+     * @param s The trump suit.
+     */
+    private void setTrump(Suit s) {
+        trump = s;
+        table = TrumpTable.get(s);
+        updateKeys();
+    }
+
+    /**
+     * Recomputes the trump held by every player and in the center.
+     */
+    private void updateKeys() {
+        for (Player p : players) {
+            updateKey(p);
+        }
+        centerKey = table.getHandKey(cards.getMask(centerSlot));
+    }
+
+    /**
+     * Recomputes the trump held by one player, after cards other than
+     * a played card have moved.
+     * @param p The player.
+     */
+    private void updateKey(Player p) {
+        handKeys[p.getId().getIndex()] = table.getHandKey(cards.getMask(p.slot));
+    }
+
+    /**
+     * Returns the trump that the players still hold.
+     * @return The hand key of the unplayed trump.
+     * @see HandKey
+     */
+    public int getUnplayedTrumpKey() {
+        return handKeys[0] | handKeys[1] | handKeys[2] | handKeys[3];
+    }
+
+    /**
+     * Returns the highest trump that a player still holds.
+     * @return The card, or null if every trump is played.
+     */
+    public Card getHighestUnplayedTrump() {
+        final int key = getUnplayedTrumpKey();
+        return key == 0 ? null : Card.get(Long.numberOfTrailingZeros(table.getCards(Integer.highestOneBit(key))));
+    }
+
+    /**
+     * Returns the trump that a team has taken this round.
+     * The deuce is taken by the team that plays it.
+     * @param team The team.
+     * @return The hand key of the captured trump.
+     */
+    public int getCapturedKey(int team) {
+        return capturedKeys[team];
+    }
+
+    /**
+     * Returns the point cards that no team has taken yet, in the hands
+     * or in the hand in progress.
+     * @return The hand key of the outstanding point cards.
+     */
+    public int getOutstandingPointsKey() {
+        return (getUnplayedTrumpKey() | centerKey) & ~(capturedKeys[0] | capturedKeys[1]) & HandKey.POINT_CARDS;
+    }
+
+    /**
+     * Returns true if a player holds no trump.
+     * @param id The player id.
+     * @return True if the player is out of trump.
+     */
+    public boolean isVoid(PlayerId id) {
+        return handKeys[id.getIndex()] == 0;
+    }
+
+    /**
+     * Returns true if no card held or in the center ranks above a card.
+     * @param c The card.
+     * @return True if the card is the high card.
+     */
+    public boolean isHighCard(Card c) {
+        final int live = getUnplayedTrumpKey() | centerKey;
+        final int value = table.getSortValue(c);
+        return value == 0 ? live == 0 : (live & -(HandKey.bit(value) << 1)) == 0;
+    }
+
+    /**
+     * Returns the bit mask of all trump cards.
+     * @return The trump card mask.
+     */
+    public long getTrumpMask() {
+        return table.getTrumpMask();
+    }
+
     /**
      * Returns true if a card is a trump card.
      * @param c The card.
      * @return True if trump; false otherwise.
      */
     public boolean isTrump(Card c) {
-        return c.suit() == trump || c.suit() == Suit.JOKER || isLeftJack(c);
+        return table.isTrump(c);
     }
 
     /**
@@ -362,7 +783,7 @@ public boolean isTrump(Card c) {
      * @return True if the left jack; false otherwise.
      */
     public boolean isLeftJack(Card c) {
-        return c.rank() == Rank.JACK && c.suit() == getLeftJackSuit(trump);
+        return table.isLeftJack(c);
     }
 
     /**
@@ -371,23 +792,7 @@ public boolean isLeftJack(Card c) {
      * @return The sort value.
      */
     public int getSortValue(Card c) {
-        if (!isTrump(c)) {
-            return 0;
-        }
-
-        if (c.rank().getValue() <= Rank.TEN.getValue()) {
-            return c.rank().getValue();
-        }
-
-        if (c.suit() == Suit.JOKER) {
-            return c.rank() == Rank.LOW ? 11 : 12;
-        }
-
-        if (isLeftJack(c)) {
-            return 13;
-        }
-
-        return 14 + (c.rank().getValue() - Rank.JACK.getValue());
+        return table.getSortValue(c);
     }
 
     /**
@@ -396,18 +801,7 @@ public int getSortValue(Card c) {
      * @return The point value.
      */
     public int getPointValue(Card c) {
-        if (!isTrump(c)) {
-            return 0;
-        }
-
-        switch (c.rank()) {
-        case THREE:
-            return 3;
-        case ACE: case JACK: case HIGH: case LOW: case TEN: case DEUCE:
-            return 1;
-        default:
-            return 0;
-        }
+        return table.getPointValue(c);
     }
 
     /**
@@ -416,36 +810,48 @@ public int getPointValue(Card c) {
      * @return The short name.
      */
     public String getShortName(Card c) {
-        switch (c.rank()) {
-        case ACE: return "A";
-        case KING: return "K";
-        case QUEEN: return "Q";
-        case JACK: return isLeftJack(c) ? "LJ" : "J";
-        case HIGH: return "JH";
-        case LOW: return "JL";
-        default: return Integer.toString(c.rank().getValue());
-        }
+        return table.getShortName(c);
     }
 
-    public void setLoggingEnabled(boolean loggingEnabled) {
-        this.loggingEnabled = loggingEnabled;
-    }
-
-    private void print(Object msg) {
-        if (loggingEnabled) {
-            System.out.print(msg);
-        }
+    /**
+     * Adds a listener for the game events.
+     * @param listener The listener.
+     */
+    public void addListener(GameListener listener) {
+        Validate.notNull(listener);
+        final GameListener[] result = Arrays.copyOf(listeners, listeners.length + 1);
+        result[listeners.length] = listener;
+        listeners = result;
     }
 
-    private void println(Object msg) {
-        if (loggingEnabled) {
-            System.out.println(msg);
+    /**
+     * Removes a listener added with {@link #addListener(GameListener)}.
+     * @param listener The listener.
+     */
+    public void removeListener(GameListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                final GameListener[] result = new GameListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, result, 0, i);
+                System.arraycopy(listeners, i + 1, result, i, result.length - i);
+                listeners = result.length == 0 ? NO_LISTENERS : result;
+                return;
+            }
         }
     }
 
-    private void println() {
-        if (loggingEnabled) {
-            System.out.println();
+    /**
+     * Turns the console log on or off.
+     * The log is a {@link ConsoleGameListener} on standard output.
+     * @param loggingEnabled True to print the game to the console.
+     */
+    public void setLoggingEnabled(boolean loggingEnabled) {
+        if (loggingEnabled && consoleListener == null) {
+            consoleListener = new ConsoleGameListener(System.out);
+            addListener(consoleListener);
+        } else if (!loggingEnabled && consoleListener != null) {
+            removeListener(consoleListener);
+            consoleListener = null;
         }
     }
 
@@ -498,15 +904,18 @@ public String toString() {
      */
     public final class Player {
         private final PlayerId id;
+        private final int slot;
         private final PlayerId partnerId;
         private final PlayerStrategy strategy;
         private boolean out;
+        private long buriedMask;
 
         private Player(
                 final PlayerId id,
                 final PlayerId partnerId,
                 final PlayerStrategy strategy) {
             this.id = id;
+            this.slot = cards.getSlot(id);
             this.partnerId = partnerId;
             this.strategy = strategy;
         }
@@ -523,12 +932,60 @@ public PlayerStrategy getStrategy() {
             return strategy;
         }
 
+        /**
+         * Returns a live read-only view of the player's hand.
+         * @return The hand view.
+         */
         public List<Card> getHand() {
-            return cards.get(id);
+            return cards.view(slot);
         }
 
+        /**
+         * Returns the player's hand as a card mask.
+         * @return The card mask.
+         */
+        public long getHandMask() {
+            return cards.getMask(slot);
+        }
+
+        /**
+         * Returns the number of cards another player holds.
+         * @param playerId The player id.
+         * @return The number of cards.
+         */
+        public int getHandSize(PlayerId playerId) {
+            return cards.size(players[playerId.getIndex()].slot);
+        }
+
+        /**
+         * Returns the cards played to any hand of this round,
+         * including the current hand.
+         * @return The card mask.
+         */
+        public long getPlayedMask() {
+            return playedMask;
+        }
+
+        /**
+         * Returns the cards this player buried this round.
+         * Only the player knows them, so they are not part of the played cards.
+         * @return The card mask.
+         */
+        public long getBuriedMask() {
+            return buriedMask;
+        }
+
+        public Suit getTrump() {
+            return trump;
+        }
+
+        /**
+         * Returns the cards played to the current hand in play order.
+         * The records are reused by the next hand, so copy them to keep them.
+         * @return The played cards.
+         */
         public List<PlayedCard> getPlayedCards() {
-            return Collections.unmodifiableList(played);
+            return playedView;
         }
 
         public boolean isLead() {
@@ -560,34 +1017,21 @@ public int getPointValue(Card c) {
         }
 
         public boolean hasTrump() {
-            for (Card c : getHand()) {
-                if (isTrump(c)) {
-                    return true;
-                }
-            }
-            return false;
+            return (cards.getMask(slot) & table.getTrumpMask()) != 0;
         }
 
         public boolean hasCard(Card card) {
-            for (Card c : getHand()) {
-                if (c.equals(card)) {
-                    return true;
-                }
-            }
-            return false;
+            return cards.contains(slot, card);
         }
 
         public boolean hasCard(Rank rank) {
-            for (Card c : getHand()) {
-                if (c.rank() == rank) {
-                    return true;
-                }
-            }
-            return false;
+            return getCard(rank) != null;
         }
 
         public Card getCard(Rank rank) {
-            for (Card c : getHand()) {
+            final List<Card> hand = getHand();
+            for (int i = 0, n = hand.size(); i < n; i++) {
+                final Card c = hand.get(i);
                 if (c.rank() == rank) {
                     return c;
                 }
@@ -595,22 +1039,41 @@ public Card getCard(Rank rank) {
             return null;
         }
 
+        /**
+         * Returns true if no card held or in the center ranks above a card.
+         * The unplayed trump are tracked as cards move, so this is a few
+         * bit operations.
+         * @param card The card.
+         * @return True if the card is the high card.
+         */
         public boolean isHighCard(Card card) {
-            for (Player player : players) {
-                if (!isHighCard(card, player.getHand())) {
-                    return false;
-                }
-            }
-            if (!isHighCard(card, cards.get(CENTER))) {
-                return false;
-            }
-            return true;
+            return PitchGame.this.isHighCard(card);
+        }
+
+        public int getUnplayedTrumpKey() {
+            return PitchGame.this.getUnplayedTrumpKey();
+        }
+
+        public Card getHighestUnplayedTrump() {
+            return PitchGame.this.getHighestUnplayedTrump();
+        }
+
+        public int getCapturedKey(int team) {
+            return PitchGame.this.getCapturedKey(team);
+        }
+
+        public int getOutstandingPointsKey() {
+            return PitchGame.this.getOutstandingPointsKey();
+        }
+
+        public boolean isVoid(PlayerId playerId) {
+            return PitchGame.this.isVoid(playerId);
         }
 
         public boolean isHighCard(Card card, List<Card> cards) {
             final int threshold = getSortValue(card);
-            for (Card c : cards) {
-                if (getSortValue(c) > threshold) {
+            for (int i = 0, n = cards.size(); i < n; i++) {
+                if (getSortValue(cards.get(i)) > threshold) {
                     return false;
                 }
             }
@@ -618,10 +1081,12 @@ public boolean isHighCard(Card card, List<Card> cards) {
         }
 
         public Card getMyHighestCard(boolean includePoints, boolean includeNonPoints, boolean includeThree) {
+            final List<Card> hand = getHand();
             Card bestCard = null;
             int bestValue = 0;
 
-            for (Card c : getHand()) {
+            for (int i = 0, n = hand.size(); i < n; i++) {
+                final Card c = hand.get(i);
                 if (!matches(c, includePoints, includeNonPoints, includeThree)) {
                     continue;
                 }
@@ -636,10 +1101,12 @@ public Card getMyHighestCard(boolean includePoints, boolean includeNonPoints, bo
         }
 
         public Card getMyLowestCard(boolean includePoints, boolean includeNonPoints, boolean includeThree) {
+            final List<Card> hand = getHand();
             Card bestCard = null;
             int bestValue = Integer.MAX_VALUE;
 
-            for (Card c : getHand()) {
+            for (int i = 0, n = hand.size(); i < n; i++) {
+                final Card c = hand.get(i);
                 if (!matches(c, includePoints, includeNonPoints, includeThree)) {
                     continue;
                 }
@@ -674,23 +1141,14 @@ private boolean matches(Card c, boolean includePoints, boolean includeNonPoints,
         }
 
         public PlayedCard getHighestPlayedCard() {
-            PlayedCard bestCard = null;
-            int bestRank = 0;
-
-            for (PlayedCard card : played) {
-                if (getSortValue(card.getCard()) > bestRank) {
-                    bestCard = card;
-                    bestRank = getSortValue(card.getCard());
-                }
-            }
-
-            return bestCard;
+            return highCard;
         }
 
         public String getHandString() {
+            final List<Card> hand = getHand();
             StringBuilder b = new StringBuilder();
-            for (Card c : getHand()) {
-                b.append(getShortName(c));
+            for (int i = 0, n = hand.size(); i < n; i++) {
+                b.append(getShortName(hand.get(i)));
                 b.append(" ");
             }
             return b.toString().trim();
@@ -709,10 +1167,14 @@ public String toString() {
     }
 
     public static class PlayedCard {
-        private final PlayerId playerId;
-        private final Card card;
+        private PlayerId playerId;
+        private Card card;
 
         public PlayedCard(PlayerId playerId, Card card) {
+            set(playerId, card);
+        }
+
+        private void set(PlayerId playerId, Card card) {
             this.playerId = playerId;
             this.card = card;
         }
@@ -736,4 +1198,90 @@ public static interface PlayerStrategy {
         public Suit getSuit(Player p);
         public Card playCard(Player p);
     }
+
+    /**
+     * The GameListener interface receives the events of a game.
+     *
+     * The game holds its listeners in an array and calls them in the
+     * order they were added.  The arguments are the game's own objects,
+     * so an event costs nothing when there are no listeners, and the
+     * played card records are only valid during the call.
+     */
+    public static interface GameListener {
+        /**
+         * Called after the nine cards are dealt to every player.
+         * @param game The game.
+         */
+        public void onDeal(PitchGame game);
+
+        /**
+         * Called after a player bids in the auction.
+         * @param game The game.
+         * @param player The player.
+         * @param bid The new high bid, or 0 if the player passed.
+         */
+        public void onBid(PitchGame game, Player player, int bid);
+
+        /**
+         * Called when the bidder names trump.
+         * @param game The game.
+         * @param bidder The bidder.
+         * @param trump The trump suit.
+         */
+        public void onTrump(PitchGame game, Player bidder, Suit trump);
+
+        /**
+         * Called after every player discards the non-trump, when the
+         * bidder holds the trump it bid with.
+         * @param game The game.
+         * @param bidder The bidder.
+         */
+        public void onDiscard(PitchGame game, Player bidder);
+
+        /**
+         * Called after the redeal, when the bidder holds the rest of the deck.
+         * @param game The game.
+         * @param bidder The bidder.
+         */
+        public void onRedeal(PitchGame game, Player bidder);
+
+        /**
+         * Called after a player buries a card.
+         * @param game The game.
+         * @param player The player.
+         * @param card The buried card.
+         */
+        public void onBury(PitchGame game, Player player, Card card);
+
+        /**
+         * Called after a player plays a card to the hand.
+         * @param game The game.
+         * @param player The player.
+         * @param card The played card.
+         */
+        public void onPlay(PitchGame game, Player player, Card card);
+
+        /**
+         * Called when a player without trump sits out the hand.
+         * @param game The game.
+         * @param player The player.
+         */
+        public void onOut(PitchGame game, Player player);
+
+        /**
+         * Called after a hand is scored.
+         * @param game The game.
+         * @param highCard The card that took the hand.
+         * @param team0Points The points team 0 took in the hand.
+         * @param team1Points The points team 1 took in the hand.
+         */
+        public void onTrickWon(PitchGame game, PlayedCard highCard, int team0Points, int team1Points);
+
+        /**
+         * Called after the round is added to the game score.
+         * @param game The game.
+         * @param made True if the bidding team made the bid.
+         */
+        public void onRoundEnd(PitchGame game, boolean made);
+    }
 }
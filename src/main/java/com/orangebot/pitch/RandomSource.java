@@ -0,0 +1,32 @@
+package com.orangebot.pitch;
+
+/**
+ * The RandomSource interface is the source of randomness for games
+ * and strategies.
+ *
+ * Implementations are not required to be thread safe.  Each thread
+ * should own its own instance.
+ */
+public interface RandomSource {
+
+    /**
+     * Returns a uniformly distributed value between 0 (inclusive)
+     * and the bound (exclusive).
+     * @param bound The upper bound; must be positive.
+     * @return The random value.
+     */
+    public int nextInt(int bound);
+
+    /**
+     * Returns a uniformly distributed 64-bit value.
+     * @return The random value.
+     */
+    public long nextLong();
+
+    /**
+     * Returns a uniformly distributed value between 0.0 (inclusive)
+     * and 1.0 (exclusive).
+     * @return The random value.
+     */
+    public double nextDouble();
+}
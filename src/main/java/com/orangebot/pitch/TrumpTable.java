@@ -0,0 +1,244 @@
+package com.orangebot.pitch;
+
+import org.apache.commons.lang3.Validate;
+
+import com.orangebot.pitch.CardGame.Card;
+import com.orangebot.pitch.CardGame.Rank;
+import com.orangebot.pitch.CardGame.Suit;
+
+/**
+ * The TrumpTable class holds the precomputed card values for one trump suit.
+ *
+ * One table is built per suit when the class is loaded.  Every value is
+ * indexed by the card index, so ranking and scoring a card is a single
+ * array load.
+ */
+public final class TrumpTable {
+    private static final TrumpTable[] TABLES = buildTables();
+
+    private final Suit trump;
+    private final boolean[] trumpFlags;
+    private final boolean[] leftJackFlags;
+    private final int[] sortValues;
+    private final int[] pointValues;
+    private final String[] shortNames;
+    private final long trumpMask;
+    private final long[] keyCards;
+
+    /**
+     * Creates a new trump table.
+     * @param trump The trump suit.
+     * @param deck The cards in index order.
+     */
+    private TrumpTable(final Suit trump, final Card[] deck) {
+        this.trump = trump;
+        this.trumpFlags = new boolean[deck.length];
+        this.leftJackFlags = new boolean[deck.length];
+        this.sortValues = new int[deck.length];
+        this.pointValues = new int[deck.length];
+        this.shortNames = new String[deck.length];
+
+        long mask = 0L;
+        for (Card c : deck) {
+            final int i = c.index();
+            leftJackFlags[i] = c.rank() == Rank.JACK && c.suit() == PitchGame.getLeftJackSuit(trump);
+            trumpFlags[i] = c.suit() == trump || c.suit() == Suit.JOKER || leftJackFlags[i];
+            sortValues[i] = calculateSortValue(c, trumpFlags[i], leftJackFlags[i]);
+            pointValues[i] = calculatePointValue(c, trumpFlags[i]);
+            shortNames[i] = calculateShortName(c, leftJackFlags[i]);
+            if (trumpFlags[i]) {
+                mask |= c.bit();
+            }
+        }
+        this.trumpMask = mask;
+
+        this.keyCards = new long[HandKey.TRUMP_COUNT];
+        for (long m = mask; m != 0; m &= m - 1) {
+            final int i = Long.numberOfTrailingZeros(m);
+            keyCards[Integer.numberOfTrailingZeros(HandKey.bit(sortValues[i]))] = 1L << i;
+        }
+    }
+
+    /**
+     * Returns the table for a trump suit.
+     * @param trump The trump suit.
+     * @return The trump table.
+     */
+    public static TrumpTable get(final Suit trump) {
+        Validate.notNull(trump);
+        return TABLES[trump.ordinal()];
+    }
+
+    /**
+     * Returns the trump suit of this table.
+     * @return The trump suit.
+     */
+    public Suit getTrump() {
+        return trump;
+    }
+
+    /**
+     * Returns the bit mask of all trump cards.
+     * @return The trump card mask.
+     */
+    public long getTrumpMask() {
+        return trumpMask;
+    }
+
+    /**
+     * Returns true if a card is a trump card.
+     * @param c The card.
+     * @return True if trump; false otherwise.
+     */
+    public boolean isTrump(final Card c) {
+        return trumpFlags[c.index()];
+    }
+
+    /**
+     * Returns true if a card is the left jack.
+     * @param c The card.
+     * @return True if the left jack; false otherwise.
+     */
+    public boolean isLeftJack(final Card c) {
+        return leftJackFlags[c.index()];
+    }
+
+    /**
+     * Returns the sort value of a card.
+     * @param c The card.
+     * @return The sort value.
+     */
+    public int getSortValue(final Card c) {
+        return sortValues[c.index()];
+    }
+
+    /**
+     * Returns the point value of a card.
+     * @param c The card.
+     * @return The point value.
+     */
+    public int getPointValue(final Card c) {
+        return pointValues[c.index()];
+    }
+
+    /**
+     * Returns the sort value of a card.
+     * @param index The card index.
+     * @return The sort value.
+     */
+    public int getSortValue(final int index) {
+        return sortValues[index];
+    }
+
+    /**
+     * Returns the point value of a card.
+     * @param index The card index.
+     * @return The point value.
+     */
+    public int getPointValue(final int index) {
+        return pointValues[index];
+    }
+
+    /**
+     * Returns the short (1-2 chars) display name for a trump card.
+     * @param c The card.
+     * @return The short name.
+     */
+    public String getShortName(final Card c) {
+        return shortNames[c.index()];
+    }
+
+    /**
+     * Returns the hand key for the trump cards in a card mask.
+     * Non-trump cards in the mask are ignored.
+     * @param cards The card mask.
+     * @return The hand key.
+     * @see HandKey
+     */
+    public int getHandKey(final long cards) {
+        int key = 0;
+        for (long m = cards & trumpMask; m != 0; m &= m - 1) {
+            key |= HandKey.bit(sortValues[Long.numberOfTrailingZeros(m)]);
+        }
+        return key;
+    }
+
+    /**
+     * Returns the card mask of the trump cards in a hand key.
+     * This is the inverse of {@link #getHandKey(long)}.
+     * @param key The hand key.
+     * @return The card mask.
+     */
+    public long getCards(final int key) {
+        long cards = 0L;
+        for (int m = key; m != 0; m &= m - 1) {
+            cards |= keyCards[Integer.numberOfTrailingZeros(m)];
+        }
+        return cards;
+    }
+
+    /**
+     * Builds the tables for all suits.
+     * @return The tables indexed by suit ordinal.
+     */
+    private static TrumpTable[] buildTables() {
+        final Card[] deck = new Card[CardGame.DECK_SIZE];
+        for (int i = 0; i < deck.length; i++) {
+            deck[i] = Card.get(i);
+        }
+
+        final Suit[] suits = Suit.values();
+        final TrumpTable[] tables = new TrumpTable[suits.length];
+        for (Suit suit : suits) {
+            tables[suit.ordinal()] = new TrumpTable(suit, deck);
+        }
+        return tables;
+    }
+
+    private static int calculateSortValue(final Card c, final boolean isTrump, final boolean isLeftJack) {
+        if (!isTrump) {
+            return 0;
+        }
+
+        if (c.rank().getValue() <= Rank.TEN.getValue()) {
+            return c.rank().getValue();
+        }
+
+        if (c.suit() == Suit.JOKER) {
+            return c.rank() == Rank.LOW ? 11 : 12;
+        }
+
+        if (isLeftJack) {
+            return 13;
+        }
+
+        return 14 + (c.rank().getValue() - Rank.JACK.getValue());
+    }
+
+    private static int calculatePointValue(final Card c, final boolean isTrump) {
+        if (!isTrump) {
+            return 0;
+        }
+
+        switch (c.rank()) {
+        case THREE:
+            return 3;
+        case ACE: case JACK: case HIGH: case LOW: case TEN: case DEUCE:
+            return 1;
+        default:
+            return 0;
+        }
+    }
+
+    private static String calculateShortName(final Card c, final boolean isLeftJack) {
+        switch (c.rank()) {
+        case ACE: return "A";
+        case KING: return "K";
+        case QUEEN: return "Q";
+        case JACK: return isLeftJack ? "LJ" : "J";
+        case HIGH: return "JH";
+        case LOW: return "JL";
+        default: return Integer.toString(c.rank().getValue());
+        }
+    }
+}
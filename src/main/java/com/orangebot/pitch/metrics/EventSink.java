@@ -0,0 +1,16 @@
+package com.orangebot.pitch.metrics;
+
+/**
+ * The EventSink interface receives the sampled durations as events.
+ *
+ * The JFR sink is loaded by name, so this package also runs on JVMs
+ * without Flight Recorder, where there is simply no sink.
+ */
+interface EventSink {
+    /**
+     * Emits the duration of a phase.
+     * @param phase The phase.
+     * @param nanos The duration in nanoseconds.
+     */
+    void phase(Phase phase, long nanos);
+}
@@ -0,0 +1,43 @@
+package com.orangebot.pitch.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The JfrEventSink class emits the sampled durations as Flight Recorder
+ * events named {@code com.orangebot.pitch.Phase}.
+ *
+ * This is the only class that refers to the {@code jdk.jfr} API, and it
+ * is only loaded through {@link SimulationMetrics}.
+ */
+final class JfrEventSink implements EventSink {
+
+    @Override
+    public void phase(Phase phase, long nanos) {
+        final PhaseEvent event = new PhaseEvent();
+        if (event.isEnabled()) {
+            event.phase = phase.getName();
+            event.elapsed = nanos;
+            event.commit();
+        }
+    }
+
+    @Name("com.orangebot.pitch.Phase")
+    @Label("Pitch Phase")
+    @Category("Pitch")
+    @Description("The duration of a sampled simulation phase")
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+}
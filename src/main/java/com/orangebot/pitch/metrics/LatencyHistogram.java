@@ -0,0 +1,130 @@
+package com.orangebot.pitch.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The LatencyHistogram class counts durations in logarithmic buckets.
+ *
+ * Each power of two is split into four buckets, so a percentile is
+ * within 25% of the true value.  Recording is lock free and does not
+ * allocate, and any thread may record or read at any time.
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+    private static final int SUB_BITS = 2;
+    private static final int BUCKETS = 64 << SUB_BITS;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong count;
+    private final AtomicLong total;
+    private final AtomicLong max;
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.total = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Records a duration.
+     * @param nanos The duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        final long value = Math.max(0L, nanos);
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // Retry until the maximum is at least the value
+        }
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        final long n = count.get();
+        return n == 0 ? 0.0 : total.get() / 1000.0 / n;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return max.get() / 1000.0;
+    }
+
+    @Override
+    public double getMedianMicros() {
+        return getPercentileMicros(50.0);
+    }
+
+    @Override
+    public double getPercentile90Micros() {
+        return getPercentileMicros(90.0);
+    }
+
+    @Override
+    public double getPercentile99Micros() {
+        return getPercentileMicros(99.0);
+    }
+
+    /**
+     * Returns a percentile of the recorded durations.
+     * @param percentile The percentile (0-100).
+     * @return The middle of the bucket holding the percentile, in microseconds.
+     */
+    public double getPercentileMicros(double percentile) {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            n += counts.get(i);
+        }
+        final long rank = (long) Math.ceil(percentile / 100.0 * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank && seen > 0) {
+                return (lowerBound(i) + lowerBound(i + 1)) / 2.0 / 1000.0;
+            }
+        }
+        return 0.0;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0L);
+        }
+        count.set(0L);
+        total.set(0L);
+        max.set(0L);
+    }
+
+    /**
+     * Returns the bucket of a value: the position of its top bit and the
+     * next two bits below it.
+     */
+    private static int bucket(long value) {
+        if (value < (1L << SUB_BITS)) {
+            return (int) value;
+        }
+        final int top = 63 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (top - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+        return ((top - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    /**
+     * Returns the smallest value in a bucket.
+     */
+    private static double lowerBound(int bucket) {
+        if (bucket < (1 << SUB_BITS)) {
+            return bucket;
+        }
+        final int top = (bucket >> SUB_BITS) + SUB_BITS - 1;
+        final int sub = bucket & ((1 << SUB_BITS) - 1);
+        return Math.scalb(1.0 + sub / (double) (1 << SUB_BITS), top);
+    }
+}
@@ -0,0 +1,14 @@
+package com.orangebot.pitch.metrics;
+
+/**
+ * The management interface of a {@link LatencyHistogram}.
+ */
+public interface LatencyHistogramMXBean {
+    public long getCount();
+    public double getMeanMicros();
+    public double getMaxMicros();
+    public double getMedianMicros();
+    public double getPercentile90Micros();
+    public double getPercentile99Micros();
+    public void reset();
+}
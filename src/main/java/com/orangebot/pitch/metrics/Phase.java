@@ -0,0 +1,30 @@
+package com.orangebot.pitch.metrics;
+
+/**
+ * The Phase enum lists the timed parts of a simulation.
+ */
+public enum Phase {
+    DEAL_ROUND("dealRound"),
+    BID("bid"),
+    DISCARD("discard"),
+    REDEAL_ROUND("redealRound"),
+    BURY("bury"),
+    PLAY_HAND("playHand"),
+    FINISH_ROUND("finishRound"),
+    DECISION("decision"),
+    SNAPSHOT_WRITE("snapshotWrite");
+
+    private final String name;
+
+    private Phase(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name used for the MBean and the JFR event.
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+}
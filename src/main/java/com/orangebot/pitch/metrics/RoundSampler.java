@@ -0,0 +1,97 @@
+package com.orangebot.pitch.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The RoundSampler class counts the rounds of one thread and decides
+ * which rounds are timed.
+ *
+ * A sampler is owned by one thread.  Counting a round is a plain store,
+ * and only the timed rounds read the clock.
+ *
+ * @see SimulationMetrics
+ */
+public final class RoundSampler {
+    private final SimulationMetrics metrics;
+    private final String threadName;
+    private final AtomicLong rounds;
+    private final long startNanos;
+    private int countdown;
+    private boolean sampling;
+
+    RoundSampler(SimulationMetrics metrics, String threadName) {
+        this.metrics = metrics;
+        this.threadName = threadName;
+        this.rounds = new AtomicLong();
+        this.startNanos = System.nanoTime();
+        this.countdown = 1;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * Counts a round and decides if it is timed.
+     * @return True if the phases of this round should be timed.
+     */
+    public boolean startRound() {
+        rounds.lazySet(rounds.get() + 1);
+        final int interval = metrics.getSampleInterval();
+        if (--countdown > 0 && countdown < interval) {
+            sampling = false;
+        } else {
+            countdown = interval;
+            sampling = true;
+        }
+        return sampling;
+    }
+
+    /**
+     * Returns true if the current round is timed.
+     * @return True while a timed round is played.
+     */
+    public boolean isSampling() {
+        return sampling;
+    }
+
+    /**
+     * Counts rounds that are played without phases, such as batches.
+     * @param count The number of rounds.
+     */
+    public void addRounds(long count) {
+        rounds.lazySet(rounds.get() + count);
+    }
+
+    /**
+     * Records the time since the start of a phase.
+     * @param phase The phase.
+     * @param start The {@link System#nanoTime()} at the start.
+     * @return The current {@link System#nanoTime()}, the start of the next phase.
+     */
+    public long record(Phase phase, long start) {
+        final long now = System.nanoTime();
+        metrics.record(phase, now - start);
+        return now;
+    }
+
+    public long getRounds() {
+        return rounds.get();
+    }
+
+    /**
+     * Returns the rounds per second since the sampler was created.
+     * @return The rate.
+     */
+    public double getRoundsPerSecond() {
+        final double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds > 0.0 ? rounds.get() / seconds : 0.0;
+    }
+
+    /**
+     * Removes the sampler from the metrics; its rounds stay in the total.
+     */
+    public void close() {
+        metrics.retire(this);
+    }
+}
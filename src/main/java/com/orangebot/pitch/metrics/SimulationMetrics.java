@@ -0,0 +1,197 @@
+package com.orangebot.pitch.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * The SimulationMetrics class collects the throughput and the phase
+ * latencies of the simulation threads.
+ *
+ * Every thread counts its rounds in its own {@link RoundSampler}, and
+ * times the phases of one round in every {@link #getSampleInterval()}
+ * rounds, so the timer calls stay far below 1% of the run time.  The
+ * timings go into one {@link LatencyHistogram} per {@link Phase}, and
+ * into JFR events when Flight Recorder is available.
+ * {@link #register()} exposes the metrics as MBeans under
+ * {@code com.orangebot.pitch}.
+ */
+public class SimulationMetrics implements SimulationMetricsMXBean {
+    public static final String DOMAIN = "com.orangebot.pitch";
+    private static final Phase[] PHASES = Phase.values();
+    private static final SimulationMetrics INSTANCE = new SimulationMetrics();
+
+    private final LatencyHistogram[] histograms;
+    private final Queue<RoundSampler> samplers;
+    private final AtomicLong retiredRounds;
+    private final EventSink sink;
+    private volatile int sampleInterval;
+    private volatile long startNanos;
+    private boolean registered;
+
+    private SimulationMetrics() {
+        this.histograms = new LatencyHistogram[PHASES.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        this.samplers = new ConcurrentLinkedQueue<>();
+        this.retiredRounds = new AtomicLong();
+        this.sink = loadSink();
+        this.sampleInterval = 64;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the metrics shared by all simulations in this JVM.
+     * @return The metrics.
+     */
+    public static SimulationMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a sampler for the calling thread.
+     * Call {@link RoundSampler#close()} when the thread is done.
+     * @return The sampler.
+     */
+    public RoundSampler createSampler() {
+        final RoundSampler sampler = new RoundSampler(this, Thread.currentThread().getName());
+        samplers.add(sampler);
+        return sampler;
+    }
+
+    /**
+     * Removes a sampler, keeping its rounds in the total.
+     * @param sampler The sampler.
+     */
+    void retire(RoundSampler sampler) {
+        if (samplers.remove(sampler)) {
+            retiredRounds.addAndGet(sampler.getRounds());
+        }
+    }
+
+    /**
+     * Returns the histogram of a phase.
+     * @param phase The phase.
+     * @return The histogram.
+     */
+    public LatencyHistogram getHistogram(Phase phase) {
+        return histograms[phase.ordinal()];
+    }
+
+    /**
+     * Records the duration of a phase.
+     * @param phase The phase.
+     * @param nanos The duration in nanoseconds.
+     */
+    public void record(Phase phase, long nanos) {
+        histograms[phase.ordinal()].record(nanos);
+        if (sink != null) {
+            sink.phase(phase, nanos);
+        }
+    }
+
+    /**
+     * Returns true if the phases are also emitted as JFR events.
+     * @return True if Flight Recorder is available.
+     */
+    public boolean isJfrAvailable() {
+        return sink != null;
+    }
+
+    @Override
+    public long getRounds() {
+        long rounds = retiredRounds.get();
+        for (RoundSampler sampler : samplers) {
+            rounds += sampler.getRounds();
+        }
+        return rounds;
+    }
+
+    @Override
+    public double getRoundsPerSecond() {
+        final double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds > 0.0 ? getRounds() / seconds : 0.0;
+    }
+
+    @Override
+    public Map<String, Double> getThreadRoundsPerSecond() {
+        final Map<String, Double> result = new TreeMap<>();
+        for (RoundSampler sampler : samplers) {
+            final Double rate = result.get(sampler.getThreadName());
+            result.put(sampler.getThreadName(), sampler.getRoundsPerSecond() + (rate != null ? rate : 0.0));
+        }
+        return result;
+    }
+
+    @Override
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * Sets the number of rounds per timed round.
+     * @param sampleInterval The interval; 1 times every round.
+     */
+    @Override
+    public void setSampleInterval(int sampleInterval) {
+        Validate.isTrue(sampleInterval > 0, "Sample interval must be positive");
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Clears the histograms and restarts the round count and the overall rate.
+     */
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        retiredRounds.addAndGet(-getRounds());
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Registers the MBeans with the platform MBean server.
+     * Calling it again has no effect.
+     */
+    public synchronized void register() {
+        if (registered) {
+            return;
+        }
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName(DOMAIN + ":type=Simulation"));
+            for (Phase phase : PHASES) {
+                server.registerMBean(getHistogram(phase),
+                        new ObjectName(DOMAIN + ":type=Latency,name=" + phase.getName()));
+            }
+            registered = true;
+        } catch (JMException ex) {
+            throw new IllegalStateException("Could not register the metrics MBeans", ex);
+        }
+    }
+
+    /**
+     * Loads the JFR sink if the Flight Recorder API is present.
+     * @return The sink, or null.
+     */
+    private static EventSink loadSink() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (EventSink) Class.forName(SimulationMetrics.class.getPackage().getName() + ".JfrEventSink")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            return null;
+        }
+    }
+}
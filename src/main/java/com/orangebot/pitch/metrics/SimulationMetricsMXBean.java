@@ -0,0 +1,15 @@
+package com.orangebot.pitch.metrics;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link SimulationMetrics}.
+ */
+public interface SimulationMetricsMXBean {
+    public long getRounds();
+    public double getRoundsPerSecond();
+    public Map<String, Double> getThreadRoundsPerSecond();
+    public int getSampleInterval();
+    public void setSampleInterval(int sampleInterval);
+    public void reset();
+}
@@ -0,0 +1,261 @@
+package com.orangebot.pitch.record;
+
+import java.nio.ByteBuffer;
+
+import org.apache.commons.lang3.Validate;
+
+import com.orangebot.pitch.CardGame;
+import com.orangebot.pitch.CardGame.Suit;
+
+/**
+ * The GameRecord class holds one complete round in a compact binary form.
+ *
+ * A record file starts with a fixed header:
+ * <pre>
+ *   int   magic         "PREC"
+ *   int   version       1
+ * </pre>
+ * followed by the records, one after another:
+ * <pre>
+ *   byte 0       first bidder (bits 0-1), bidder (bits 2-3),
+ *                trump suit (bits 4-5), fixed contract (bit 6)
+ *   byte 1       high bid
+ *   bytes 2-3    bids of P1 to P4, 4 bits each, 0 for a pass
+ *   byte 4       round points of team 0 (bits 0-3) and team 1 (bits 4-7)
+ *   bytes 5-45   the deal, 54 card indexes of 6 bits each
+ *   byte 46      play count n
+ *   n bytes      the plays in order, seat (bits 6-7) and card index (bits 0-5)
+ * </pre>
+ * A round takes at most 71 bytes.  A record is reused from round to
+ * round, so reading and writing records does not allocate.
+ */
+public final class GameRecord {
+    public static final int MAGIC = 0x50524543;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+    public static final int FIXED_SIZE = 47;
+    public static final int MAX_PLAYS = 24;
+    public static final int MAX_SIZE = FIXED_SIZE + MAX_PLAYS;
+
+    private static final Suit[] SUITS = Suit.values();
+
+    private final int[] bids;
+    private final int[] deal;
+    private final byte[] plays;
+    private int firstBidder;
+    private int bidder;
+    private Suit trump;
+    private boolean contract;
+    private int highBid;
+    private int points0;
+    private int points1;
+    private int playCount;
+
+    public GameRecord() {
+        this.bids = new int[4];
+        this.deal = new int[CardGame.DECK_SIZE];
+        this.plays = new byte[MAX_PLAYS];
+        this.trump = Suit.HEARTS;
+    }
+
+    /**
+     * Clears the bids and plays for a new round.
+     */
+    public void clear() {
+        for (int i = 0; i < bids.length; i++) {
+            bids[i] = 0;
+        }
+        playCount = 0;
+        contract = false;
+    }
+
+    public int getFirstBidder() {
+        return firstBidder;
+    }
+
+    public void setFirstBidder(int seat) {
+        this.firstBidder = seat;
+    }
+
+    public int getBidder() {
+        return bidder;
+    }
+
+    public int getHighBid() {
+        return highBid;
+    }
+
+    public Suit getTrump() {
+        return trump;
+    }
+
+    public boolean isContract() {
+        return contract;
+    }
+
+    /**
+     * Sets the result of the auction.
+     * @param bidder The bidder's seat.
+     * @param highBid The high bid.
+     * @param trump The trump suit.
+     * @param contract True if the contract was fixed without an auction.
+     */
+    public void setContract(int bidder, int highBid, Suit trump, boolean contract) {
+        Validate.isTrue(highBid >= 0 && highBid < 16, "Bid out of range");
+        Validate.isTrue(trump != Suit.JOKER, "Jokers are not a trump suit");
+        this.bidder = bidder;
+        this.highBid = highBid;
+        this.trump = trump;
+        this.contract = contract;
+    }
+
+    /**
+     * Returns the bid of a seat in the auction.
+     * @param seat The seat index.
+     * @return The bid, or 0 for a pass.
+     */
+    public int getBid(int seat) {
+        return bids[seat];
+    }
+
+    public void setBid(int seat, int bid) {
+        Validate.isTrue(bid >= 0 && bid < 16, "Bid out of range");
+        bids[seat] = bid;
+    }
+
+    /**
+     * Returns the deal.
+     * The first 36 cards are the hands of P1 to P4 in order, nine each,
+     * and the rest is the deck in order.
+     * @return The card indexes; the array is owned by the record.
+     */
+    public int[] getDeal() {
+        return deal;
+    }
+
+    public int getPoints(int team) {
+        return team == 0 ? points0 : points1;
+    }
+
+    public void setPoints(int points0, int points1) {
+        this.points0 = points0;
+        this.points1 = points1;
+    }
+
+    public int getPlayCount() {
+        return playCount;
+    }
+
+    public int getPlaySeat(int i) {
+        return (plays[i] >> 6) & 3;
+    }
+
+    public int getPlayCard(int i) {
+        return plays[i] & 63;
+    }
+
+    /**
+     * Adds a played card.
+     * @param seat The seat that played the card.
+     * @param card The card index.
+     */
+    public void addPlay(int seat, int card) {
+        Validate.validState(playCount < MAX_PLAYS, "Too many plays");
+        plays[playCount++] = (byte) (seat << 6 | card);
+    }
+
+    /**
+     * Returns the size of the record in bytes.
+     * @return The size.
+     */
+    public int size() {
+        return FIXED_SIZE + playCount;
+    }
+
+    /**
+     * Writes the record at the buffer's position.
+     * @param buffer The buffer, with at least {@link #size()} bytes remaining.
+     */
+    public void write(ByteBuffer buffer) {
+        buffer.put((byte) (firstBidder | bidder << 2 | trump.ordinal() << 4 | (contract ? 64 : 0)));
+        buffer.put((byte) highBid);
+        buffer.put((byte) (bids[0] | bids[1] << 4));
+        buffer.put((byte) (bids[2] | bids[3] << 4));
+        buffer.put((byte) (points0 | points1 << 4));
+
+        long bits = 0L;
+        int count = 0;
+        for (int i = 0; i < deal.length; i++) {
+            bits |= (long) deal[i] << count;
+            count += 6;
+            while (count >= 8) {
+                buffer.put((byte) bits);
+                bits >>>= 8;
+                count -= 8;
+            }
+        }
+        buffer.put((byte) bits);
+
+        buffer.put((byte) playCount);
+        buffer.put(plays, 0, playCount);
+    }
+
+    /**
+     * Reads a record at the buffer's position.
+     * @param buffer The buffer.
+     * @return False if the buffer does not hold a whole record; the
+     *         position is then unchanged.
+     */
+    public boolean read(ByteBuffer buffer) {
+        final int start = buffer.position();
+        if (buffer.remaining() < FIXED_SIZE
+                || buffer.remaining() < FIXED_SIZE + (buffer.get(start + FIXED_SIZE - 1) & 0xFF)) {
+            return false;
+        }
+
+        final int header = buffer.get();
+        firstBidder = header & 3;
+        bidder = (header >> 2) & 3;
+        trump = SUITS[(header >> 4) & 3];
+        contract = (header & 64) != 0;
+        highBid = buffer.get();
+        int b = buffer.get();
+        bids[0] = b & 15;
+        bids[1] = (b >> 4) & 15;
+        b = buffer.get();
+        bids[2] = b & 15;
+        bids[3] = (b >> 4) & 15;
+        b = buffer.get();
+        points0 = b & 15;
+        points1 = (b >> 4) & 15;
+
+        long bits = 0L;
+        int count = 0;
+        for (int i = 0; i < deal.length; i++) {
+            if (count < 6) {
+                bits |= (buffer.get() & 0xFFL) << count;
+                count += 8;
+            }
+            deal[i] = (int) (bits & 63);
+            bits >>>= 6;
+            count -= 6;
+        }
+
+        playCount = buffer.get() & 0xFF;
+        if (playCount > MAX_PLAYS) {
+            buffer.position(start);
+            throw new IllegalStateException("Corrupt game record at " + start);
+        }
+        buffer.get(plays, 0, playCount);
+        return true;
+    }
+
+    /**
+     * Writes the file header.
+     * @param buffer The buffer.
+     */
+    public static void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+    }
+}
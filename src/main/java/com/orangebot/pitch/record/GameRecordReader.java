@@ -0,0 +1,89 @@
+package com.orangebot.pitch.record;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The GameRecordReader class reads the records of a game record file
+ * in order.
+ *
+ * The file is read through a fixed buffer, so files of any size can be
+ * streamed, and reading a record does not allocate.
+ *
+ * @see GameRecord
+ */
+public class GameRecordReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private boolean eof;
+
+    /**
+     * Opens a record file.
+     * @param file The record file.
+     */
+    public GameRecordReader(File file) throws IOException {
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "r");
+        try {
+            this.channel = raf.getChannel();
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.flip();
+            fill();
+            if (buffer.remaining() < GameRecord.HEADER_SIZE || buffer.getInt() != GameRecord.MAGIC) {
+                throw new IOException("Not a game record file: " + file);
+            }
+            final int version = buffer.getInt();
+            if (version != GameRecord.VERSION) {
+                throw new IOException("Unsupported game record version " + version + ": " + file);
+            }
+        } catch (IOException | RuntimeException ex) {
+            raf.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Reads the next record.
+     * @param record The record to read into.
+     * @return False at the end of the file.
+     */
+    public boolean next(GameRecord record) throws IOException {
+        while (!record.read(buffer)) {
+            if (eof) {
+                if (buffer.hasRemaining()) {
+                    throw new IOException("Truncated game record file: " + file);
+                }
+                return false;
+            }
+            fill();
+        }
+        return true;
+    }
+
+    /**
+     * Moves the unread bytes to the start of the buffer and reads more.
+     */
+    private void fill() throws IOException {
+        buffer.compact();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                eof = true;
+                break;
+            }
+        }
+        buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        raf.close();
+    }
+}
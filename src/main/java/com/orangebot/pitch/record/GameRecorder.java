@@ -0,0 +1,148 @@
+package com.orangebot.pitch.record;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+import org.apache.commons.lang3.Validate;
+
+import com.orangebot.pitch.CardGame.Card;
+import com.orangebot.pitch.CardGame.Suit;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.PitchGame.GameListener;
+import com.orangebot.pitch.PitchGame.PlayedCard;
+import com.orangebot.pitch.PitchGame.Player;
+import com.orangebot.pitch.PitchGame.PlayerId;
+
+/**
+ * The GameRecorder class records every round of a game to a channel.
+ *
+ * Add a recorder to a game with {@link PitchGame#addListener}.  The
+ * records are collected in a direct buffer, and the buffer is written
+ * when it is full, so the channel only ever sees whole records.  Several
+ * recorders may share a channel, for example one per simulation thread;
+ * their writes are serialized on the channel.  Call {@link #flush()}
+ * when the game is done.
+ *
+ * @see GameRecord
+ */
+public class GameRecorder implements GameListener, Flushable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final PlayerId[] PLAYERS = { PitchGame.P1, PitchGame.P2, PitchGame.P3, PitchGame.P4 };
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final GameRecord record;
+    private boolean auction;
+    private long roundCount;
+
+    /**
+     * Creates a new recorder.
+     * @param channel The channel, positioned after the file header.
+     */
+    public GameRecorder(WritableByteChannel channel) {
+        Validate.notNull(channel);
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.record = new GameRecord();
+    }
+
+    /**
+     * Returns the number of rounds recorded.
+     * @return The number of rounds.
+     */
+    public long getRoundCount() {
+        return roundCount;
+    }
+
+    @Override
+    public void onDeal(PitchGame game) {
+        record.clear();
+        record.setFirstBidder(game.getNextBidder().getIndex());
+        auction = false;
+
+        final int[] deal = record.getDeal();
+        int n = 0;
+        for (PlayerId id : PLAYERS) {
+            n = addCards(game.getPlayer(id).getHand(), deal, n);
+        }
+        addCards(game.getDeck(), deal, n);
+    }
+
+    @Override
+    public void onBid(PitchGame game, Player player, int bid) {
+        record.setBid(player.getId().getIndex(), bid);
+        auction = true;
+    }
+
+    @Override
+    public void onTrump(PitchGame game, Player bidder, Suit trump) {
+        record.setContract(bidder.getId().getIndex(), game.getHighBid(), trump, !auction);
+    }
+
+    @Override
+    public void onDiscard(PitchGame game, Player bidder) {
+    }
+
+    @Override
+    public void onRedeal(PitchGame game, Player bidder) {
+    }
+
+    @Override
+    public void onBury(PitchGame game, Player player, Card card) {
+    }
+
+    @Override
+    public void onPlay(PitchGame game, Player player, Card card) {
+        record.addPlay(player.getId().getIndex(), card.index());
+    }
+
+    @Override
+    public void onOut(PitchGame game, Player player) {
+    }
+
+    @Override
+    public void onTrickWon(PitchGame game, PlayedCard highCard, int team0Points, int team1Points) {
+    }
+
+    @Override
+    public void onRoundEnd(PitchGame game, boolean made) {
+        record.setPoints(game.getRoundScore(0), game.getRoundScore(1));
+        if (buffer.remaining() < record.size()) {
+            writeBuffer();
+        }
+        record.write(buffer);
+        roundCount++;
+    }
+
+    /**
+     * Writes the buffered records to the channel.
+     */
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        synchronized (channel) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        buffer.clear();
+    }
+
+    private void writeBuffer() {
+        try {
+            flush();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not write game records", ex);
+        }
+    }
+
+    private static int addCards(List<Card> cards, int[] deal, int n) {
+        for (int i = 0, size = cards.size(); i < size; i++) {
+            deal[n++] = cards.get(i).index();
+        }
+        return n;
+    }
+}
@@ -0,0 +1,149 @@
+package com.orangebot.pitch.record;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.commons.lang3.Validate;
+
+import com.orangebot.pitch.CardGame.Card;
+import com.orangebot.pitch.CardGame.Suit;
+import com.orangebot.pitch.FastRandom;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.PitchGame.Player;
+import com.orangebot.pitch.PitchGame.PlayerId;
+import com.orangebot.pitch.PitchGame.PlayerStrategy;
+import com.orangebot.pitch.strats.SimpleStrategy;
+
+/**
+ * The GameReplayer class plays recorded rounds again.
+ *
+ * {@link #playRound(PitchGame, GameRecord)} deals a recorded round to any
+ * game, so a new strategy can be played on the same deals.  A replayer
+ * also owns a game whose players make the recorded decisions, and
+ * {@link #replay(GameRecord)} plays a round exactly as it was recorded.
+ */
+public class GameReplayer implements PlayerStrategy {
+    private static final PlayerId[] PLAYERS = { PitchGame.P1, PitchGame.P2, PitchGame.P3, PitchGame.P4 };
+
+    private final PitchGame game;
+    private GameRecord record;
+    private int nextPlay;
+
+    public GameReplayer() {
+        this.game = new PitchGame(new FastRandom(0L), this, this, this, this);
+    }
+
+    /**
+     * Returns the game that replays the records.
+     * Add listeners to it to observe the replayed rounds.
+     * @return The game.
+     */
+    public PitchGame getGame() {
+        return game;
+    }
+
+    /**
+     * Plays a recorded round with the recorded decisions.
+     * @param record The record.
+     * @throws IllegalStateException If the round does not play out as recorded.
+     */
+    public void replay(GameRecord record) {
+        Validate.notNull(record);
+        this.record = record;
+        this.nextPlay = 0;
+        game.resetGame();
+        playRound(game, record);
+
+        if (nextPlay != record.getPlayCount()
+                || game.getRoundScore(0) != record.getPoints(0)
+                || game.getRoundScore(1) != record.getPoints(1)) {
+            throw new IllegalStateException("Round does not match the record");
+        }
+    }
+
+    @Override
+    public int getBid(Player p) {
+        return record.getBid(p.getId().getIndex());
+    }
+
+    @Override
+    public Suit getSuit(Player p) {
+        return record.getTrump();
+    }
+
+    @Override
+    public Card playCard(Player p) {
+        if (nextPlay >= record.getPlayCount() || record.getPlaySeat(nextPlay) != p.getId().getIndex()) {
+            throw new IllegalStateException("Play does not match the record");
+        }
+
+        final int index = record.getPlayCard(nextPlay++);
+        final List<Card> hand = p.getHand();
+        for (int i = 0, n = hand.size(); i < n; i++) {
+            if (hand.get(i).index() == index) {
+                return hand.get(i);
+            }
+        }
+        throw new IllegalStateException("Card not in hand");
+    }
+
+    /**
+     * Plays a round on a recorded deal with the game's own players.
+     * The recorded player opens the auction, and a recorded fixed
+     * contract is used for this round only.
+     * @param game The game.
+     * @param record The record.
+     */
+    public static void playRound(PitchGame game, GameRecord record) {
+        game.setNextBidder(PLAYERS[record.getFirstBidder()]);
+        if (!record.isContract()) {
+            game.playRound(record.getDeal());
+            return;
+        }
+
+        game.setContract(PLAYERS[record.getBidder()], record.getHighBid(), record.getTrump());
+        try {
+            game.playRound(record.getDeal());
+        } finally {
+            game.clearContract();
+        }
+    }
+
+    /**
+     * Checks every round of a record file, and plays the same deals with
+     * simple strategies for comparison.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.out.println("Usage: GameReplayer FILE");
+            System.exit(1);
+        }
+
+        final GameReplayer replayer = new GameReplayer();
+        final FastRandom random = new FastRandom(0L);
+        final SimpleStrategy s = new SimpleStrategy(random);
+        final PitchGame simple = new PitchGame(random, s, s, s, s);
+        final GameRecord record = new GameRecord();
+        long count = 0;
+        long recordedPoints = 0;
+        long simplePoints = 0;
+
+        try (GameRecordReader reader = new GameRecordReader(new File(args[0]))) {
+            while (reader.next(record)) {
+                replayer.replay(record);
+                recordedPoints += record.getPoints(record.getBidder() & 1);
+
+                simple.resetGame();
+                playRound(simple, record);
+                simplePoints += simple.getRoundScore(simple.getBiddingTeam());
+                count++;
+            }
+        }
+
+        System.out.println(count + " rounds replayed");
+        if (count > 0) {
+            System.out.println("Recorded bidding team points: " + (double) recordedPoints / count);
+            System.out.println("Simple bidding team points:   " + (double) simplePoints / count);
+        }
+    }
+}
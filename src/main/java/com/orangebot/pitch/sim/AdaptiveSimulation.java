@@ -0,0 +1,286 @@
+package com.orangebot.pitch.sim;
+
+import java.io.File;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.commons.lang3.Validate;
+
+import com.orangebot.pitch.HandKey;
+
+/**
+ * The AdaptiveSimulation class plays each bidder holding until its mean
+ * points are known to a target precision.
+ *
+ * The run proceeds in passes.  Every pass computes, for each holding
+ * that has not converged, the half width of the confidence interval of
+ * its mean and the number of further deals the current variance says it
+ * needs.  Those deals (capped at one batch per pass) are played in
+ * parallel with {@link HoldingPlayer}.  Holdings whose interval is
+ * narrower than the target drop out, so later passes only spend rounds
+ * on the holdings that are still uncertain.  The run ends when every
+ * holding has converged or reached the deal limit.
+ */
+public class AdaptiveSimulation {
+    private static final int LEAF_JOBS = 8;
+
+    private final Queue<HoldingPlayer> players;
+    private double targetHalfWidth;
+    private double z;
+    private int minDeals;
+    private int batchDeals;
+    private int maxDeals;
+    private int maxTrump;
+    private int parallelism;
+    private long seed;
+
+    public AdaptiveSimulation() {
+        this.players = new ConcurrentLinkedQueue<>();
+        this.targetHalfWidth = 0.05;
+        this.z = 1.96;
+        this.minDeals = 100;
+        this.batchDeals = 10_000;
+        this.maxDeals = 10_000_000;
+        this.maxTrump = 9;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        this.seed = System.nanoTime();
+    }
+
+    /**
+     * Sets the target half width of the confidence interval of each mean.
+     * @param targetHalfWidth The half width in points.
+     */
+    public void setTargetHalfWidth(double targetHalfWidth) {
+        Validate.isTrue(targetHalfWidth > 0.0, "Target must be positive");
+        this.targetHalfWidth = targetHalfWidth;
+    }
+
+    /**
+     * Sets the standard score of the confidence level.
+     * @param z The standard score (1.96 for 95%).
+     */
+    public void setZ(double z) {
+        Validate.isTrue(z > 0.0, "Standard score must be positive");
+        this.z = z;
+    }
+
+    /**
+     * Sets the number of deals played for a holding before its
+     * variance is trusted.
+     * @param minDeals The minimum number of deals.
+     */
+    public void setMinDeals(int minDeals) {
+        Validate.isTrue(minDeals > 1, "Minimum deals must be at least 2");
+        this.minDeals = minDeals;
+    }
+
+    /**
+     * Sets the largest number of deals played for one holding in a pass.
+     * @param batchDeals The number of deals.
+     */
+    public void setBatchDeals(int batchDeals) {
+        Validate.isTrue(batchDeals > 0, "Batch deals must be positive");
+        this.batchDeals = batchDeals;
+    }
+
+    /**
+     * Sets the largest number of deals played for one holding.
+     * @param maxDeals The number of deals.
+     */
+    public void setMaxDeals(int maxDeals) {
+        Validate.isTrue(maxDeals > 0, "Maximum deals must be positive");
+        this.maxDeals = maxDeals;
+    }
+
+    /**
+     * Sets the largest holding to enumerate.
+     * @param maxTrump The maximum number of trump cards (0-9).
+     */
+    public void setMaxTrump(int maxTrump) {
+        Validate.inclusiveBetween(0, 9, maxTrump);
+        this.maxTrump = maxTrump;
+    }
+
+    /**
+     * Sets the number of threads.
+     * @param parallelism The number of threads.
+     */
+    public void setParallelism(int parallelism) {
+        Validate.isTrue(parallelism > 0, "Parallelism must be positive");
+        this.parallelism = parallelism;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the number of further deals a holding needs.
+     * @param data The results so far.
+     * @param key The hand key.
+     * @return The number of deals, or 0 if the holding has converged.
+     */
+    private int getNeededDeals(SimulationData data, int key) {
+        final long n = data.getTotal(key);
+        if (n < minDeals) {
+            return (int) (minDeals - n);
+        }
+
+        final double sd = Math.sqrt(data.getVariance(key));
+        if (z * sd / Math.sqrt(n) <= targetHalfWidth) {
+            return 0;
+        }
+
+        final double required = Math.ceil(Math.pow(z * sd / targetHalfWidth, 2.0));
+        return (int) Math.max(1L, Math.min(maxDeals, (long) required) - n);
+    }
+
+    /**
+     * Plays until every holding has converged.
+     * @return The data with one row per holding.
+     */
+    public SimulationData run() {
+        players.clear();
+        final ThreadLocal<HoldingPlayer> localPlayer = new ThreadLocal<HoldingPlayer>() {
+            @Override
+            protected HoldingPlayer initialValue() {
+                final HoldingPlayer player = new HoldingPlayer();
+                players.add(player);
+                return player;
+            }
+        };
+
+        final int holdings = HandKey.count(maxTrump);
+        final int[] keys = new int[holdings];
+        final int[] deals = new int[holdings];
+        final SimulationData data = new SimulationData();
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try {
+            for (int pass = 0; ; pass++) {
+                int jobs = 0;
+                long rounds = 0;
+                for (int rank = 0; rank < holdings; rank++) {
+                    final int key = HandKey.unrank(rank);
+                    final long n = data.getTotal(key);
+                    final int needed = (int) Math.min(getNeededDeals(data, key), maxDeals - n);
+                    if (needed > 0) {
+                        keys[jobs] = key;
+                        deals[jobs] = Math.min(needed, batchDeals);
+                        rounds += deals[jobs];
+                        jobs++;
+                    }
+                }
+
+                if (jobs == 0) {
+                    break;
+                }
+
+                System.out.println("Pass " + (pass + 1) + ": " + jobs + " holdings, " + rounds + " rounds");
+                final long passSeed = seed + 0x9E3779B97F4A7C15L * (pass + 1);
+                pool.invoke(new JobTask(localPlayer, keys, deals, passSeed, 0, jobs));
+
+                for (HoldingPlayer player : players) {
+                    data.merge(player.getData());
+                    player.getData().clear();
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        return data;
+    }
+
+    /**
+     * Plays a range of jobs, splitting it while it is large.
+     */
+    private static class JobTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ThreadLocal<HoldingPlayer> localPlayer;
+        private final int[] keys;
+        private final int[] deals;
+        private final long seed;
+        private final int start;
+        private final int end;
+
+        private JobTask(ThreadLocal<HoldingPlayer> localPlayer, int[] keys, int[] deals, long seed, int start, int end) {
+            this.localPlayer = localPlayer;
+            this.keys = keys;
+            this.deals = deals;
+            this.seed = seed;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= LEAF_JOBS) {
+                final HoldingPlayer player = localPlayer.get();
+                for (int i = start; i < end; i++) {
+                    player.play(keys[i], deals[i], seed ^ (0xBF58476D1CE4E5B9L * (keys[i] + 1)));
+                }
+            } else {
+                final int mid = (start + end) >>> 1;
+                invokeAll(new JobTask(localPlayer, keys, deals, seed, start, mid),
+                        new JobTask(localPlayer, keys, deals, seed, mid, end));
+            }
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: AdaptiveSimulation [options]");
+        System.out.println("  --target X      Target confidence half width in points (default: 0.05)");
+        System.out.println("  --z X           Standard score of the confidence level (default: 1.96)");
+        System.out.println("  --min-deals N   Deals before the variance is trusted (default: 100)");
+        System.out.println("  --batch N       Largest number of deals per holding per pass (default: 10000)");
+        System.out.println("  --max-deals N   Largest number of deals per holding (default: 10000000)");
+        System.out.println("  --max-trump N   Largest holding to enumerate (default: 9)");
+        System.out.println("  --threads N     Number of threads (default: available processors)");
+        System.out.println("  --seed N        Random seed");
+        System.out.println("  --output FILE   Output file (default: adaptive-<time>.csv)");
+    }
+
+    public static void main(String[] args) throws Exception {
+        final AdaptiveSimulation simulation = new AdaptiveSimulation();
+        File output = new File("adaptive-" + System.currentTimeMillis() + ".csv");
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                final String arg = args[i];
+                if (arg.equals("--help")) {
+                    printUsage();
+                    return;
+                }
+
+                Validate.isTrue(i + 1 < args.length, "Missing value for %s", arg);
+                final String value = args[++i];
+                switch (arg) {
+                case "--target": simulation.setTargetHalfWidth(Double.parseDouble(value)); break;
+                case "--z": simulation.setZ(Double.parseDouble(value)); break;
+                case "--min-deals": simulation.setMinDeals(Integer.parseInt(value)); break;
+                case "--batch": simulation.setBatchDeals(Integer.parseInt(value)); break;
+                case "--max-deals": simulation.setMaxDeals(Integer.parseInt(value)); break;
+                case "--max-trump": simulation.setMaxTrump(Integer.parseInt(value)); break;
+                case "--threads": simulation.setParallelism(Integer.parseInt(value)); break;
+                case "--seed": simulation.setSeed(Long.parseLong(value)); break;
+                case "--output": output = new File(value); break;
+                default: throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            System.out.println(ex.getMessage());
+            printUsage();
+            System.exit(1);
+        }
+
+        final long startTime = System.currentTimeMillis();
+        final SimulationData data = simulation.run();
+        data.write(output);
+        final double duration = (System.currentTimeMillis() - startTime) / 1000.0;
+        System.out.println(data.getCount() + " rounds in " + duration + " seconds");
+    }
+}
@@ -0,0 +1,363 @@
+package com.orangebot.pitch.sim;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang3.Validate;
+
+import com.orangebot.pitch.CardGame;
+import com.orangebot.pitch.CardGame.Suit;
+import com.orangebot.pitch.FastRandom;
+import com.orangebot.pitch.HandKey;
+import com.orangebot.pitch.TrumpTable;
+import com.orangebot.pitch.strats.SimpleRules;
+
+/**
+ * The BatchEngine class plays many independent rounds in lockstep.
+ *
+ * Every round is stored in primitive arrays indexed by lane: the random
+ * state, the card sequence, the hands and the scores.  Each phase of the
+ * round (shuffle and deal, bid, discard and redeal, bury, and each hand
+ * of the trick play) runs over all lanes before the next phase starts,
+ * so the inner loops are short, branch-light and touch contiguous memory.
+ *
+ * A lane plays exactly the rounds of a {@link com.orangebot.pitch.PitchGame}
+ * with four {@link com.orangebot.pitch.strats.SimpleStrategy} players that
+ * share one {@link FastRandom} with the game, where each round is played
+ * with {@code resetGame()} followed by {@code playRound()}.  The lane's
+ * generator continues from round to round in the same way.
+ */
+public class BatchEngine {
+    private static final Suit TRUMP = Suit.HEARTS;
+    private static final int SEATS = 4;
+    private static final int[] KEY_BITS = buildKeyBits();
+
+    private final int lanes;
+    private final long[] s0;
+    private final long[] s1;
+    private final long[] s2;
+    private final long[] s3;
+    private final byte[] order;
+    private final long[] hands;
+    private final int[] keys;
+    private final int[] bidders;
+    private final int[] highBids;
+    private final int[] bidKeys;
+    private final int[] leads;
+    private final int[] highSeats;
+    private final int[] highBits;
+    private final int[] highPoints;
+    private final int[] scores;
+    private final TrumpTable table;
+
+    /**
+     * Creates a new batch engine.
+     * @param lanes The number of rounds played at once.
+     */
+    public BatchEngine(int lanes) {
+        Validate.isTrue(lanes > 0, "Lanes must be positive");
+        this.lanes = lanes;
+        this.s0 = new long[lanes];
+        this.s1 = new long[lanes];
+        this.s2 = new long[lanes];
+        this.s3 = new long[lanes];
+        this.order = new byte[lanes * CardGame.DECK_SIZE];
+        this.hands = new long[lanes * SEATS];
+        this.keys = new int[lanes * SEATS];
+        this.bidders = new int[lanes];
+        this.highBids = new int[lanes];
+        this.bidKeys = new int[lanes];
+        this.leads = new int[lanes];
+        this.highSeats = new int[lanes];
+        this.highBits = new int[lanes];
+        this.highPoints = new int[lanes];
+        this.scores = new int[lanes * 2];
+        this.table = TrumpTable.get(TRUMP);
+
+        final FastRandom seeds = new FastRandom();
+        for (int lane = 0; lane < lanes; lane++) {
+            setSeed(lane, seeds.nextLong());
+        }
+    }
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    /**
+     * Seeds the generator of one lane, as {@link FastRandom#setSeed(long)}.
+     * @param lane The lane.
+     * @param seed The seed.
+     */
+    public void setSeed(int lane, long seed) {
+        long x = seed;
+        s0[lane] = mix(x += 0x9E3779B97F4A7C15L);
+        s1[lane] = mix(x += 0x9E3779B97F4A7C15L);
+        s2[lane] = mix(x += 0x9E3779B97F4A7C15L);
+        s3[lane] = mix(x += 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Seeds every lane from one generator.
+     * @param random The generator of the lane seeds.
+     */
+    public void setSeeds(FastRandom random) {
+        for (int lane = 0; lane < lanes; lane++) {
+            setSeed(lane, random.nextLong());
+        }
+    }
+
+    /**
+     * Plays one round in every lane.
+     */
+    public void playRounds() {
+        Arrays.fill(scores, 0);
+        shuffleAndDeal();
+        bid();
+        discardAndRedeal();
+        bury();
+        for (int hand = 0; hand < 6; hand++) {
+            playHand();
+        }
+    }
+
+    /**
+     * Returns the bidder's trump holding after the discard.
+     * @param lane The lane.
+     * @return The bid hand key.
+     */
+    public int getBidKey(int lane) {
+        return bidKeys[lane];
+    }
+
+    public int getHighBid(int lane) {
+        return highBids[lane];
+    }
+
+    public int getBiddingTeam(int lane) {
+        return bidders[lane] & 1;
+    }
+
+    public int getRoundScore(int lane, int team) {
+        return scores[lane * 2 + team];
+    }
+
+    /**
+     * Adds the results of the last rounds to simulation data.
+     * @param data The simulation data.
+     */
+    public void addTo(SimulationData data) {
+        addTo(data, lanes);
+    }
+
+    /**
+     * Adds the results of the first lanes of the last rounds to simulation data.
+     * @param data The simulation data.
+     * @param count The number of lanes.
+     */
+    public void addTo(SimulationData data, int count) {
+        Validate.inclusiveBetween(0, lanes, count);
+        for (int lane = 0; lane < count; lane++) {
+            data.add(bidKeys[lane], scores[lane * 2 + (bidders[lane] & 1)]);
+        }
+    }
+
+    /**
+     * Shuffles twice from the original card sequence, as
+     * {@code resetGame()} and {@code dealRound()} do, and deals nine
+     * cards to each seat.  The rest of the sequence is the deck.
+     */
+    private void shuffleAndDeal() {
+        final int n = CardGame.DECK_SIZE;
+        for (int lane = 0; lane < lanes; lane++) {
+            final int base = lane * n;
+            for (int i = 0; i < n; i++) {
+                order[base + i] = (byte) i;
+            }
+            for (int pass = 0; pass < 2; pass++) {
+                for (int i = n - 1; i > 0; i--) {
+                    final int j = base + nextInt(lane, i + 1);
+                    final byte tmp = order[base + i];
+                    order[base + i] = order[j];
+                    order[j] = tmp;
+                }
+            }
+
+            for (int seat = 0; seat < SEATS; seat++) {
+                long hand = 0L;
+                for (int i = seat * 9, end = i + 9; i < end; i++) {
+                    hand |= 1L << order[base + i];
+                }
+                hands[lane * SEATS + seat] = hand;
+            }
+        }
+    }
+
+    /**
+     * Holds the auction with random bids from 2 to 7.
+     */
+    private void bid() {
+        for (int lane = 0; lane < lanes; lane++) {
+            int highBid = 3;
+            int bidder = -1;
+            for (int seat = 0; seat < SEATS; seat++) {
+                final int bid = 2 + nextInt(lane, 6);
+                if (bid > highBid) {
+                    highBid = bid;
+                    bidder = seat;
+                }
+            }
+            if (highBid < 4) {
+                bidder = SEATS - 1;
+                highBid = 4;
+            }
+            bidders[lane] = bidder;
+            highBids[lane] = highBid;
+            leads[lane] = bidder;
+        }
+    }
+
+    /**
+     * Keeps the trump of every hand, refills each seat to six cards from
+     * the deck in seat order, and gives the rest of the deck to the bidder.
+     */
+    private void discardAndRedeal() {
+        final int n = CardGame.DECK_SIZE;
+        for (int lane = 0; lane < lanes; lane++) {
+            final int base = lane * n;
+            final int seats = lane * SEATS;
+            for (int seat = 0; seat < SEATS; seat++) {
+                keys[seats + seat] = table.getHandKey(hands[seats + seat]);
+            }
+            bidKeys[lane] = keys[seats + bidders[lane]];
+
+            int next = SEATS * 9;
+            for (int seat = 0; seat < SEATS; seat++) {
+                for (int need = 6 - HandKey.size(keys[seats + seat]); need > 0 && next < n; need--) {
+                    keys[seats + seat] |= KEY_BITS[order[base + next++]];
+                }
+            }
+            while (next < n) {
+                keys[seats + bidders[lane]] |= KEY_BITS[order[base + next++]];
+            }
+        }
+    }
+
+    /**
+     * Buries cards with {@link SimpleRules#bury(int)} until every hand
+     * has six cards.
+     */
+    private void bury() {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = SimpleRules.bury(keys[i]);
+        }
+    }
+
+    /**
+     * Plays one hand in every lane, one seat position at a time.
+     */
+    private void playHand() {
+        for (int lane = 0; lane < lanes; lane++) {
+            highSeats[lane] = -1;
+            highBits[lane] = -1;
+            highPoints[lane] = 0;
+        }
+
+        for (int i = 0; i < SEATS; i++) {
+            for (int lane = 0; lane < lanes; lane++) {
+                final int seats = lane * SEATS;
+                final int seat = (leads[lane] + i) & 3;
+                final int hand = keys[seats + seat];
+                if (hand == 0) {
+                    continue;
+                }
+
+                final int bit = choose(lane, seat);
+                keys[seats + seat] = hand ^ (1 << bit);
+                if (bit == 0) {
+                    scores[lane * 2 + (seat & 1)] += HandKey.pointValue(0);
+                } else {
+                    highPoints[lane] += HandKey.pointValue(bit);
+                }
+                if (bit > highBits[lane]) {
+                    highBits[lane] = bit;
+                    highSeats[lane] = seat;
+                }
+            }
+        }
+
+        for (int lane = 0; lane < lanes; lane++) {
+            final int highSeat = highSeats[lane];
+            if (highSeat >= 0) {
+                scores[lane * 2 + (highSeat & 1)] += highPoints[lane];
+                leads[lane] = highSeat;
+            }
+        }
+    }
+
+    /**
+     * Chooses a card with {@link SimpleRules#choose}.
+     * @param lane The lane.
+     * @param seat The seat to play.
+     * @return The key bit of the card.
+     */
+    private int choose(int lane, int seat) {
+        final int seats = lane * SEATS;
+        final int hand = keys[seats + seat];
+        final int others = (keys[seats] | keys[seats + 1] | keys[seats + 2] | keys[seats + 3]) & ~hand;
+        return SimpleRules.choose(hand, others, seat, highSeats[lane], highBits[lane]);
+    }
+
+    /**
+     * Returns the next value of a lane's generator, as
+     * {@link FastRandom#nextLong()}.
+     * @param lane The lane.
+     * @return The random value.
+     */
+    private long nextLong(int lane) {
+        final long a = s0[lane];
+        final long b = s1[lane];
+        final long c = s2[lane] ^ a;
+        final long d = s3[lane] ^ b;
+        final long result = Long.rotateLeft(b * 5, 7) * 9;
+        s1[lane] = b ^ c;
+        s0[lane] = a ^ d;
+        s2[lane] = c ^ (b << 17);
+        s3[lane] = Long.rotateLeft(d, 45);
+        return result;
+    }
+
+    /**
+     * Returns a bounded value of a lane's generator, as
+     * {@link FastRandom#nextInt(int)}.
+     * @param lane The lane.
+     * @param bound The exclusive upper bound.
+     * @return The random value.
+     */
+    private int nextInt(int lane, int bound) {
+        long m = (nextLong(lane) >>> 32) * bound;
+        long low = m & 0xFFFFFFFFL;
+        if (low < bound) {
+            final long threshold = (0x100000000L - bound) % bound;
+            while (low < threshold) {
+                m = (nextLong(lane) >>> 32) * bound;
+                low = m & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (m >>> 32);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int[] buildKeyBits() {
+        final TrumpTable table = TrumpTable.get(TRUMP);
+        final int[] result = new int[CardGame.DECK_SIZE];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = table.getHandKey(1L << i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,93 @@
+package com.orangebot.pitch.sim;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.orangebot.pitch.HandKey;
+
+/**
+ * The BinarySnapshot class writes simulation snapshots in a compact
+ * binary column format.
+ *
+ * The file starts with a fixed header:
+ * <pre>
+ *   int   magic         "PSNP"
+ *   int   version       1
+ *   int   row count     n
+ *   int   bucket count  11
+ *   long  total rounds
+ * </pre>
+ * followed by the columns, each n big-endian ints: the hand keys in
+ * ascending order, then one column of counts per point bucket.
+ * Every value has a fixed offset, so the file can be memory mapped and
+ * queried without parsing, see {@link SnapshotReader}.
+ */
+public final class BinarySnapshot {
+    public static final int MAGIC = 0x50534E50;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 24;
+
+    private BinarySnapshot() {
+    }
+
+    /**
+     * Returns the file offset of a column.
+     * @param rowCount The number of rows.
+     * @param column The column (0 for keys, 1 + points for counts).
+     * @return The file offset.
+     */
+    static long columnOffset(int rowCount, int column) {
+        return HEADER_SIZE + 4L * rowCount * column;
+    }
+
+    /**
+     * Writes a snapshot of the data.
+     * @param data The data.
+     * @param file The output file.
+     */
+    public static void write(SimulationData data, File file) throws IOException {
+        final int buckets = SimulationRow.BUCKETS;
+
+        int rowCount = 0;
+        for (int key = 0; key < HandKey.SIZE; key++) {
+            if (data.contains(key)) {
+                rowCount++;
+            }
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                FileChannel channel = raf.getChannel()) {
+            raf.setLength(0);
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(rowCount);
+            header.putInt(buckets);
+            header.putLong(data.getCount());
+            header.flip();
+            writeFully(channel, header);
+
+            final ByteBuffer column = ByteBuffer.allocate(4 * rowCount);
+            for (int c = 0; c <= buckets; c++) {
+                column.clear();
+                for (int key = 0; key < HandKey.SIZE; key++) {
+                    if (data.contains(key)) {
+                        column.putInt(c == 0 ? key : data.getCount(key, c - 1));
+                    }
+                }
+                column.flip();
+                writeFully(channel, column);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.orangebot.pitch.sim;
+
+import com.orangebot.pitch.CardGame;
+import com.orangebot.pitch.CardGame.Suit;
+import com.orangebot.pitch.FastRandom;
+import com.orangebot.pitch.HandKey;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.TrumpTable;
+import com.orangebot.pitch.strats.SimpleStrategy;
+
+/**
+ * The HoldingPlayer class plays deals conditioned on the bidder's
+ * trump holding.
+ *
+ * In each deal the bidder is dealt the holding plus random non-trump
+ * cards to make nine cards, and the other hands are dealt from the rest
+ * of the deck.  Each instance owns its game engine, so one instance
+ * should be used per thread.
+ */
+class HoldingPlayer {
+    static final Suit TRUMP = Suit.HEARTS;
+
+    private final FastRandom random;
+    private final PitchGame game;
+    private final TrumpTable table;
+    private final int[] nonTrumpCards;
+    private final int[] nonTrump;
+    private final SimulationData data;
+
+    HoldingPlayer() {
+        random = new FastRandom();
+        final SimpleStrategy s = new SimpleStrategy(random);
+        game = new PitchGame(random, s, s, s, s);
+        game.setContract(PitchGame.P1, 4, TRUMP);
+        table = TrumpTable.get(TRUMP);
+        data = new SimulationData();
+
+        final long others = ((1L << CardGame.DECK_SIZE) - 1) & ~table.getTrumpMask();
+        nonTrumpCards = new int[Long.bitCount(others)];
+        nonTrump = new int[nonTrumpCards.length];
+        int n = 0;
+        for (long m = others; m != 0; m &= m - 1) {
+            nonTrumpCards[n++] = Long.numberOfTrailingZeros(m);
+        }
+    }
+
+    /**
+     * Returns the results played by this instance.
+     * @return The results.
+     */
+    SimulationData getData() {
+        return data;
+    }
+
+    /**
+     * Plays deals for one holding.
+     * The results only depend on the arguments, not on earlier calls.
+     * @param key The hand key of the holding.
+     * @param deals The number of deals to play.
+     * @param seed The random seed for these deals.
+     */
+    void play(int key, int deals, long seed) {
+        final long trump = table.getCards(key);
+        final int fill = 9 - HandKey.size(key);
+
+        // Start from the same state, so that the results
+        // do not depend on which thread plays the deals
+        random.setSeed(seed);
+        System.arraycopy(nonTrumpCards, 0, nonTrump, 0, nonTrump.length);
+        game.resetGame();
+
+        for (int i = 0; i < deals; i++) {
+            // Partial Fisher-Yates shuffle to pick the non-trump cards
+            long hand = trump;
+            for (int j = 0; j < fill; j++) {
+                final int k = j + random.nextInt(nonTrump.length - j);
+                final int tmp = nonTrump[j];
+                nonTrump[j] = nonTrump[k];
+                nonTrump[k] = tmp;
+                hand |= 1L << nonTrump[j];
+            }
+
+            game.playRound(PitchGame.P1, hand);
+            data.add(game.getBidKey(), game.getRoundScore(game.getBiddingTeam()));
+        }
+    }
+}
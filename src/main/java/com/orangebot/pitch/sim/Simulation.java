@@ -2,73 +2,557 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.lang3.Validate;
+
+import com.orangebot.pitch.FastRandom;
 import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.PitchGame.PlayerStrategy;
+import com.orangebot.pitch.metrics.RoundSampler;
+import com.orangebot.pitch.metrics.SimulationMetrics;
+import com.orangebot.pitch.record.GameRecord;
+import com.orangebot.pitch.record.GameRecorder;
+import com.orangebot.pitch.sim.Tournament.StrategyFactory;
 import com.orangebot.pitch.strats.SimpleStrategy;
 
+/**
+ * The Simulation class plays rounds on several threads and collects
+ * the bidding team's points by bidding hand.
+ *
+ * Each thread accumulates into its own shard without any locking.
+ * Full shards are handed to the calling thread, which merges them into
+ * the combined data and hands the cleared shards back for reuse.
+ * Snapshots are frozen copies of the combined data that a
+ * {@link SnapshotWriter} writes in the background.
+ *
+ * A simulation runs until its round budget or time budget is used up,
+ * or until {@link #stop()} is called, and then writes a final snapshot.
+ * With neither budget set it runs until stopped.  The threads claim the
+ * rounds in blocks, and every block is played from its own seed, so with
+ * a round budget the data only depends on the seed.
+ *
+ * Every round can also be recorded to a game record file, see
+ * {@link GameRecorder}.  Each thread buffers its own records and writes
+ * them to the shared file channel in blocks.
+ *
+ * The threads report their rounds and sampled phase timings to
+ * {@link SimulationMetrics}, which is registered as MBeans for the run.
+ *
+ * If a thread fails, the other threads are stopped and {@link #run()}
+ * throws the failure instead of returning partial data.  A snapshot that
+ * could not be written also makes {@link #run()} throw, once the final
+ * snapshot is written.
+ */
 public class Simulation {
-    private final Object lockObject;
-    private final SimulationData data;
+    private static final long POLL_MILLIS = 100L;
+
+    private final BlockingQueue<SimulationData> shards;
+    private final BlockingQueue<SimulationData> freeShards;
+    private final AtomicLong claimedBlocks;
+    private final CountDownLatch finished;
+    private int threadCount;
+    private int shardRounds;
+    private long roundLimit;
+    private long timeLimitMillis;
+    private long snapshotInterval;
+    private File outputDir;
+    private long seed;
+    private SnapshotFormat snapshotFormat;
+    private int batchSize;
+    private StrategyFactory strategyFactory;
+    private File recordFile;
+    private FileChannel recordChannel;
+    private volatile boolean stopped;
+    private volatile Throwable failure;
+    private SimulationData data;
+    private SnapshotWriter writer;
     private long lastWriteTime;
-    private int count;
 
-    public Simulation() throws InterruptedException {
-        this.lockObject = new Object();
-        this.data = new SimulationData();
-        this.lastWriteTime = System.currentTimeMillis();
+    public Simulation() {
+        this.shards = new LinkedBlockingQueue<>();
+        this.freeShards = new LinkedBlockingQueue<>();
+        this.claimedBlocks = new AtomicLong();
+        this.finished = new CountDownLatch(1);
+        this.threadCount = Runtime.getRuntime().availableProcessors();
+        this.shardRounds = 1_000_000;
+        this.snapshotInterval = 100_000_000L;
+        this.outputDir = new File(".");
+        this.seed = System.nanoTime();
+        this.snapshotFormat = SnapshotFormat.CSV;
+    }
+
+    /**
+     * Sets the number of simulation threads.
+     * Defaults to the number of available processors.
+     * @param threadCount The number of threads.
+     */
+    public void setThreadCount(int threadCount) {
+        Validate.isTrue(threadCount > 0, "Thread count must be positive");
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Sets the number of rounds in a block.  A thread claims a block at a
+     * time and hands its shard to the calling thread after every block.
+     * Defaults to 1,000,000.
+     * @param shardRounds The number of rounds.
+     */
+    public void setShardRounds(int shardRounds) {
+        Validate.isTrue(shardRounds > 0, "Shard rounds must be positive");
+        this.shardRounds = shardRounds;
+    }
+
+    /**
+     * Sets the total number of rounds to play.
+     * @param roundLimit The number of rounds, or 0 for no limit.
+     */
+    public void setRoundLimit(long roundLimit) {
+        Validate.isTrue(roundLimit >= 0, "Round limit must not be negative");
+        this.roundLimit = roundLimit;
+    }
+
+    /**
+     * Sets the wall-clock budget for the run.
+     * @param timeLimitMillis The budget in milliseconds, or 0 for no limit.
+     */
+    public void setTimeLimitMillis(long timeLimitMillis) {
+        Validate.isTrue(timeLimitMillis >= 0, "Time limit must not be negative");
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    /**
+     * Sets the number of rounds between snapshots.
+     * @param snapshotInterval The number of rounds, or 0 for final snapshot only.
+     */
+    public void setSnapshotInterval(long snapshotInterval) {
+        Validate.isTrue(snapshotInterval >= 0, "Snapshot interval must not be negative");
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * Sets the directory where snapshots are written.
+     * @param outputDir The output directory.
+     */
+    public void setOutputDir(File outputDir) {
+        Validate.notNull(outputDir);
+        this.outputDir = outputDir;
+    }
+
+    /**
+     * Sets the random seed.
+     * Every block of rounds is played from its own seed derived from it.
+     * @param seed The random seed.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the snapshot file format.
+     * @param snapshotFormat The snapshot file format.
+     */
+    public void setSnapshotFormat(SnapshotFormat snapshotFormat) {
+        Validate.notNull(snapshotFormat);
+        this.snapshotFormat = snapshotFormat;
+    }
+
+    /**
+     * Sets the number of rounds each thread plays in lockstep with a
+     * {@link BatchEngine}.  The batch engine plays the same rounds as the
+     * game engine with simple strategies, stored as primitive arrays.
+     * @param batchSize The number of rounds, or 0 to use the game engine.
+     */
+    public void setBatchSize(int batchSize) {
+        Validate.isTrue(batchSize >= 0, "Batch size must not be negative");
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the factory of the strategies of the game engine.  Each thread
+     * creates one strategy for all four players, given the thread's random
+     * source.  The batch engine always plays the simple strategy, so the
+     * batch size must be 0.
+     * @param strategyFactory The factory, or null for the simple strategy.
+     */
+    public void setStrategyFactory(StrategyFactory strategyFactory) {
+        this.strategyFactory = strategyFactory;
+    }
+
+    /**
+     * Sets the file where every round is recorded.
+     * Recording needs the game engine, so the batch size must be 0.
+     * @param recordFile The record file, or null for no recording.
+     */
+    public void setRecordFile(File recordFile) {
+        this.recordFile = recordFile;
+    }
+
+    /**
+     * Asks the simulation to stop.
+     * The threads finish their current round, and the final
+     * snapshot is written before {@link #run()} returns.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Waits for a running simulation to write its final snapshot.
+     * @param timeoutMillis The maximum time to wait.
+     * @return True if the simulation finished.
+     */
+    public boolean awaitFinished(long timeoutMillis) throws InterruptedException {
+        return finished.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs the simulation on the calling thread until a budget is used up
+     * or the simulation is stopped.
+     * @return The combined data of all rounds played.
+     * @throws IllegalStateException If a simulation thread failed.
+     * @throws IOException If a snapshot could not be written.
+     */
+    public SimulationData run() throws InterruptedException, IOException {
+        try {
+            return runThreads();
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    private SimulationData runThreads() throws InterruptedException, IOException {
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IllegalStateException("Could not create output directory: " + outputDir);
+        }
+        Validate.validState(recordFile == null || batchSize == 0, "Recording needs a batch size of 0");
+        Validate.validState(strategyFactory == null || batchSize == 0, "Strategies need a batch size of 0");
+
+        try (RandomAccessFile raf = recordFile != null ? new RandomAccessFile(recordFile, "rw") : null) {
+            if (raf != null) {
+                raf.setLength(0);
+                recordChannel = raf.getChannel();
+                final ByteBuffer header = ByteBuffer.allocate(GameRecord.HEADER_SIZE);
+                GameRecord.writeHeader(header);
+                header.flip();
+                while (header.hasRemaining()) {
+                    recordChannel.write(header);
+                }
+            }
+            return runRounds();
+        } finally {
+            recordChannel = null;
+        }
+    }
 
-        SimulationThread[] threads = new SimulationThread[4];
+    private SimulationData runRounds() throws InterruptedException, IOException {
+        SimulationMetrics.get().register();
+        data = new SimulationData();
+        writer = new SnapshotWriter(snapshotFormat);
+        final long startTime = System.currentTimeMillis();
+        final long deadline = timeLimitMillis > 0 ? startTime + timeLimitMillis : Long.MAX_VALUE;
+        lastWriteTime = startTime;
+
+        final SimulationThread[] threads = new SimulationThread[threadCount];
 
         for (int i = 0; i < threads.length; i++) {
             threads[i] = new SimulationThread();
+            threads[i].setDaemon(true);
         }
 
         for (int i = 0; i < threads.length; i++) {
             threads[i].start();
         }
 
+        while (isAlive(threads)) {
+            final SimulationData shard = shards.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (shard != null) {
+                merge(shard);
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                stop();
+            }
+        }
+
         for (int i = 0; i < threads.length; i++) {
             threads[i].join();
         }
-    }
-
-    public void add(String token, int points) {
-        synchronized (lockObject) {
-            data.add(token, points);
-            count++;
 
-            if (count % 1000000 == 0) {
-                System.out.print(".");
+        final Throwable ex = failure;
+        if (ex != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                ex.addSuppressed(e);
             }
+            if (ex instanceof RuntimeException) {
+                throw (RuntimeException) ex;
+            }
+            if (ex instanceof Error) {
+                throw (Error) ex;
+            }
+            throw new IllegalStateException("Simulation thread failed", ex);
+        }
 
-            if (count % 100_000_000 == 0) {
-                final long endTime = System.currentTimeMillis();
-                final double duration = (endTime - lastWriteTime) / 1000.0;
-                System.out.println("  " + duration + " seconds");
-                try {
-                    data.write(new File("output-" + System.currentTimeMillis() + ".csv"));
-                } catch (IOException e) {
-                    System.out.println(e);
-                }
-                lastWriteTime = System.currentTimeMillis();
+        SimulationData shard;
+        while ((shard = shards.poll()) != null) {
+            merge(shard);
+        }
+
+        System.out.println();
+        writeSnapshot();
+        writer.close();
+
+        final double duration = (System.currentTimeMillis() - startTime) / 1000.0;
+        System.out.println(data.getCount() + " rounds in " + duration + " seconds");
+        return data;
+    }
+
+    private static boolean isAlive(Thread[] threads) {
+        for (Thread thread : threads) {
+            if (thread.isAlive()) {
+                return true;
             }
         }
+        return false;
+    }
+
+    /**
+     * Claims the next block of rounds for a thread.
+     * @return The block number, or -1 when the budget is used up.
+     */
+    private long claimBlock() {
+        final long block = claimedBlocks.getAndIncrement();
+        if (roundLimit > 0 && block * shardRounds >= roundLimit) {
+            return -1L;
+        }
+        return block;
+    }
+
+    /**
+     * Returns the number of rounds in a block, which is less than a full
+     * block for the last block of the round budget.
+     * @param block The block number.
+     * @return The number of rounds.
+     */
+    private int getBlockRounds(long block) {
+        if (roundLimit == 0) {
+            return shardRounds;
+        }
+        return (int) Math.min(shardRounds, roundLimit - block * shardRounds);
+    }
+
+    /**
+     * Returns the seed of a block, so that every block is played the same
+     * whichever thread claims it.
+     * @param block The block number.
+     * @return The seed.
+     */
+    private long getBlockSeed(long block) {
+        return seed ^ (0xBF58476D1CE4E5B9L * (block + 1));
+    }
+
+    /**
+     * Merges a shard into the combined data.
+     * @param shard The shard from a simulation thread.
+     */
+    private void merge(SimulationData shard) throws InterruptedException {
+        final long before = data.getCount();
+        data.merge(shard);
+        shard.clear();
+        freeShards.add(shard);
+        final long count = data.getCount();
+
+        for (long i = before / shardRounds; i < count / shardRounds; i++) {
+            System.out.print(".");
+        }
+
+        if (snapshotInterval > 0 && count / snapshotInterval > before / snapshotInterval) {
+            final long endTime = System.currentTimeMillis();
+            final double duration = (endTime - lastWriteTime) / 1000.0;
+            System.out.println("  " + duration + " seconds");
+            writeSnapshot();
+            lastWriteTime = System.currentTimeMillis();
+        }
+    }
+
+    private void writeSnapshot() throws InterruptedException {
+        writer.submit(data, new File(outputDir, "output-" + System.currentTimeMillis() + writer.getExtension()));
     }
 
     public class SimulationThread extends Thread {
+        private final FastRandom random;
+
+        public SimulationThread() {
+            this.random = new FastRandom();
+        }
+
         @Override
         public void run() {
-            final SimpleStrategy s = new SimpleStrategy();
-            final PitchGame pitch = new PitchGame(s, s, s, s);
-            while (true) {
-                pitch.resetGame();
-                pitch.playRound();
-                add(pitch.getBidToken(), pitch.getScore(0));
+            final RoundSampler sampler = SimulationMetrics.get().createSampler();
+            try {
+                if (batchSize > 0) {
+                    runBatches(sampler);
+                } else {
+                    runGames(sampler);
+                }
+            } catch (Throwable ex) {
+                fail(ex);
+            } finally {
+                sampler.close();
+            }
+        }
+
+        /**
+         * Records the first failure and stops the other threads.
+         * @param ex The failure.
+         */
+        private void fail(Throwable ex) {
+            synchronized (Simulation.this) {
+                if (failure == null) {
+                    failure = ex;
+                } else {
+                    failure.addSuppressed(ex);
+                }
+            }
+            stopped = true;
+        }
+
+        private void runGames(RoundSampler sampler) {
+            final PlayerStrategy s = strategyFactory != null
+                    ? strategyFactory.create(random) : new SimpleStrategy(random);
+            final PitchGame pitch = new PitchGame(random, s, s, s, s);
+            pitch.setRoundSampler(sampler);
+            final GameRecorder recorder = recordChannel != null ? new GameRecorder(recordChannel) : null;
+            if (recorder != null) {
+                pitch.addListener(recorder);
+            }
+
+            SimulationData shard = new SimulationData();
+            long block;
+            while (!stopped && (block = claimBlock()) >= 0) {
+                final int rounds = getBlockRounds(block);
+                random.setSeed(getBlockSeed(block));
+                for (int i = 0; i < rounds && !stopped; i++) {
+                    pitch.resetGame();
+                    pitch.playRound();
+                    shard.add(pitch.getBidKey(), pitch.getRoundScore(pitch.getBiddingTeam()));
+                }
+
+                shard = handOff(shard);
+            }
+
+            if (recorder != null) {
+                try {
+                    recorder.flush();
+                } catch (IOException ex) {
+                    throw new IllegalStateException("Could not write game records", ex);
+                }
             }
         }
+
+        private void runBatches(RoundSampler sampler) {
+            final BatchEngine engine = new BatchEngine(batchSize);
+            SimulationData shard = new SimulationData();
+            long block;
+            while (!stopped && (block = claimBlock()) >= 0) {
+                final int rounds = getBlockRounds(block);
+                random.setSeed(getBlockSeed(block));
+                engine.setSeeds(random);
+                for (int i = 0; i < rounds && !stopped; i += batchSize) {
+                    engine.playRounds();
+                    engine.addTo(shard, Math.min(batchSize, rounds - i));
+                    sampler.addRounds(Math.min(batchSize, rounds - i));
+                }
+
+                shard = handOff(shard);
+            }
+        }
+
+        /**
+         * Hands a shard to the calling thread, full or stopped early.
+         * @param shard The shard.
+         * @return An empty shard.
+         */
+        private SimulationData handOff(SimulationData shard) {
+            shards.add(shard);
+            final SimulationData free = freeShards.poll();
+            return free != null ? free : new SimulationData();
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: Simulation [options]");
+        System.out.println("  --threads N     Number of threads (default: available processors)");
+        System.out.println("  --rounds N      Stop after N rounds");
+        System.out.println("  --seconds N     Stop after N seconds");
+        System.out.println("  --snapshot N    Write a snapshot every N rounds (0 = final only)");
+        System.out.println("  --output DIR    Snapshot directory (default: current directory)");
+        System.out.println("  --seed N        Random seed");
+        System.out.println("  --format F      Snapshot format: csv, csv_gzip or binary (default: csv)");
+        System.out.println("  --compress      Same as --format csv_gzip");
+        System.out.println("  --batch N       Play N rounds per thread in lockstep (default: 0, one at a time)");
+        System.out.println("  --record FILE   Record every round to a game record file");
+        System.out.println("  --sample N      Time the phases of one round in N (default: 64)");
     }
 
     public static void main(String[] args) throws Exception {
-        new Simulation();
+        final Simulation simulation = new Simulation();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                final String arg = args[i];
+                if (arg.equals("--help")) {
+                    printUsage();
+                    return;
+                }
+                if (arg.equals("--compress")) {
+                    simulation.setSnapshotFormat(SnapshotFormat.CSV_GZIP);
+                    continue;
+                }
+
+                Validate.isTrue(i + 1 < args.length, "Missing value for %s", arg);
+                final String value = args[++i];
+                switch (arg) {
+                case "--threads": simulation.setThreadCount(Integer.parseInt(value)); break;
+                case "--rounds": simulation.setRoundLimit(Long.parseLong(value)); break;
+                case "--seconds": simulation.setTimeLimitMillis((long) (Double.parseDouble(value) * 1000.0)); break;
+                case "--snapshot": simulation.setSnapshotInterval(Long.parseLong(value)); break;
+                case "--output": simulation.setOutputDir(new File(value)); break;
+                case "--seed": simulation.setSeed(Long.parseLong(value)); break;
+                case "--batch": simulation.setBatchSize(Integer.parseInt(value)); break;
+                case "--record": simulation.setRecordFile(new File(value)); break;
+                case "--sample": SimulationMetrics.get().setSampleInterval(Integer.parseInt(value)); break;
+                case "--format": simulation.setSnapshotFormat(SnapshotFormat.valueOf(value.toUpperCase())); break;
+                default: throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            System.out.println(ex.getMessage());
+            printUsage();
+            System.exit(1);
+        }
+
+        // Write the final snapshot when the process is interrupted
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                simulation.stop();
+                try {
+                    simulation.awaitFinished(60_000L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        simulation.run();
     }
 }
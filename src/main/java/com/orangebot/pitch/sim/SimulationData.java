@@ -4,26 +4,171 @@
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
+import com.orangebot.pitch.HandKey;
+
+/**
+ * The SimulationData class counts the points taken for each bid hand.
+ *
+ * Counts are kept in a dense array indexed by hand key and points,
+ * so adding a result is a single array increment.  Hand keys are only
+ * converted to display strings when rows are created for a report.
+ */
 public class SimulationData {
-    private final Map<String, SimulationRow> rows;
+    private static final int BUCKETS = SimulationRow.BUCKETS;
+
+    private final int[] counts;
+    private long count;
 
     public SimulationData() {
-        rows = new HashMap<>();
+        counts = new int[HandKey.SIZE * BUCKETS];
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void add(int key, int points) {
+        counts[key * BUCKETS + points]++;
+        count++;
+    }
+
+    /**
+     * Adds several results for the same hand and points.
+     * @param key The hand key.
+     * @param points The points taken.
+     * @param n The number of results.
+     */
+    public void add(int key, int points, int n) {
+        counts[key * BUCKETS + points] += n;
+        count += n;
+    }
+
+    /**
+     * Returns the number of results for a hand that took the given points.
+     * @param key The hand key.
+     * @param points The points taken.
+     * @return The number of results.
+     */
+    public int getCount(int key, int points) {
+        return counts[key * BUCKETS + points];
+    }
+
+    /**
+     * Returns the number of results for a hand.
+     * @param key The hand key.
+     * @return The number of results.
+     */
+    public long getTotal(int key) {
+        final int offset = key * BUCKETS;
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts[offset + i];
+        }
+        return total;
+    }
+
+    /**
+     * Returns the mean points taken with a hand.
+     * @param key The hand key.
+     * @return The mean, or 0 if the hand has no results.
+     */
+    public double getMean(int key) {
+        final int offset = key * BUCKETS;
+        long total = 0;
+        long sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts[offset + i];
+            sum += (long) i * counts[offset + i];
+        }
+        return total == 0 ? 0.0 : (double) sum / total;
+    }
+
+    /**
+     * Returns the sample variance of the points taken with a hand.
+     * @param key The hand key.
+     * @return The variance, or 0 if the hand has fewer than two results.
+     */
+    public double getVariance(int key) {
+        final int offset = key * BUCKETS;
+        long total = 0;
+        long sum = 0;
+        long sumSquares = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            final long n = counts[offset + i];
+            total += n;
+            sum += i * n;
+            sumSquares += i * i * n;
+        }
+        if (total < 2) {
+            return 0.0;
+        }
+        final double mean = (double) sum / total;
+        return Math.max(0.0, (sumSquares - total * mean * mean) / (total - 1));
+    }
+
+    /**
+     * Returns true if there is at least one result for a hand.
+     * @param key The hand key.
+     * @return True if the hand has results.
+     */
+    public boolean contains(int key) {
+        final int offset = key * BUCKETS;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[offset + i] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds all of the counts from another data set.
+     * @param other The other data set.
+     */
+    public void merge(SimulationData other) {
+        final int[] otherCounts = other.counts;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += otherCounts[i];
+        }
+        count += other.count;
+    }
+
+    /**
+     * Replaces all counts with the counts from another data set.
+     * @param other The other data set.
+     */
+    public void copyFrom(SimulationData other) {
+        System.arraycopy(other.counts, 0, counts, 0, counts.length);
+        count = other.count;
+    }
+
+    /**
+     * Resets all counts to zero.
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        count = 0;
     }
 
-    public void add(String token, int points) {
-        SimulationRow row = rows.get(token);
-        if (row == null) {
-            row = new SimulationRow(token);
-            rows.put(token, row);
+    /**
+     * Creates report rows for all hands with at least one result.
+     * @return The list of rows.
+     */
+    public List<SimulationRow> getRows() {
+        final List<SimulationRow> list = new ArrayList<>();
+        for (int key = 0; key < HandKey.SIZE; key++) {
+            if (contains(key)) {
+                final SimulationRow row = new SimulationRow(HandKey.toString(key));
+                System.arraycopy(counts, key * BUCKETS, row.getBuckets(), 0, BUCKETS);
+                list.add(row);
+            }
         }
-        row.getBuckets()[points]++;
+        return list;
     }
 
     public void write(File file) throws IOException {
@@ -33,14 +178,14 @@ public void write(File file) throws IOException {
     }
 
     public void write(PrintWriter out) throws IOException {
-        for (SimulationRow row : rows.values()) {
+        for (SimulationRow row : getRows()) {
             row.calculateStats();
             out.println(row);
         }
     }
 
     public void print(int n) {
-        List<SimulationRow> list = new ArrayList<>(rows.values());
+        List<SimulationRow> list = getRows();
 
         for (SimulationRow row : list) {
             row.calculateStats();
@@ -68,6 +213,6 @@ public int compare(SimulationRow r1, SimulationRow r2) {
             System.out.println(list.get(i));
         }
 
-        System.out.println(rows.size() + " unique hands");
+        System.out.println(list.size() + " unique hands");
     }
 }
@@ -6,16 +6,19 @@
 import java.text.NumberFormat;
 
 public class SimulationRow {
+    public static final int BUCKETS = 11;
+
     private final String token;
     private final int[] buckets;
     private final double[] percentages;
     private int count;
     private double mean;
+    private double standardDeviation;
 
     public SimulationRow(final String token) {
         this.token = token;
-        this.buckets = new int[11];
-        this.percentages = new double[11];
+        this.buckets = new int[BUCKETS];
+        this.percentages = new double[BUCKETS];
     }
 
     public String getToken() {
@@ -34,6 +37,19 @@ public double getMean() {
         return mean;
     }
 
+    public double getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    /**
+     * Returns the half width of the confidence interval of the mean.
+     * @param z The standard score of the confidence level (1.96 for 95%).
+     * @return The half width in points.
+     */
+    public double getConfidenceHalfWidth(double z) {
+        return count == 0 ? Double.POSITIVE_INFINITY : z * standardDeviation / Math.sqrt(count);
+    }
+
     public void calculateStats() {
         count = 0;
         for (int i = 0; i < buckets.length; i++) {
@@ -45,6 +61,12 @@ public void calculateStats() {
             percentages[i] = ((double)buckets[i]) / ((double)count);
             mean += i * percentages[i];
         }
+
+        double sumSquares = 0.0;
+        for (int i = 0; i < buckets.length; i++) {
+            sumSquares += buckets[i] * (i - mean) * (i - mean);
+        }
+        standardDeviation = count > 1 ? Math.sqrt(sumSquares / (count - 1)) : 0.0;
     }
 
     public int getPointsAtPercentile(double p) {
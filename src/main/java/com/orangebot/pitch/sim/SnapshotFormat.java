@@ -0,0 +1,25 @@
+package com.orangebot.pitch.sim;
+
+/**
+ * The file formats for simulation snapshots.
+ */
+public enum SnapshotFormat {
+    /** One text row per hand, see {@link SimulationRow#toString()}. */
+    CSV(".csv"),
+
+    /** Gzip compressed CSV. */
+    CSV_GZIP(".csv.gz"),
+
+    /** Binary columns that can be memory mapped, see {@link BinarySnapshot}. */
+    BINARY(".snap");
+
+    private final String extension;
+
+    private SnapshotFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,156 @@
+package com.orangebot.pitch.sim;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The SnapshotReader class reads a binary snapshot through memory maps.
+ *
+ * Opening a snapshot only reads the header and maps the columns, and
+ * the counts are read straight from the mapped columns without parsing.
+ *
+ * @see BinarySnapshot
+ */
+public class SnapshotReader implements Closeable {
+    private final RandomAccessFile raf;
+    private final int rowCount;
+    private final int bucketCount;
+    private final long totalCount;
+    private final IntBuffer keys;
+    private final IntBuffer[] buckets;
+
+    /**
+     * Opens a binary snapshot.
+     * @param file The snapshot file.
+     */
+    public SnapshotReader(File file) throws IOException {
+        this.raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, BinarySnapshot.HEADER_SIZE);
+            if (header.getInt() != BinarySnapshot.MAGIC) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            final int version = header.getInt();
+            if (version != BinarySnapshot.VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            this.rowCount = header.getInt();
+            this.bucketCount = header.getInt();
+            this.totalCount = header.getLong();
+
+            final long expectedSize = BinarySnapshot.columnOffset(rowCount, bucketCount + 1);
+            if (channel.size() < expectedSize) {
+                throw new IOException("Truncated snapshot file: " + file);
+            }
+
+            this.keys = mapColumn(channel, 0);
+            this.buckets = new IntBuffer[bucketCount];
+            for (int i = 0; i < bucketCount; i++) {
+                this.buckets[i] = mapColumn(channel, i + 1);
+            }
+        } catch (IOException | RuntimeException ex) {
+            raf.close();
+            throw ex;
+        }
+    }
+
+    private IntBuffer mapColumn(FileChannel channel, int column) throws IOException {
+        final long offset = BinarySnapshot.columnOffset(rowCount, column);
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, 4L * rowCount).asIntBuffer();
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    /**
+     * Returns the total number of rounds in the snapshot.
+     * @return The number of rounds.
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the hand key of a row.
+     * @param row The row index.
+     * @return The hand key.
+     */
+    public int getKey(int row) {
+        return keys.get(row);
+    }
+
+    /**
+     * Returns the number of rounds of a row that took the given points.
+     * @param row The row index.
+     * @param points The points.
+     * @return The number of rounds.
+     */
+    public int getCount(int row, int points) {
+        return buckets[points].get(row);
+    }
+
+    /**
+     * Returns the row of a hand key.
+     * @param key The hand key.
+     * @return The row index, or -1 if the hand is not in the snapshot.
+     */
+    public int findRow(int key) {
+        int low = 0;
+        int high = rowCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midKey = keys.get(mid);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Rebuilds the simulation data from the snapshot.
+     * @return The simulation data.
+     */
+    public SimulationData toSimulationData() {
+        final SimulationData data = new SimulationData();
+        final int n = Math.min(bucketCount, SimulationRow.BUCKETS);
+        for (int row = 0; row < rowCount; row++) {
+            final int key = keys.get(row);
+            for (int i = 0; i < n; i++) {
+                data.add(key, i, buckets[i].get(row));
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Loads the simulation data from a binary snapshot file.
+     * @param file The snapshot file.
+     * @return The simulation data.
+     */
+    public static SimulationData load(File file) throws IOException {
+        try (SnapshotReader reader = new SnapshotReader(file)) {
+            return reader.toSimulationData();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        raf.close();
+    }
+}
@@ -0,0 +1,155 @@
+package com.orangebot.pitch.sim;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+import com.orangebot.pitch.metrics.Phase;
+import com.orangebot.pitch.metrics.SimulationMetrics;
+
+/**
+ * The SnapshotWriter class writes simulation snapshots on a background thread.
+ *
+ * A snapshot is frozen by copying the counts into one of two spare
+ * buffers, which is a single array copy, and the buffer is then written
+ * by a dedicated I/O thread.  The caller only waits if both buffers are
+ * still queued for writing.
+ *
+ * A failed write does not stop the I/O thread.  The first failure is
+ * kept, with any later ones suppressed in it, and is thrown by
+ * {@link #close()}.
+ *
+ * @see SnapshotFormat
+ */
+public class SnapshotWriter {
+    private final SnapshotFormat format;
+    private final BlockingQueue<SimulationData> freeBuffers;
+    private final BlockingQueue<Job> jobs;
+    private final Thread thread;
+    private volatile IOException failure;
+
+    /**
+     * Creates a new snapshot writer and starts its I/O thread.
+     * @param format The snapshot file format.
+     */
+    public SnapshotWriter(SnapshotFormat format) {
+        this.format = format;
+        this.freeBuffers = new ArrayBlockingQueue<>(2);
+        this.freeBuffers.add(new SimulationData());
+        this.freeBuffers.add(new SimulationData());
+        this.jobs = new ArrayBlockingQueue<>(2);
+        this.thread = new Thread("snapshot-writer") {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        };
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Returns the file name extension of the snapshots.
+     * @return The file name extension.
+     */
+    public String getExtension() {
+        return format.getExtension();
+    }
+
+    /**
+     * Freezes a copy of the data and queues it for writing.
+     * @param data The data to write.
+     * @param file The output file.
+     */
+    public void submit(SimulationData data, File file) throws InterruptedException {
+        final SimulationData buffer = freeBuffers.take();
+        buffer.copyFrom(data);
+        jobs.put(new Job(buffer, file));
+    }
+
+    /**
+     * Waits for all queued snapshots to be written and stops the I/O thread.
+     * @throws IOException If any snapshot could not be written.
+     */
+    public void close() throws InterruptedException, IOException {
+        jobs.put(new Job(null, null));
+        thread.join();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            final Job job;
+            try {
+                job = jobs.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (job.data == null) {
+                return;
+            }
+
+            final long startTime = System.nanoTime();
+            try {
+                write(job.data, job.file);
+                final long nanos = System.nanoTime() - startTime;
+                SimulationMetrics.get().record(Phase.SNAPSHOT_WRITE, nanos);
+                final double duration = nanos / 1e9;
+                System.out.println("Wrote " + job.file + " in " + duration + " seconds");
+            } catch (IOException | RuntimeException e) {
+                // Keep the thread alive so that submit() and close() never wait forever
+                fail(new IOException("Could not write " + job.file, e));
+            } finally {
+                freeBuffers.add(job.data);
+            }
+        }
+    }
+
+    private void fail(IOException ex) {
+        if (failure == null) {
+            failure = ex;
+        } else {
+            failure.addSuppressed(ex);
+        }
+    }
+
+    private void write(SimulationData data, File file) throws IOException {
+        if (format == SnapshotFormat.BINARY) {
+            BinarySnapshot.write(data, file);
+            return;
+        }
+
+        try (OutputStream fileStream = new FileOutputStream(file);
+                OutputStream stream = format == SnapshotFormat.CSV_GZIP
+                        ? new GZIPOutputStream(fileStream, 1 << 16) : fileStream;
+                PrintWriter out = new PrintWriter(new BufferedWriter(
+                        new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16))) {
+            data.write(out);
+            // PrintWriter swallows I/O errors, so they are only seen here
+            if (out.checkError()) {
+                throw new IOException("Error writing " + file);
+            }
+        }
+    }
+
+    private static class Job {
+        private final SimulationData data;
+        private final File file;
+
+        private Job(SimulationData data, File file) {
+            this.data = data;
+            this.file = file;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.orangebot.pitch.sim;
+
+import java.io.File;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.commons.lang3.Validate;
+
+import com.orangebot.pitch.HandKey;
+
+/**
+ * The StratifiedSimulation class collects the bidder hand statistics by
+ * enumeration instead of blind sampling.
+ *
+ * Every trump holding the bidder can have after the discard is visited
+ * in {@link HandKey} rank order, and each one is played for the same
+ * number of deals, see {@link HoldingPlayer}.  Every row of the result
+ * therefore has the same number of samples, however rare the holding is.
+ *
+ * The holdings are split across cores with a fork/join pool.  Each
+ * holding seeds its own generator from the run seed and its rank, so the
+ * result does not depend on the number of threads.
+ */
+public class StratifiedSimulation {
+    private static final int LEAF_HOLDINGS = 32;
+
+    private final Queue<HoldingPlayer> players;
+    private int dealsPerHand;
+    private int maxTrump;
+    private int parallelism;
+    private long seed;
+
+    public StratifiedSimulation() {
+        this.players = new ConcurrentLinkedQueue<>();
+        this.dealsPerHand = 1000;
+        this.maxTrump = 9;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        this.seed = System.nanoTime();
+    }
+
+    /**
+     * Sets the number of deals played for every holding.
+     * @param dealsPerHand The number of deals.
+     */
+    public void setDealsPerHand(int dealsPerHand) {
+        Validate.isTrue(dealsPerHand > 0, "Deals per hand must be positive");
+        this.dealsPerHand = dealsPerHand;
+    }
+
+    /**
+     * Sets the largest holding to enumerate.
+     * @param maxTrump The maximum number of trump cards (0-9).
+     */
+    public void setMaxTrump(int maxTrump) {
+        Validate.inclusiveBetween(0, 9, maxTrump);
+        this.maxTrump = maxTrump;
+    }
+
+    /**
+     * Sets the number of threads.
+     * @param parallelism The number of threads.
+     */
+    public void setParallelism(int parallelism) {
+        Validate.isTrue(parallelism > 0, "Parallelism must be positive");
+        this.parallelism = parallelism;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Plays every holding and returns the combined data.
+     * @return The data with one row per holding.
+     */
+    public SimulationData run() {
+        players.clear();
+        final ThreadLocal<HoldingPlayer> localPlayer = new ThreadLocal<HoldingPlayer>() {
+            @Override
+            protected HoldingPlayer initialValue() {
+                final HoldingPlayer player = new HoldingPlayer();
+                players.add(player);
+                return player;
+            }
+        };
+
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new HoldingTask(localPlayer, 0, HandKey.count(maxTrump)));
+        } finally {
+            pool.shutdown();
+        }
+
+        final SimulationData data = new SimulationData();
+        for (HoldingPlayer player : players) {
+            data.merge(player.getData());
+        }
+        return data;
+    }
+
+    /**
+     * Plays a range of holdings, splitting it while it is large.
+     */
+    private class HoldingTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ThreadLocal<HoldingPlayer> localPlayer;
+        private final int start;
+        private final int end;
+
+        private HoldingTask(ThreadLocal<HoldingPlayer> localPlayer, int start, int end) {
+            this.localPlayer = localPlayer;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= LEAF_HOLDINGS) {
+                final HoldingPlayer player = localPlayer.get();
+                for (int rank = start; rank < end; rank++) {
+                    player.play(HandKey.unrank(rank), dealsPerHand, seed ^ (0x9E3779B97F4A7C15L * (rank + 1)));
+                }
+            } else {
+                final int mid = (start + end) >>> 1;
+                invokeAll(new HoldingTask(localPlayer, start, mid), new HoldingTask(localPlayer, mid, end));
+            }
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: StratifiedSimulation [options]");
+        System.out.println("  --deals N       Deals per holding (default: 1000)");
+        System.out.println("  --max-trump N   Largest holding to enumerate (default: 9)");
+        System.out.println("  --threads N     Number of threads (default: available processors)");
+        System.out.println("  --seed N        Random seed");
+        System.out.println("  --output FILE   Output file (default: stratified-<time>.csv)");
+    }
+
+    public static void main(String[] args) throws Exception {
+        final StratifiedSimulation simulation = new StratifiedSimulation();
+        File output = new File("stratified-" + System.currentTimeMillis() + ".csv");
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                final String arg = args[i];
+                if (arg.equals("--help")) {
+                    printUsage();
+                    return;
+                }
+
+                Validate.isTrue(i + 1 < args.length, "Missing value for %s", arg);
+                final String value = args[++i];
+                switch (arg) {
+                case "--deals": simulation.setDealsPerHand(Integer.parseInt(value)); break;
+                case "--max-trump": simulation.setMaxTrump(Integer.parseInt(value)); break;
+                case "--threads": simulation.setParallelism(Integer.parseInt(value)); break;
+                case "--seed": simulation.setSeed(Long.parseLong(value)); break;
+                case "--output": output = new File(value); break;
+                default: throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            System.out.println(ex.getMessage());
+            printUsage();
+            System.exit(1);
+        }
+
+        final long startTime = System.currentTimeMillis();
+        final SimulationData data = simulation.run();
+        data.write(output);
+        final double duration = (System.currentTimeMillis() - startTime) / 1000.0;
+        System.out.println(data.getCount() + " rounds in " + duration + " seconds");
+    }
+}
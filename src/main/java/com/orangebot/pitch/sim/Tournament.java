@@ -0,0 +1,218 @@
+package com.orangebot.pitch.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.commons.lang3.Validate;
+
+import com.orangebot.pitch.PitchGame.PlayerStrategy;
+import com.orangebot.pitch.RandomSource;
+import com.orangebot.pitch.strats.MonteCarloStrategy;
+import com.orangebot.pitch.strats.SimpleStrategy;
+
+/**
+ * The Tournament class compares strategies on duplicate deals.
+ *
+ * Every pair of entrants plays each deal twice, with the seats rotated
+ * between the teams, and the paired score differences are collected in
+ * a {@link TournamentResult}.  The deals are spread over a work-stealing
+ * pool.  Every deal is generated from its own seed, and the strategies'
+ * random source is reseeded for every game, so with strategies that only
+ * draw from that source the result does not depend on the number of
+ * threads.
+ */
+public class Tournament {
+    private static final int LEAF_DEALS = 64;
+
+    private final List<String> names;
+    private final List<StrategyFactory> factories;
+    private final Queue<TournamentTable> tables;
+    private long deals;
+    private int parallelism;
+    private long seed;
+
+    public Tournament() {
+        this.names = new ArrayList<>();
+        this.factories = new ArrayList<>();
+        this.tables = new ConcurrentLinkedQueue<>();
+        this.deals = 10_000L;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        this.seed = System.nanoTime();
+    }
+
+    /**
+     * Adds an entrant.
+     * The factory is called once per thread, and the strategies it
+     * creates should draw their random numbers from the given source.
+     * @param name The display name.
+     * @param factory The strategy factory.
+     */
+    public void addEntrant(String name, StrategyFactory factory) {
+        Validate.notNull(name);
+        Validate.notNull(factory);
+        names.add(name);
+        factories.add(factory);
+    }
+
+    /**
+     * Sets the number of deals.
+     * @param deals The number of deals.
+     */
+    public void setDeals(long deals) {
+        Validate.isTrue(deals > 0, "Deals must be positive");
+        this.deals = deals;
+    }
+
+    /**
+     * Sets the number of threads.
+     * @param parallelism The number of threads.
+     */
+    public void setParallelism(int parallelism) {
+        Validate.isTrue(parallelism > 0, "Parallelism must be positive");
+        this.parallelism = parallelism;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Plays every deal for every pair of entrants.
+     * @return The paired results.
+     */
+    public TournamentResult run() {
+        Validate.validState(names.size() >= 2, "A tournament needs two entrants");
+        final StrategyFactory[] factoryArray = factories.toArray(new StrategyFactory[factories.size()]);
+        tables.clear();
+        final ThreadLocal<TournamentTable> localTable = new ThreadLocal<TournamentTable>() {
+            @Override
+            protected TournamentTable initialValue() {
+                final TournamentTable table = new TournamentTable(factoryArray);
+                tables.add(table);
+                return table;
+            }
+        };
+
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new DealTask(localTable, seed, 0, deals));
+        } finally {
+            pool.shutdown();
+        }
+
+        final TournamentResult result = new TournamentResult(names.toArray(new String[names.size()]));
+        for (TournamentTable table : tables) {
+            result.merge(table);
+        }
+        return result;
+    }
+
+    /**
+     * The StrategyFactory interface creates the strategy of an entrant.
+     */
+    public static interface StrategyFactory {
+        public PlayerStrategy create(RandomSource random);
+    }
+
+    /**
+     * Plays a range of deals, splitting it while it is large.
+     */
+    private static class DealTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ThreadLocal<TournamentTable> localTable;
+        private final long seed;
+        private final long start;
+        private final long end;
+
+        private DealTask(ThreadLocal<TournamentTable> localTable, long seed, long start, long end) {
+            this.localTable = localTable;
+            this.seed = seed;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= LEAF_DEALS) {
+                final TournamentTable table = localTable.get();
+                for (long i = start; i < end; i++) {
+                    table.play(seed ^ (0xBF58476D1CE4E5B9L * (i + 1)));
+                }
+            } else {
+                final long mid = (start + end) >>> 1;
+                invokeAll(new DealTask(localTable, seed, start, mid),
+                        new DealTask(localTable, seed, mid, end));
+            }
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: Tournament [options]");
+        System.out.println("  --deals N       Number of duplicate deals (default: 10000)");
+        System.out.println("  --playouts N    Playouts per Monte Carlo decision (default: 1000)");
+        System.out.println("  --z X           Standard score of the confidence level (default: 1.96)");
+        System.out.println("  --threads N     Number of threads (default: available processors)");
+        System.out.println("  --seed N        Random seed");
+    }
+
+    /**
+     * Plays the simple strategy against the Monte Carlo strategy.
+     */
+    public static void main(String[] args) throws Exception {
+        final Tournament tournament = new Tournament();
+        double z = 1.96;
+        long playouts = 1000L;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                final String arg = args[i];
+                if (arg.equals("--help")) {
+                    printUsage();
+                    return;
+                }
+
+                Validate.isTrue(i + 1 < args.length, "Missing value for %s", arg);
+                final String value = args[++i];
+                switch (arg) {
+                case "--deals": tournament.setDeals(Long.parseLong(value)); break;
+                case "--playouts": playouts = Long.parseLong(value); break;
+                case "--z": z = Double.parseDouble(value); break;
+                case "--threads": tournament.setParallelism(Integer.parseInt(value)); break;
+                case "--seed": tournament.setSeed(Long.parseLong(value)); break;
+                default: throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            System.out.println(ex.getMessage());
+            printUsage();
+            System.exit(1);
+        }
+
+        final long monteCarloPlayouts = playouts;
+        tournament.addEntrant("simple", new StrategyFactory() {
+            @Override
+            public PlayerStrategy create(RandomSource random) {
+                return new SimpleStrategy(random);
+            }
+        });
+        tournament.addEntrant("montecarlo", new StrategyFactory() {
+            @Override
+            public PlayerStrategy create(RandomSource random) {
+                final MonteCarloStrategy strategy = new MonteCarloStrategy(1, random);
+                strategy.setPlayouts(monteCarloPlayouts);
+                return strategy;
+            }
+        });
+
+        final long startTime = System.currentTimeMillis();
+        final TournamentResult result = tournament.run();
+        result.print(System.out, z);
+        final double duration = (System.currentTimeMillis() - startTime) / 1000.0;
+        System.out.println(result.getDealCount() + " deals in " + duration + " seconds");
+    }
+}
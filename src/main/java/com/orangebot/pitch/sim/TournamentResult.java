@@ -0,0 +1,110 @@
+package com.orangebot.pitch.sim;
+
+import java.io.PrintStream;
+
+/**
+ * The TournamentResult class holds the paired score differences of a
+ * {@link Tournament}.
+ *
+ * For each pair of entrants and each deal, the difference is the first
+ * entrant's game score less the second entrant's, summed over both seat
+ * rotations.  Because both entrants play the same cards, most of the
+ * luck of the deal cancels, and the confidence interval of the mean
+ * difference is much narrower than for independent games.
+ */
+public class TournamentResult {
+    private final String[] names;
+    private final long[] sums;
+    private final long[] squares;
+    private long dealCount;
+
+    TournamentResult(String[] names) {
+        this.names = names;
+        this.sums = new long[names.length * names.length];
+        this.squares = new long[names.length * names.length];
+    }
+
+    /**
+     * Adds the deals played by a table.
+     * @param table The table.
+     */
+    void merge(TournamentTable table) {
+        for (int i = 0; i < names.length; i++) {
+            for (int j = i + 1; j < names.length; j++) {
+                sums[i * names.length + j] += table.getSum(i, j);
+                squares[i * names.length + j] += table.getSumOfSquares(i, j);
+            }
+        }
+        dealCount += table.getDealCount();
+    }
+
+    public int getEntrantCount() {
+        return names.length;
+    }
+
+    public String getName(int i) {
+        return names[i];
+    }
+
+    public long getDealCount() {
+        return dealCount;
+    }
+
+    /**
+     * Returns the mean score difference per deal.
+     * @param i The first entrant.
+     * @param j The second entrant.
+     * @return The mean difference in favor of the first entrant.
+     */
+    public double getMeanDifference(int i, int j) {
+        if (i > j) {
+            return -getMeanDifference(j, i);
+        }
+        return dealCount == 0 ? 0.0 : (double) sums[i * names.length + j] / dealCount;
+    }
+
+    /**
+     * Returns the sample standard deviation of the paired differences.
+     * @param i The first entrant.
+     * @param j The second entrant.
+     * @return The standard deviation.
+     */
+    public double getStandardDeviation(int i, int j) {
+        if (i > j) {
+            return getStandardDeviation(j, i);
+        }
+        if (dealCount < 2) {
+            return 0.0;
+        }
+        final double sum = sums[i * names.length + j];
+        final double variance = (squares[i * names.length + j] - sum * sum / dealCount) / (dealCount - 1);
+        return Math.sqrt(Math.max(0.0, variance));
+    }
+
+    /**
+     * Returns the half width of the confidence interval of the mean difference.
+     * @param i The first entrant.
+     * @param j The second entrant.
+     * @param z The standard score of the confidence level (1.96 for 95%).
+     * @return The half width.
+     */
+    public double getConfidenceHalfWidth(int i, int j, double z) {
+        return dealCount == 0 ? 0.0 : z * getStandardDeviation(i, j) / Math.sqrt(dealCount);
+    }
+
+    /**
+     * Prints one line per pair of entrants.
+     * @param out The output stream.
+     * @param z The standard score of the confidence level.
+     */
+    public void print(PrintStream out, double z) {
+        out.println(dealCount + " duplicate deals");
+        for (int i = 0; i < names.length; i++) {
+            for (int j = i + 1; j < names.length; j++) {
+                out.println(String.format("%s vs %s: %+.4f +/- %.4f per deal (sd %.3f)",
+                        names[i], names[j], getMeanDifference(i, j),
+                        getConfidenceHalfWidth(i, j, z), getStandardDeviation(i, j)));
+            }
+        }
+    }
+}
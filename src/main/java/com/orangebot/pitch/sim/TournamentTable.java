@@ -0,0 +1,117 @@
+package com.orangebot.pitch.sim;
+
+import com.orangebot.pitch.CardGame;
+import com.orangebot.pitch.FastRandom;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.PitchGame.PlayerStrategy;
+import com.orangebot.pitch.sim.Tournament.StrategyFactory;
+
+/**
+ * The TournamentTable class plays duplicate deals for a {@link Tournament}.
+ *
+ * Each pair of entrants plays every deal twice with the same cards in
+ * the same seats, once as team 0 and once as team 1, and the strategies
+ * are given the same random numbers both times.  Each instance owns its
+ * strategies and games, so one instance should be used per thread.
+ */
+class TournamentTable {
+    private final int entrantCount;
+    private final FastRandom random;
+    private final FastRandom dealRandom;
+    private final PitchGame[] games;
+    private final int[] deal;
+    private final long[] sums;
+    private final long[] squares;
+    private long dealCount;
+
+    TournamentTable(StrategyFactory[] factories) {
+        this.entrantCount = factories.length;
+        this.random = new FastRandom();
+        this.dealRandom = new FastRandom();
+        this.deal = new int[CardGame.DECK_SIZE];
+        this.sums = new long[entrantCount * entrantCount];
+        this.squares = new long[entrantCount * entrantCount];
+
+        final PlayerStrategy[] strategies = new PlayerStrategy[entrantCount];
+        for (int i = 0; i < entrantCount; i++) {
+            strategies[i] = factories[i].create(random);
+        }
+
+        // One game for every ordered pair, the first entrant as team 0
+        this.games = new PitchGame[entrantCount * entrantCount];
+        for (int i = 0; i < entrantCount; i++) {
+            for (int j = 0; j < entrantCount; j++) {
+                if (i != j) {
+                    final PlayerStrategy a = strategies[i];
+                    final PlayerStrategy b = strategies[j];
+                    games[i * entrantCount + j] = new PitchGame(random, a, b, a, b);
+                }
+            }
+        }
+    }
+
+    long getDealCount() {
+        return dealCount;
+    }
+
+    /**
+     * Returns the sum of the paired differences of one pair.
+     * @param i The first entrant.
+     * @param j The second entrant, greater than the first.
+     * @return The sum of the score differences in favor of the first entrant.
+     */
+    long getSum(int i, int j) {
+        return sums[i * entrantCount + j];
+    }
+
+    long getSumOfSquares(int i, int j) {
+        return squares[i * entrantCount + j];
+    }
+
+    void clear() {
+        dealCount = 0;
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] = 0;
+            squares[i] = 0;
+        }
+    }
+
+    /**
+     * Plays one deal for every pair.
+     * The results only depend on the arguments, not on earlier calls.
+     * @param seed The random seed for this deal.
+     */
+    void play(long seed) {
+        dealRandom.setSeed(seed);
+        for (int i = 0; i < deal.length; i++) {
+            final int j = dealRandom.nextInt(i + 1);
+            deal[i] = deal[j];
+            deal[j] = i;
+        }
+        final long strategySeed = dealRandom.nextLong();
+
+        for (int i = 0; i < entrantCount; i++) {
+            for (int j = i + 1; j < entrantCount; j++) {
+                final long d = playGame(i, j, strategySeed) - playGame(j, i, strategySeed);
+                sums[i * entrantCount + j] += d;
+                squares[i * entrantCount + j] += d * d;
+            }
+        }
+        dealCount++;
+    }
+
+    /**
+     * Plays the deal once.
+     * @param team0 The entrant in seats P1 and P3.
+     * @param team1 The entrant in seats P2 and P4.
+     * @param strategySeed The seed of the strategies' random numbers.
+     * @return The score of team 0 less the score of team 1.
+     */
+    private int playGame(int team0, int team1, long strategySeed) {
+        final PitchGame game = games[team0 * entrantCount + team1];
+        game.resetGame();
+        random.setSeed(strategySeed);
+        game.playRound(deal);
+        return game.getScore(0) - game.getScore(1);
+    }
+}
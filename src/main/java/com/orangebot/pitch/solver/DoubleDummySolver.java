@@ -0,0 +1,317 @@
+package com.orangebot.pitch.solver;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang3.Validate;
+
+import com.orangebot.pitch.CardGame.Suit;
+import com.orangebot.pitch.GameState;
+import com.orangebot.pitch.HandKey;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.PitchGame.PlayerId;
+import com.orangebot.pitch.TrumpTable;
+
+/**
+ * The DoubleDummySolver class finds the optimal point split of the trick
+ * play when every hand is known.
+ *
+ * After the bury every card in play is trump, so each hand is a
+ * {@link HandKey}.  Team 0 (P1 and P3) maximizes its points and team 1
+ * minimizes them, with alpha-beta search over the remaining cards.
+ *
+ * The value of a position at the start of a hand only depends on the
+ * remaining cards and the lead, so those values are stored in a
+ * transposition table that is kept between solves.  Moves are ordered
+ * by sort value: a player who can take the hand from the opponents tries
+ * the highest card first, otherwise the lowest card first.  Cards that
+ * are adjacent among the live cards and score the same are equivalent,
+ * so only one of them is searched.
+ *
+ * Positions are read from a {@link GameState}, which follows the rules
+ * of {@link PitchGame} card by card.  The search itself plays on the
+ * hand keys: a position is four 16 bit keys and the hand in progress,
+ * so a move is a bit flip, and the keys of the four hands form the
+ * transposition table key.
+ *
+ * A solver is not thread safe; use one solver per thread.
+ */
+public class DoubleDummySolver {
+    private static final int DEFAULT_TABLE_BITS = 20;
+    private static final int EXACT = 1;
+    private static final int LOWER = 2;
+    private static final int UPPER = 3;
+
+    private final int[] hands;
+    private final int[] moves;
+    private final GameState state;
+    private final long[] tableKeys;
+    private final int[] tableEntries;
+    private final int tableShift;
+    private long nodeCount;
+
+    public DoubleDummySolver() {
+        this(DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * Creates a new solver.
+     * @param tableBits The log2 of the number of transposition table entries.
+     */
+    public DoubleDummySolver(int tableBits) {
+        Validate.inclusiveBetween(1, 30, tableBits);
+        this.hands = new int[4];
+        this.moves = new int[(HandKey.TRUMP_COUNT + 1) * HandKey.TRUMP_COUNT];
+        this.state = new GameState();
+        this.tableKeys = new long[1 << tableBits];
+        this.tableEntries = new int[1 << tableBits];
+        this.tableShift = 64 - tableBits;
+    }
+
+    /**
+     * Solves the rest of the trick play of a game, typically after
+     * {@link PitchGame#bury()}.
+     * @param game The game.
+     * @return The points team 0 takes in the remaining hands.
+     */
+    public int solve(PitchGame game) {
+        state.set(game);
+        return solve(state);
+    }
+
+    /**
+     * Solves the rest of the trick play from a state, which may be in the
+     * middle of a hand.
+     * @param state The state.
+     * @return The points team 0 takes from here on, including the cards
+     * of the hand in progress.
+     */
+    public int solve(GameState state) {
+        final TrumpTable table = TrumpTable.get(state.getTrump());
+        for (int i = 0; i < hands.length; i++) {
+            hands[i] = table.getHandKey(state.getHandMask(i));
+        }
+
+        final long center = state.getCenterMask();
+        if (center == 0L) {
+            return searchHand(state.getLead(), -1, 11);
+        }
+
+        // Replay the hand in progress, which is the last of the moves
+        int highBit = -1;
+        int highPoints = 0;
+        int fixedPoints = 0;
+        for (int i = state.getMoveCount() - Long.bitCount(center); i < state.getMoveCount(); i++) {
+            final int bit = Integer.numberOfTrailingZeros(table.getHandKey(1L << state.getMove(i)));
+            if (bit == 0) {
+                fixedPoints += (state.getMoveSeat(i) & 1) == 0 ? HandKey.pointValue(0) : 0;
+            } else {
+                highPoints += HandKey.pointValue(bit);
+            }
+            highBit = Math.max(highBit, bit);
+        }
+
+        final int seat = state.getSeat();
+        int count = 1;
+        for (int s = (seat + 1) & 3; s != state.getLead(); s = (s + 1) & 3) {
+            if (hands[s] != 0) {
+                count++;
+            }
+        }
+        return searchCard(seat, count, state.getHighSeat(), highBit, highPoints, fixedPoints, -1, 11);
+    }
+
+    /**
+     * Solves the trick play for known card masks.
+     * Non-trump cards in the masks are ignored.
+     * @param masks The card masks of the four players.
+     * @param trump The trump suit.
+     * @param lead The player who leads the first hand.
+     * @return The points team 0 takes in the remaining hands.
+     */
+    public int solve(long[] masks, Suit trump, PlayerId lead) {
+        Validate.isTrue(masks.length == 4, "Four hands are required");
+        final TrumpTable table = TrumpTable.get(trump);
+        final int[] keys = new int[4];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = table.getHandKey(masks[i]);
+        }
+        return solve(keys, lead);
+    }
+
+    /**
+     * Solves the trick play for known trump holdings.
+     * The other team takes the rest of the points in the hands.
+     * @param keys The hand keys of the four players.
+     * @param lead The player who leads the first hand.
+     * @return The points team 0 takes in the remaining hands.
+     */
+    public int solve(int[] keys, PlayerId lead) {
+        Validate.isTrue(keys.length == 4, "Four hands are required");
+        Validate.notNull(lead);
+        int all = 0;
+        for (int i = 0; i < keys.length; i++) {
+            Validate.isTrue((all & keys[i]) == 0, "Hands must not share cards");
+            all |= keys[i];
+            hands[i] = keys[i];
+        }
+        return searchHand(lead.getIndex(), -1, 11);
+    }
+
+    /**
+     * Returns the number of positions searched since the solver was created.
+     * @return The node count.
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Clears the transposition table.
+     */
+    public void clear() {
+        Arrays.fill(tableKeys, 0L);
+        Arrays.fill(tableEntries, 0);
+    }
+
+    /**
+     * Searches a position at the start of a hand.
+     * @param lead The seat that leads.
+     * @param alpha The lower bound of the window.
+     * @param beta The upper bound of the window.
+     * @return The points team 0 takes in the remaining hands.
+     */
+    private int searchHand(int lead, int alpha, int beta) {
+        final long key = (hands[0] & 0xFFFFL)
+                | (hands[1] & 0xFFFFL) << 16
+                | (hands[2] & 0xFFFFL) << 32
+                | (hands[3] & 0xFFFFL) << 48;
+        if (key == 0L) {
+            return 0;
+        }
+
+        final int index = (int) (((key ^ (lead + 1) * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L) >>> tableShift);
+        final int entry = tableEntries[index];
+        if (tableKeys[index] == key && entry != 0 && (entry & 3) == lead) {
+            final int flag = (entry >>> 2) & 3;
+            final int value = entry >>> 4;
+            if (flag == EXACT
+                    || (flag == LOWER && value >= beta)
+                    || (flag == UPPER && value <= alpha)) {
+                return value;
+            }
+        }
+
+        int count = 0;
+        for (int i = 0; i < 4; i++) {
+            if (hands[i] != 0) {
+                count++;
+            }
+        }
+
+        final int value = searchCard(lead, count, -1, -1, 0, 0, alpha, beta);
+        final int flag = value <= alpha ? UPPER : value >= beta ? LOWER : EXACT;
+        tableKeys[index] = key;
+        tableEntries[index] = value << 4 | flag << 2 | lead;
+        return value;
+    }
+
+    /**
+     * Searches the choice of card for the next player in the hand.
+     * @param seat The first seat that may play next.
+     * @param count The number of players still to play in this hand.
+     * @param highSeat The seat holding the high card, or -1.
+     * @param highBit The key bit of the high card, or -1.
+     * @param highPoints The points that go to the team of the high card.
+     * @param fixedPoints The points team 0 takes whoever wins (its deuce).
+     * @param alpha The lower bound of the window.
+     * @param beta The upper bound of the window.
+     * @return The points team 0 takes in this and the remaining hands.
+     */
+    private int searchCard(int seat, int count, int highSeat, int highBit,
+            int highPoints, int fixedPoints, int alpha, int beta) {
+        nodeCount++;
+        if (count == 0) {
+            final int gain = fixedPoints + ((highSeat & 1) == 0 ? highPoints : 0);
+            return gain + searchHand(highSeat, alpha - gain, beta - gain);
+        }
+
+        while (hands[seat] == 0) {
+            seat = (seat + 1) & 3;
+        }
+
+        final int hand = hands[seat];
+        final int remaining = hands[0] | hands[1] | hands[2] | hands[3];
+        final int live = remaining | (highBit >= 0 ? 1 << highBit : 0);
+        final int base = Integer.bitCount(remaining) * HandKey.TRUMP_COUNT;
+        final int n = generateMoves(hand, live, base);
+        final boolean ascending = (highSeat >= 0 && ((highSeat ^ seat) & 1) == 0)
+                || 31 - Integer.numberOfLeadingZeros(hand) < highBit;
+        final boolean maximize = (seat & 1) == 0;
+        int best = maximize ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+
+        for (int i = 0; i < n; i++) {
+            final int bit = moves[base + (ascending ? n - 1 - i : i)];
+            final boolean high = bit > highBit;
+            int points = highPoints;
+            int fixed = fixedPoints;
+            if (bit == 0) {
+                // The deuce always scores for the team that plays it
+                fixed += maximize ? HandKey.pointValue(0) : 0;
+            } else {
+                points += HandKey.pointValue(bit);
+            }
+
+            hands[seat] ^= 1 << bit;
+            final int value = searchCard((seat + 1) & 3, count - 1,
+                    high ? seat : highSeat, high ? bit : highBit,
+                    points, fixed, alpha, beta);
+            hands[seat] ^= 1 << bit;
+
+            if (maximize) {
+                if (value > best) {
+                    best = value;
+                    if (best > alpha) {
+                        alpha = best;
+                    }
+                }
+            } else if (value < best) {
+                best = value;
+                if (best < beta) {
+                    beta = best;
+                }
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Writes the distinct moves of a hand from highest to lowest.
+     * A card is skipped when no live card lies between it and the next
+     * higher card in the hand and both score the same.  The deuce is
+     * never skipped because it scores for the team that plays it.
+     * @param hand The hand key.
+     * @param live The key of all live cards.
+     * @param base The offset in the move buffer.
+     * @return The number of moves.
+     */
+    private int generateMoves(int hand, int live, int base) {
+        int n = 0;
+        int previous = -1;
+        for (int m = hand; m != 0; ) {
+            final int bit = 31 - Integer.numberOfLeadingZeros(m);
+            m ^= 1 << bit;
+            final boolean equivalent = previous >= 0 && bit != 0
+                    && HandKey.pointValue(bit) == HandKey.pointValue(previous)
+                    && (live & ((1 << previous) - (2 << bit))) == 0;
+            if (!equivalent) {
+                moves[base + n++] = bit;
+            }
+            previous = bit;
+        }
+        return n;
+    }
+}
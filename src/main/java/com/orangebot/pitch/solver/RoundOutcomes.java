@@ -0,0 +1,215 @@
+package com.orangebot.pitch.solver;
+
+import org.apache.commons.lang3.Validate;
+
+import com.orangebot.pitch.FastRandom;
+import com.orangebot.pitch.HandKey;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.PitchGame.PlayerId;
+import com.orangebot.pitch.strats.SimpleStrategy;
+
+/**
+ * The RoundOutcomes class counts how rounds end, for a
+ * {@link WinProbabilitySolver}.
+ *
+ * A round is counted by whether the dealer's team won the auction, by the
+ * class of the bidder's trump holding (see {@link #getHandClass(int)}), and
+ * by the points taken by the bidding team and by the other team.  The
+ * winning bid is counted separately for each holding class.  The split of
+ * the points is not kept by bid: the bid does not change how the cards
+ * are played, only whether the bidding team's points make the bid.
+ */
+public class RoundOutcomes {
+    public static final int MIN_BID = 4;
+    public static final int MAX_BID = 10;
+    public static final int MAX_POINTS = 10;
+
+    /** The number of holding classes, see {@link #getHandClass(int)}. */
+    public static final int HAND_CLASSES = 20;
+
+    /** The role of the bidding team when it is not the dealer's team. */
+    public static final int OTHER = 0;
+
+    /** The role of the bidding team when it is the dealer's team. */
+    public static final int DEALER = 1;
+
+    private static final int POINTS = MAX_POINTS + 1;
+    private static final int BIDS = MAX_BID + 1;
+    private static final int ACE = HandKey.bit(17);
+
+    private final long[] counts;
+    private final long[] bidCounts;
+    private final long[] classCounts;
+    private final long[] roleCounts;
+    private long count;
+
+    public RoundOutcomes() {
+        this.counts = new long[2 * HAND_CLASSES * POINTS * POINTS];
+        this.bidCounts = new long[2 * HAND_CLASSES * BIDS];
+        this.classCounts = new long[2 * HAND_CLASSES];
+        this.roleCounts = new long[2];
+    }
+
+    /**
+     * Returns the class of a bidder's trump holding: the number of trump,
+     * and whether the holding has the ace, which always takes high.
+     * @param bidKey The hand key of the holding, see {@link PitchGame#getBidKey()}.
+     * @return The class, from 0 to {@link #HAND_CLASSES} - 1.
+     */
+    public static int getHandClass(int bidKey) {
+        return Math.min(HandKey.size(bidKey), HAND_CLASSES / 2 - 1) * 2 + ((bidKey & ACE) != 0 ? 1 : 0);
+    }
+
+    /**
+     * Counts a round.
+     * @param role {@link #DEALER} if the dealer's team won the auction, otherwise {@link #OTHER}.
+     * @param handClass The class of the bidder's holding.
+     * @param bid The winning bid.
+     * @param bidderPoints The points taken by the bidding team.
+     * @param otherPoints The points taken by the other team.
+     */
+    public void add(int role, int handClass, int bid, int bidderPoints, int otherPoints) {
+        Validate.inclusiveBetween(OTHER, DEALER, role);
+        Validate.inclusiveBetween(0, HAND_CLASSES - 1, handClass);
+        Validate.inclusiveBetween(MIN_BID, MAX_BID, bid);
+        Validate.inclusiveBetween(0, MAX_POINTS, bidderPoints);
+        Validate.inclusiveBetween(0, MAX_POINTS, otherPoints);
+        final int c = role * HAND_CLASSES + handClass;
+        counts[(c * POINTS + bidderPoints) * POINTS + otherPoints]++;
+        bidCounts[c * BIDS + bid]++;
+        classCounts[c]++;
+        roleCounts[role]++;
+        count++;
+    }
+
+    /**
+     * Counts the round that a game has just played.
+     * @param game The game, after the round is finished.
+     * @param dealer The dealer of the round, the player after whom the auction was opened.
+     */
+    public void add(PitchGame game, PlayerId dealer) {
+        final int biddingTeam = game.getBiddingTeam();
+        final int role = biddingTeam == dealer.getTeam() ? DEALER : OTHER;
+        add(role, getHandClass(game.getBidKey()), game.getHighBid(),
+                game.getRoundScore(biddingTeam), game.getRoundScore(1 - biddingTeam));
+    }
+
+    /**
+     * Adds the rounds counted by another instance.
+     * @param other The other outcomes.
+     */
+    public void merge(RoundOutcomes other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        for (int i = 0; i < bidCounts.length; i++) {
+            bidCounts[i] += other.bidCounts[i];
+        }
+        for (int i = 0; i < classCounts.length; i++) {
+            classCounts[i] += other.classCounts[i];
+        }
+        roleCounts[0] += other.roleCounts[0];
+        roleCounts[1] += other.roleCounts[1];
+        count += other.count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getCount(int role, int handClass) {
+        return classCounts[role * HAND_CLASSES + handClass];
+    }
+
+    public long getBidCount(int role, int handClass, int bid) {
+        return bidCounts[(role * HAND_CLASSES + handClass) * BIDS + bid];
+    }
+
+    public long getCount(int role, int handClass, int bidderPoints, int otherPoints) {
+        return counts[((role * HAND_CLASSES + handClass) * POINTS + bidderPoints) * POINTS + otherPoints];
+    }
+
+    /**
+     * Returns the probability that the bidding team has a role.
+     * @param role {@link #DEALER} or {@link #OTHER}.
+     * @return The fraction of the rounds won by that team.
+     */
+    public double getRoleProbability(int role) {
+        return count == 0 ? 0.0 : (double) roleCounts[role] / count;
+    }
+
+    /**
+     * Returns the probability of a holding class, given the role of the bidding team.
+     * @param role {@link #DEALER} or {@link #OTHER}.
+     * @param handClass The holding class.
+     * @return The fraction of that team's contracts that were bid with the class.
+     */
+    public double getClassProbability(int role, int handClass) {
+        return roleCounts[role] == 0 ? 0.0 : (double) getCount(role, handClass) / roleCounts[role];
+    }
+
+    /**
+     * Returns the probability of a winning bid, given the role and the holding class.
+     * @param role {@link #DEALER} or {@link #OTHER}.
+     * @param handClass The holding class.
+     * @param bid The bid.
+     * @return The fraction of those contracts that were at the bid.
+     */
+    public double getBidProbability(int role, int handClass, int bid) {
+        final long n = getCount(role, handClass);
+        return n == 0 ? 0.0 : (double) getBidCount(role, handClass, bid) / n;
+    }
+
+    /**
+     * Returns the probability of a point split, given the role and the holding class.
+     * @param role {@link #DEALER} or {@link #OTHER}.
+     * @param handClass The holding class.
+     * @param bidderPoints The points taken by the bidding team.
+     * @param otherPoints The points taken by the other team.
+     * @return The fraction of those contracts that ended with the split.
+     */
+    public double getProbability(int role, int handClass, int bidderPoints, int otherPoints) {
+        final long n = getCount(role, handClass);
+        return n == 0 ? 0.0 : (double) getCount(role, handClass, bidderPoints, otherPoints) / n;
+    }
+
+    /**
+     * Returns the probability that a bid is made, given the role and the holding class.
+     * @param role {@link #DEALER} or {@link #OTHER}.
+     * @param handClass The holding class.
+     * @param bid The bid.
+     * @return The fraction of those contracts that took at least the bid.
+     */
+    public double getMadeProbability(int role, int handClass, int bid) {
+        final long n = getCount(role, handClass);
+        if (n == 0) {
+            return 0.0;
+        }
+        long made = 0;
+        for (int i = bid; i <= MAX_POINTS; i++) {
+            for (int j = 0; j <= MAX_POINTS; j++) {
+                made += getCount(role, handClass, i, j);
+            }
+        }
+        return (double) made / n;
+    }
+
+    /**
+     * Plays rounds with simple strategies and counts their outcomes.
+     * @param rounds The number of rounds.
+     * @param seed The random seed.
+     * @return The outcomes.
+     */
+    public static RoundOutcomes simulate(long rounds, long seed) {
+        final FastRandom random = new FastRandom(seed);
+        final SimpleStrategy s = new SimpleStrategy(random);
+        final PitchGame game = new PitchGame(random, s, s, s, s);
+        final RoundOutcomes outcomes = new RoundOutcomes();
+        for (long i = 0; i < rounds; i++) {
+            game.resetGame();
+            game.playRound();
+            outcomes.add(game, PitchGame.P4);
+        }
+        return outcomes;
+    }
+}
@@ -0,0 +1,435 @@
+package com.orangebot.pitch.solver;
+
+import java.io.PrintStream;
+
+import org.apache.commons.lang3.Validate;
+
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.PitchGame.PlayerId;
+
+/**
+ * The WinProbabilitySolver class computes the probability that team 0
+ * wins the game from every score, and the bid that maximizes the bidding
+ * team's chance to win with each class of holding.
+ *
+ * Each round is modeled by {@link RoundOutcomes}: the dealer's team wins
+ * the auction with the observed probability, the bidder's holding class
+ * follows the observed classes for that role, and the points taken follow
+ * the observed split for that holding.  Every candidate bid is scored
+ * against the same split, so the bid only decides whether the bidding
+ * team's points make it or the team is set.  The bidding team picks the
+ * bid that maximizes its own win probability for its holding, or, when
+ * bids are not optimized, bids as often as in the observed rounds with
+ * that holding.  The deal moves one seat per round, so the dealer's team
+ * alternates.  The game ends as in {@link PitchGame#getWinningTeam()}:
+ * the team that reaches {@link PitchGame#WIN_SCORE} wins, and the bidding
+ * team wins when both do.
+ *
+ * The auction is not modeled, so nothing rewards a higher bid: against
+ * the same split it only adds the risk of a set.  The best bid is
+ * therefore always the lowest bid, and solving with the observed bids
+ * shows what bidding higher costs.
+ *
+ * A set can lower the scores, so the rounds do not always move towards
+ * the end of the game, and the values are found by value iteration.
+ * Scores below the minimum score are counted as the minimum score.
+ */
+public class WinProbabilitySolver {
+    private static final double DEFAULT_TOLERANCE = 1e-12;
+    private static final int DEFAULT_MAX_ITERATIONS = 100_000;
+    private static final int POINTS = RoundOutcomes.MAX_POINTS + 1;
+    private static final int BIDS = RoundOutcomes.MAX_BID - RoundOutcomes.MIN_BID + 1;
+    private static final int CLASSES = RoundOutcomes.HAND_CLASSES;
+
+    private final RoundOutcomes outcomes;
+    private final int minScore;
+    private final int size;
+    private final double[] values;
+    private final byte[] bestBids;
+    private final double[] roleProbabilities;
+    private final int[][] handClasses;
+    private final double[][] classProbabilities;
+    private final double[][][] bidProbabilities;
+    private final int[][][] bidderPoints;
+    private final int[][][] otherPoints;
+    private final double[][][] madeProbabilities;
+    private final double[][][] setProbabilities;
+    private final double[] made;
+    private final double[] bidValues;
+    private boolean optimizeBids;
+    private double tolerance;
+    private int maxIterations;
+    private int iterations;
+
+    public WinProbabilitySolver(RoundOutcomes outcomes) {
+        this(outcomes, -PitchGame.WIN_SCORE);
+    }
+
+    /**
+     * Creates a new solver.
+     * @param outcomes The observed round outcomes.
+     * @param minScore The lowest score that is tracked.
+     */
+    public WinProbabilitySolver(RoundOutcomes outcomes, int minScore) {
+        Validate.notNull(outcomes);
+        Validate.isTrue(outcomes.getCount() > 0, "No rounds");
+        Validate.isTrue(minScore <= 0, "Minimum score must not be positive");
+        this.outcomes = outcomes;
+        this.minScore = minScore;
+        this.size = PitchGame.WIN_SCORE - minScore;
+        this.values = new double[2 * size * size];
+        this.bestBids = new byte[2 * values.length * CLASSES];
+        this.roleProbabilities = new double[2];
+        this.handClasses = new int[2][];
+        this.classProbabilities = new double[2][];
+        this.bidProbabilities = new double[2][][];
+        this.bidderPoints = new int[2][][];
+        this.otherPoints = new int[2][][];
+        this.madeProbabilities = new double[2][][];
+        this.setProbabilities = new double[2][][];
+        this.made = new double[POINTS];
+        this.bidValues = new double[BIDS];
+        this.optimizeBids = true;
+        this.tolerance = DEFAULT_TOLERANCE;
+        this.maxIterations = DEFAULT_MAX_ITERATIONS;
+        for (int role = 0; role < 2; role++) {
+            compile(role);
+        }
+    }
+
+    /**
+     * Sets whether the bidding team picks the best bid.
+     * @param optimizeBids True to pick the best bid, false to bid as in the observed rounds.
+     */
+    public void setOptimizeBids(boolean optimizeBids) {
+        this.optimizeBids = optimizeBids;
+    }
+
+    /**
+     * Sets the largest change of a value at which the iteration stops.
+     * @param tolerance The tolerance.
+     */
+    public void setTolerance(double tolerance) {
+        Validate.isTrue(tolerance > 0.0, "Tolerance must be positive");
+        this.tolerance = tolerance;
+    }
+
+    public void setMaxIterations(int maxIterations) {
+        Validate.isTrue(maxIterations > 0, "Max iterations must be positive");
+        this.maxIterations = maxIterations;
+    }
+
+    public int getMinScore() {
+        return minScore;
+    }
+
+    /**
+     * Returns the number of sweeps of the last solve.
+     * @return The number of sweeps.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Computes the win probabilities and the best bids.
+     * The states are swept from the highest scores down, and each sweep
+     * uses the values already updated in it.
+     * @throws IllegalStateException If the values do not converge.
+     */
+    public void solve() {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 0.5;
+        }
+
+        for (iterations = 1; iterations <= maxIterations; iterations++) {
+            double delta = 0.0;
+            for (int s0 = PitchGame.WIN_SCORE - 1; s0 >= minScore; s0--) {
+                for (int s1 = PitchGame.WIN_SCORE - 1; s1 >= minScore; s1--) {
+                    for (int dealerTeam = 0; dealerTeam < 2; dealerTeam++) {
+                        final int state = index(s0, s1, dealerTeam);
+                        final double value = evaluate(state, s0, s1, dealerTeam);
+                        delta = Math.max(delta, Math.abs(value - values[state]));
+                        values[state] = value;
+                    }
+                }
+            }
+            if (delta < tolerance) {
+                return;
+            }
+        }
+        throw new IllegalStateException("Win probabilities did not converge");
+    }
+
+    /**
+     * Returns the probability that team 0 wins.
+     * @param score0 The score of team 0, below the win score.
+     * @param score1 The score of team 1, below the win score.
+     * @param dealer The dealer of the next round.
+     * @return The win probability.
+     */
+    public double getWinProbability(int score0, int score1, PlayerId dealer) {
+        return values[index(checkScore(score0), checkScore(score1), dealer.getTeam())];
+    }
+
+    /**
+     * Returns the bid that maximizes the bidding team's win probability.
+     * @param score0 The score of team 0, below the win score.
+     * @param score1 The score of team 1, below the win score.
+     * @param dealer The dealer of the next round.
+     * @param biddingTeam The team that wins the auction.
+     * @param bidKey The bidder's trump holding, see {@link RoundOutcomes#getHandClass(int)}.
+     * @return The best bid, or 0 if the team never won the auction with
+     * that class of holding in that role.
+     */
+    public int getBestBid(int score0, int score1, PlayerId dealer, int biddingTeam, int bidKey) {
+        Validate.inclusiveBetween(0, 1, biddingTeam);
+        final int state = index(checkScore(score0), checkScore(score1), dealer.getTeam());
+        return bestBids[(2 * state + biddingTeam) * CLASSES + RoundOutcomes.getHandClass(bidKey)];
+    }
+
+    /**
+     * Prints the win probability and the best bids at the start of each
+     * round, for every pair of non-negative scores.  The best bids of a
+     * team are listed by holding class, separated by spaces, with 0 for
+     * the classes the team never bid with in that role.
+     * @param out The output stream.
+     */
+    public void print(PrintStream out) {
+        out.println("score0,score1,dealerTeam,winProbability,bestBids0,bestBids1");
+        final StringBuilder b = new StringBuilder();
+        for (int s0 = 0; s0 < PitchGame.WIN_SCORE; s0++) {
+            for (int s1 = 0; s1 < PitchGame.WIN_SCORE; s1++) {
+                for (int dealerTeam = 0; dealerTeam < 2; dealerTeam++) {
+                    final int state = index(s0, s1, dealerTeam);
+                    b.setLength(0);
+                    b.append(String.format("%d,%d,%d,%.6f", s0, s1, dealerTeam, values[state]));
+                    for (int team = 0; team < 2; team++) {
+                        b.append(',');
+                        for (int c = 0; c < CLASSES; c++) {
+                            b.append(c == 0 ? "" : " ").append(bestBids[(2 * state + team) * CLASSES + c]);
+                        }
+                    }
+                    out.println(b);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the outcomes of one role into flat arrays, one entry per
+     * holding class that was bid.  The splits that make a bid are kept
+     * as a list; the splits that are set are summed by the other team's
+     * points for every bid, since a set bid only scores the other team.
+     */
+    private void compile(int role) {
+        roleProbabilities[role] = outcomes.getRoleProbability(role);
+
+        int classCount = 0;
+        for (int c = 0; c < CLASSES; c++) {
+            if (outcomes.getCount(role, c) > 0) {
+                classCount++;
+            }
+        }
+
+        handClasses[role] = new int[classCount];
+        classProbabilities[role] = new double[classCount];
+        bidProbabilities[role] = new double[classCount][BIDS];
+        bidderPoints[role] = new int[classCount][];
+        otherPoints[role] = new int[classCount][];
+        madeProbabilities[role] = new double[classCount][];
+        setProbabilities[role] = new double[classCount][BIDS * POINTS];
+
+        int k = 0;
+        for (int c = 0; c < CLASSES; c++) {
+            if (outcomes.getCount(role, c) == 0) {
+                continue;
+            }
+            handClasses[role][k] = c;
+            classProbabilities[role][k] = outcomes.getClassProbability(role, c);
+            for (int bid = RoundOutcomes.MIN_BID; bid <= RoundOutcomes.MAX_BID; bid++) {
+                bidProbabilities[role][k][bid - RoundOutcomes.MIN_BID] = outcomes.getBidProbability(role, c, bid);
+            }
+
+            int splitCount = 0;
+            for (int i = RoundOutcomes.MIN_BID; i < POINTS; i++) {
+                for (int j = 0; j < POINTS; j++) {
+                    if (outcomes.getCount(role, c, i, j) > 0) {
+                        splitCount++;
+                    }
+                }
+            }
+            bidderPoints[role][k] = new int[splitCount];
+            otherPoints[role][k] = new int[splitCount];
+            madeProbabilities[role][k] = new double[splitCount];
+
+            int n = 0;
+            for (int i = 0; i < POINTS; i++) {
+                for (int j = 0; j < POINTS; j++) {
+                    final double p = outcomes.getProbability(role, c, i, j);
+                    if (p == 0.0) {
+                        continue;
+                    }
+                    if (i >= RoundOutcomes.MIN_BID) {
+                        bidderPoints[role][k][n] = i;
+                        otherPoints[role][k][n] = j;
+                        madeProbabilities[role][k][n] = p;
+                        n++;
+                    }
+                    for (int bid = Math.max(i + 1, RoundOutcomes.MIN_BID); bid <= RoundOutcomes.MAX_BID; bid++) {
+                        setProbabilities[role][k][(bid - RoundOutcomes.MIN_BID) * POINTS + j] += p;
+                    }
+                }
+            }
+            k++;
+        }
+    }
+
+    /**
+     * Computes the value of a state from the current values of the states
+     * that follow it, and stores the best bids of both teams.
+     */
+    private double evaluate(int state, int s0, int s1, int dealerTeam) {
+        double value = 0.0;
+        for (int role = 0; role < 2; role++) {
+            final int biddingTeam = role == RoundOutcomes.DEALER ? dealerTeam : 1 - dealerTeam;
+            final int base = (2 * state + biddingTeam) * CLASSES;
+            final int[] classes = handClasses[role];
+            for (int k = 0; k < classes.length; k++) {
+                evaluateBids(s0, s1, dealerTeam, biddingTeam, role, k);
+
+                // A higher bid must be better by more than the rounding
+                // of the sums, so that equal bids go to the lowest
+                double bestValue = biddingTeam == 0 ? -1.0 : 2.0;
+                double observedValue = 0.0;
+                int bestBid = 0;
+                for (int b = 0; b < BIDS; b++) {
+                    final double bidValue = bidValues[b];
+                    observedValue += bidProbabilities[role][k][b] * bidValue;
+                    if (biddingTeam == 0 ? bidValue > bestValue + tolerance : bidValue < bestValue - tolerance) {
+                        bestValue = bidValue;
+                        bestBid = RoundOutcomes.MIN_BID + b;
+                    }
+                }
+                bestBids[base + classes[k]] = (byte) bestBid;
+                value += roleProbabilities[role] * classProbabilities[role][k]
+                        * (optimizeBids ? bestValue : observedValue);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Computes team 0's win probability after a contract at every bid,
+     * for one holding class, into {@link #bidValues}.
+     */
+    private void evaluateBids(int s0, int s1, int dealerTeam, int biddingTeam, int role, int k) {
+        final int[] bidderSplit = bidderPoints[role][k];
+        final int[] otherSplit = otherPoints[role][k];
+        final double[] p = madeProbabilities[role][k];
+        final double[] set = setProbabilities[role][k];
+        final int bidderScore = biddingTeam == 0 ? s0 : s1;
+        final int otherScore = biddingTeam == 0 ? s1 : s0;
+
+        // The made splits lead to the same states whatever the bid
+        for (int i = 0; i < made.length; i++) {
+            made[i] = 0.0;
+        }
+        for (int n = 0; n < p.length; n++) {
+            final int i = bidderSplit[n];
+            made[i] += p[n] * getValue(bidderScore + i, otherScore + otherSplit[n], biddingTeam, dealerTeam);
+        }
+
+        // A bid is made by every split that takes at least the bid
+        double madeValue = 0.0;
+        for (int bid = RoundOutcomes.MAX_BID; bid >= RoundOutcomes.MIN_BID; bid--) {
+            madeValue += made[bid];
+            final int b = bid - RoundOutcomes.MIN_BID;
+            double value = madeValue;
+            for (int j = 0; j < POINTS; j++) {
+                final double q = set[b * POINTS + j];
+                if (q != 0.0) {
+                    value += q * getValue(bidderScore - bid, otherScore + j, biddingTeam, dealerTeam);
+                }
+            }
+            bidValues[b] = value;
+        }
+    }
+
+    /**
+     * Returns team 0's win probability after a round.
+     * The bidding team goes out first, see {@link PitchGame#getWinningTeam()}.
+     */
+    private double getValue(int bidderScore, int otherScore, int biddingTeam, int dealerTeam) {
+        if (bidderScore >= PitchGame.WIN_SCORE) {
+            return biddingTeam == 0 ? 1.0 : 0.0;
+        }
+        if (otherScore >= PitchGame.WIN_SCORE) {
+            return biddingTeam == 0 ? 0.0 : 1.0;
+        }
+        final int n0 = Math.max(biddingTeam == 0 ? bidderScore : otherScore, minScore);
+        final int n1 = Math.max(biddingTeam == 0 ? otherScore : bidderScore, minScore);
+        return values[index(n0, n1, 1 - dealerTeam)];
+    }
+
+    private int checkScore(int score) {
+        Validate.isTrue(score < PitchGame.WIN_SCORE, "Score must be below the win score");
+        return Math.max(score, minScore);
+    }
+
+    private int index(int s0, int s1, int dealerTeam) {
+        return (dealerTeam * size + s0 - minScore) * size + s1 - minScore;
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: WinProbabilitySolver [options]");
+        System.out.println("  --rounds N      Number of simulated rounds (default: 1000000)");
+        System.out.println("  --observed      Bid as often as in the simulated rounds");
+        System.out.println("  --seed N        Random seed");
+    }
+
+    /**
+     * Simulates rounds with simple strategies and prints the table of
+     * win probabilities and best bids as CSV.
+     */
+    public static void main(String[] args) {
+        long rounds = 1_000_000L;
+        boolean observed = false;
+        long seed = System.nanoTime();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                final String arg = args[i];
+                if (arg.equals("--help")) {
+                    printUsage();
+                    return;
+                }
+                if (arg.equals("--observed")) {
+                    observed = true;
+                    continue;
+                }
+
+                Validate.isTrue(i + 1 < args.length, "Missing value for %s", arg);
+                final String value = args[++i];
+                switch (arg) {
+                case "--rounds": rounds = Long.parseLong(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                default: throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            Validate.isTrue(rounds > 0, "Rounds must be positive");
+        } catch (IllegalArgumentException ex) {
+            System.out.println(ex.getMessage());
+            printUsage();
+            System.exit(1);
+        }
+
+        final long startTime = System.currentTimeMillis();
+        final WinProbabilitySolver solver = new WinProbabilitySolver(RoundOutcomes.simulate(rounds, seed));
+        solver.setOptimizeBids(!observed);
+        solver.solve();
+        solver.print(System.out);
+        final double duration = (System.currentTimeMillis() - startTime) / 1000.0;
+        System.err.println(rounds + " rounds and " + solver.getIterations() + " sweeps in " + duration + " seconds");
+    }
+}
@@ -0,0 +1,322 @@
+package com.orangebot.pitch.strats;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.lang3.Validate;
+
+import com.orangebot.pitch.CardGame.Card;
+import com.orangebot.pitch.CardGame.Suit;
+import com.orangebot.pitch.FastRandom;
+import com.orangebot.pitch.HandKey;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.PitchGame.PlayedCard;
+import com.orangebot.pitch.PitchGame.Player;
+import com.orangebot.pitch.PitchGame.PlayerId;
+import com.orangebot.pitch.PitchGame.PlayerStrategy;
+import com.orangebot.pitch.RandomSource;
+import com.orangebot.pitch.TrumpTable;
+
+/**
+ * The MonteCarloStrategy class chooses every decision by determinized
+ * Monte Carlo search.
+ *
+ * The hidden cards are dealt at random in a way that agrees with what
+ * the player can see: its own hand, the cards played this round, and the
+ * number of cards every player holds.  Each decision is given a budget
+ * of playouts, a time budget, or both.
+ *
+ * <ul>
+ * <li>For a card, each worker runs information set MCTS over the trick
+ * play, and the card chosen most often across the workers is played.</li>
+ * <li>For the bid and the suit, each worker deals the other hands and the
+ * deck and plays out the round with each trump suit.  The bid and suit
+ * with the best expected score difference are chosen, or the player
+ * passes when no bid is expected to gain.</li>
+ * </ul>
+ *
+ * The workers run on a fixed thread pool and reuse their engines and
+ * search trees, so the playouts do not allocate.  A strategy created with
+ * a {@link RandomSource} reseeds its workers from that source before every
+ * search, so that its decisions follow the source like those of the other
+ * strategies in the game.  Call {@link #shutdown()}
+ * when the strategy is no longer needed.
+ */
+public class MonteCarloStrategy implements PlayerStrategy {
+    private static final int TREE_NODES = 1 << 16;
+    private static final PlayerId[] PLAYERS = { PitchGame.P1, PitchGame.P2, PitchGame.P3, PitchGame.P4 };
+
+    private final SearchWorker[] workers;
+    private final List<SearchWorker> tasks;
+    private final ExecutorService executor;
+    private final int[] sizes;
+    private final long[] histogram;
+    private final RandomSource random;
+    private long playouts;
+    private long timeMillis;
+    private long lastBidHand;
+    private int lastBid;
+    private Suit lastSuit;
+
+    public MonteCarloStrategy() {
+        this(Runtime.getRuntime().availableProcessors(), System.nanoTime());
+    }
+
+    /**
+     * Creates a new strategy.
+     * @param threadCount The number of search threads.
+     * @param seed The random seed; each thread gets a generator split from it.
+     */
+    public MonteCarloStrategy(int threadCount, long seed) {
+        this(threadCount, seed, null);
+    }
+
+    /**
+     * Creates a new strategy that draws the seeds of its searches from a
+     * random source, one for each thread before every search.
+     * @param threadCount The number of search threads.
+     * @param random The random source, typically shared with the game.
+     */
+    public MonteCarloStrategy(int threadCount, RandomSource random) {
+        this(threadCount, 0L, random);
+        Validate.notNull(random);
+    }
+
+    private MonteCarloStrategy(int threadCount, long seed, RandomSource random) {
+        Validate.isTrue(threadCount > 0, "Thread count must be positive");
+        final FastRandom seeds = new FastRandom(seed);
+        this.workers = new SearchWorker[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            workers[i] = new SearchWorker(seeds.split(), TREE_NODES);
+        }
+        this.tasks = Arrays.asList(workers);
+        this.executor = threadCount > 1 ? Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "monte-carlo-search");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }) : null;
+        this.sizes = new int[4];
+        this.histogram = new long[11];
+        this.random = random;
+        this.playouts = 10_000L;
+        this.lastBidHand = -1L;
+    }
+
+    /**
+     * Sets the number of playouts per decision, shared by all threads.
+     * @param playouts The number of playouts, or 0 for no limit.
+     */
+    public void setPlayouts(long playouts) {
+        Validate.isTrue(playouts >= 0, "Playouts must not be negative");
+        this.playouts = playouts;
+    }
+
+    /**
+     * Sets the time budget per decision.
+     * @param timeMillis The budget in milliseconds, or 0 for no limit.
+     */
+    public void setTimeMillis(long timeMillis) {
+        Validate.isTrue(timeMillis >= 0, "Time must not be negative");
+        this.timeMillis = timeMillis;
+    }
+
+    /**
+     * Stops the search threads.
+     */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public int getBid(Player p) {
+        // Every auction is searched again; only the suit reuses the search
+        lastBidHand = -1L;
+        evaluateBid(p);
+        return lastBid;
+    }
+
+    @Override
+    public Suit getSuit(Player p) {
+        evaluateBid(p);
+        return lastSuit;
+    }
+
+    @Override
+    public Card playCard(Player p) {
+        final TrumpTable table = TrumpTable.get(p.getTrump());
+        final int seat = p.getId().getIndex();
+        final int hand = table.getHandKey(p.getHandMask());
+        if (HandKey.size(hand) == 1) {
+            return findCard(p, table, hand);
+        }
+
+        final long known = p.getPlayedMask() | p.getBuriedMask();
+        final int unseen = (HandKey.SIZE - 1) & ~hand & ~table.getHandKey(known);
+        for (int s = 0; s < 4; s++) {
+            sizes[s] = s == seat ? 0 : p.getHandSize(PLAYERS[s]);
+        }
+
+        // Replay the current hand to find the high card
+        final List<PlayedCard> played = p.getPlayedCards();
+        final int lead = played.isEmpty() ? seat : played.get(0).getPlayerId().getIndex();
+        int highSeat = -1;
+        int highBit = -1;
+        int highPoints = 0;
+        for (int i = 0, n = played.size(); i < n; i++) {
+            final PlayedCard c = played.get(i);
+            final int bit = Integer.numberOfTrailingZeros(table.getHandKey(c.getCard().bit()));
+            if (bit != 0) {
+                highPoints += HandKey.pointValue(bit);
+            }
+            if (bit > highBit) {
+                highBit = bit;
+                highSeat = c.getPlayerId().getIndex();
+            }
+        }
+
+        int count = 1;
+        for (int s = (seat + 1) & 3; s != lead; s = (s + 1) & 3) {
+            if (sizes[s] > 0) {
+                count++;
+            }
+        }
+
+        final long deadline = getDeadline();
+        reseed();
+        for (SearchWorker worker : workers) {
+            worker.prepareCard(seat, hand, unseen, sizes, count, highSeat, highBit, highPoints,
+                    getWorkerPlayouts(), deadline);
+        }
+        runWorkers();
+
+        int best = -1;
+        long bestVisits = -1;
+        for (int m = hand; m != 0; m &= m - 1) {
+            final int bit = Integer.numberOfTrailingZeros(m);
+            long visits = 0;
+            for (SearchWorker worker : workers) {
+                visits += worker.getRootVisits(bit);
+            }
+            if (visits > bestVisits) {
+                best = bit;
+                bestVisits = visits;
+            }
+        }
+        return findCard(p, table, 1 << best);
+    }
+
+    /**
+     * Chooses the bid and suit for the player's dealt hand.
+     * The result is kept, so the suit for the same hand is not searched again.
+     * @param p The player.
+     */
+    private void evaluateBid(Player p) {
+        final long handMask = p.getHandMask();
+        if (handMask == lastBidHand) {
+            return;
+        }
+
+        final long deadline = getDeadline();
+        reseed();
+        for (SearchWorker worker : workers) {
+            worker.prepareBid(p.getId().getIndex(), handMask, getWorkerPlayouts(), deadline);
+        }
+        runWorkers();
+
+        double bestValue = Double.NEGATIVE_INFINITY;
+        int bestBid = 4;
+        int bestSuit = 0;
+        for (int suit = 0; suit < SearchWorker.SUITS.length; suit++) {
+            Arrays.fill(histogram, 0L);
+            long deals = 0;
+            long otherPoints = 0;
+            for (SearchWorker worker : workers) {
+                for (int points = 0; points < histogram.length; points++) {
+                    histogram[points] += worker.getHistogram(suit, points);
+                    deals += worker.getHistogram(suit, points);
+                }
+                otherPoints += worker.getOtherPoints(suit);
+            }
+            if (deals == 0) {
+                continue;
+            }
+
+            // A made bid scores the points, a set bid loses the bid
+            for (int bid = 4; bid < histogram.length; bid++) {
+                double total = -otherPoints;
+                for (int points = 0; points < histogram.length; points++) {
+                    total += histogram[points] * (points >= bid ? points : -bid);
+                }
+                final double value = total / deals;
+                if (value > bestValue) {
+                    bestValue = value;
+                    bestBid = bid;
+                    bestSuit = suit;
+                }
+            }
+        }
+
+        lastBidHand = handMask;
+        lastBid = bestValue > 0.0 ? bestBid : 0;
+        lastSuit = SearchWorker.SUITS[bestSuit];
+    }
+
+    private void reseed() {
+        if (random != null) {
+            for (SearchWorker worker : workers) {
+                worker.setSeed(random.nextLong());
+            }
+        }
+    }
+
+    private long getDeadline() {
+        return timeMillis > 0 ? System.nanoTime() + timeMillis * 1_000_000L : 0L;
+    }
+
+    private long getWorkerPlayouts() {
+        Validate.validState(playouts > 0 || timeMillis > 0, "A playout or time budget is required");
+        if (playouts == 0) {
+            return Long.MAX_VALUE;
+        }
+        return (playouts + workers.length - 1) / workers.length;
+    }
+
+    private void runWorkers() {
+        if (executor == null) {
+            workers[0].call();
+            return;
+        }
+
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Search failed", ex.getCause());
+        }
+    }
+
+    private static Card findCard(Player p, TrumpTable table, int key) {
+        final long mask = table.getCards(key);
+        final List<Card> hand = p.getHand();
+        for (int i = 0, n = hand.size(); i < n; i++) {
+            if (hand.get(i).bit() == mask) {
+                return hand.get(i);
+            }
+        }
+        throw new IllegalStateException("Card not in hand");
+    }
+}
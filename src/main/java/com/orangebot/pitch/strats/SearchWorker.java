@@ -0,0 +1,386 @@
+package com.orangebot.pitch.strats;
+
+import java.util.concurrent.Callable;
+
+import com.orangebot.pitch.CardGame;
+import com.orangebot.pitch.FastRandom;
+import com.orangebot.pitch.HandKey;
+import com.orangebot.pitch.TrumpTable;
+import com.orangebot.pitch.CardGame.Suit;
+
+/**
+ * The SearchWorker class runs the playouts of one thread for
+ * {@link MonteCarloStrategy}.
+ *
+ * A worker owns its generator, its {@link TrickEngine} and a pool of
+ * search tree nodes, all allocated once.  The strategy sets up a job
+ * with {@link #prepareCard} or {@link #prepareBid}, runs the workers,
+ * and then reads and combines their statistics.
+ */
+final class SearchWorker implements Callable<Void> {
+    static final Suit[] SUITS = { Suit.CLUBS, Suit.DIAMONDS, Suit.HEARTS, Suit.SPADES };
+
+    private static final double EXPLORATION = 0.7;
+    private static final int TIME_CHECK_MASK = 63;
+    private static final int[][] KEY_BITS = buildKeyBits();
+
+    private final FastRandom random;
+    private final TrickEngine engine;
+    private final int capacity;
+    private final int[] nodeMove;
+    private final int[] nodeSeat;
+    private final int[] nodeChild;
+    private final int[] nodeSibling;
+    private final int[] nodeVisits;
+    private final int[] nodeAvailable;
+    private final double[] nodeReward;
+    private final int[] path;
+    private final int[] sizes;
+    private final int[] unseen;
+    private final int[] cards;
+    private final int[] keys;
+    private final int[] rootVisits;
+    private final int[][] histograms;
+    private final long[] otherPoints;
+    private int nodeCount;
+
+    private boolean bidding;
+    private long playouts;
+    private long deadline;
+    private int seat;
+    private int hand;
+    private long handMask;
+    private int unseenKey;
+    private int count;
+    private int highSeat;
+    private int highBit;
+    private int highPoints;
+
+    SearchWorker(FastRandom random, int capacity) {
+        this.random = random;
+        this.engine = new TrickEngine();
+        this.capacity = capacity;
+        this.nodeMove = new int[capacity];
+        this.nodeSeat = new int[capacity];
+        this.nodeChild = new int[capacity];
+        this.nodeSibling = new int[capacity];
+        this.nodeVisits = new int[capacity];
+        this.nodeAvailable = new int[capacity];
+        this.nodeReward = new double[capacity];
+        this.path = new int[HandKey.TRUMP_COUNT + 2];
+        this.sizes = new int[4];
+        this.unseen = new int[CardGame.DECK_SIZE];
+        this.cards = new int[CardGame.DECK_SIZE];
+        this.keys = new int[4];
+        this.rootVisits = new int[HandKey.TRUMP_COUNT];
+        this.histograms = new int[SUITS.length][11];
+        this.otherPoints = new long[SUITS.length];
+    }
+
+    /**
+     * Restarts the worker's generator.
+     * @param seed The random seed.
+     */
+    void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    /**
+     * Sets up a card decision in the middle of the trick play.
+     * @param seat The seat to play.
+     * @param hand The hand key of the seat.
+     * @param unseenKey The trump cards the seat has not seen.
+     * @param sizes The number of cards each seat holds.
+     * @param count The number of players still to play in the hand.
+     * @param highSeat The seat holding the high card, or -1.
+     * @param highBit The key bit of the high card, or -1.
+     * @param highPoints The points that go to the team of the high card.
+     * @param playouts The number of playouts.
+     * @param deadline The {@link System#nanoTime()} deadline, or 0.
+     */
+    void prepareCard(int seat, int hand, int unseenKey, int[] sizes, int count,
+            int highSeat, int highBit, int highPoints, long playouts, long deadline) {
+        this.bidding = false;
+        this.seat = seat;
+        this.hand = hand;
+        this.unseenKey = unseenKey;
+        System.arraycopy(sizes, 0, this.sizes, 0, 4);
+        this.count = count;
+        this.highSeat = highSeat;
+        this.highBit = highBit;
+        this.highPoints = highPoints;
+        this.playouts = playouts;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Sets up a bid decision for a dealt hand.
+     * @param seat The seat to bid.
+     * @param handMask The card mask of the nine dealt cards.
+     * @param playouts The number of deals to sample.
+     * @param deadline The {@link System#nanoTime()} deadline, or 0.
+     */
+    void prepareBid(int seat, long handMask, long playouts, long deadline) {
+        this.bidding = true;
+        this.seat = seat;
+        this.handMask = handMask;
+        this.playouts = playouts;
+        this.deadline = deadline;
+    }
+
+    @Override
+    public Void call() {
+        if (bidding) {
+            sampleBids();
+        } else {
+            searchCard();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of times the root chose a card.
+     * @param bit The key bit of the card.
+     * @return The visit count.
+     */
+    int getRootVisits(int bit) {
+        return rootVisits[bit];
+    }
+
+    /**
+     * Returns the number of sampled deals where the bidding team took
+     * the given points with a trump suit.
+     * @param suit The index in {@link #SUITS}.
+     * @param points The points (0-10).
+     * @return The number of deals.
+     */
+    int getHistogram(int suit, int points) {
+        return histograms[suit][points];
+    }
+
+    /**
+     * Returns the total points of the other team with a trump suit.
+     * @param suit The index in {@link #SUITS}.
+     * @return The total points.
+     */
+    long getOtherPoints(int suit) {
+        return otherPoints[suit];
+    }
+
+    private boolean isExpired(long i) {
+        return deadline != 0 && (i & TIME_CHECK_MASK) == 0 && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * Runs single-observer information set MCTS from the root decision.
+     * Each playout deals the unseen trump to the other seats, walks the
+     * tree through the nodes that are legal in that deal, adds one node,
+     * and plays out the rest with {@link TrickEngine#choose()}.
+     */
+    private void searchCard() {
+        nodeCount = 1;
+        nodeChild[0] = -1;
+        nodeSeat[0] = seat;
+        for (int i = 0; i < rootVisits.length; i++) {
+            rootVisits[i] = 0;
+        }
+
+        final int unseenCount = fill(unseenKey, unseen);
+        for (long i = 0; i < playouts && !isExpired(i); i++) {
+            determinize(unseenCount);
+
+            int node = 0;
+            int depth = 0;
+            path[depth++] = 0;
+            while (!engine.isFinished()) {
+                final int actor = engine.getSeat();
+                final int legal = engine.getHand(actor);
+                int tried = 0;
+                for (int c = nodeChild[node]; c >= 0; c = nodeSibling[c]) {
+                    if (nodeSeat[c] == actor && (legal & (1 << nodeMove[c])) != 0) {
+                        tried |= 1 << nodeMove[c];
+                        nodeAvailable[c]++;
+                    }
+                }
+
+                final int untried = legal & ~tried;
+                if (untried != 0 && nodeCount < capacity) {
+                    final int bit = pickBit(untried);
+                    path[depth++] = addNode(node, actor, bit);
+                    engine.play(bit);
+                    break;
+                }
+                if (tried == 0) {
+                    break;
+                }
+
+                node = select(node, actor, legal);
+                path[depth++] = node;
+                engine.play(nodeMove[node]);
+            }
+
+            engine.playOut();
+            for (int d = 0; d < depth; d++) {
+                final int n = path[d];
+                nodeVisits[n]++;
+                nodeReward[n] += engine.getPoints(nodeSeat[n] & 1) / 10.0;
+            }
+        }
+
+        for (int c = nodeChild[0]; c >= 0; c = nodeSibling[c]) {
+            rootVisits[nodeMove[c]] += nodeVisits[c];
+        }
+    }
+
+    private void determinize(int unseenCount) {
+        int next = 0;
+        for (int s = 0; s < 4; s++) {
+            int key = 0;
+            if (s == seat) {
+                key = hand;
+            } else {
+                for (int j = 0; j < sizes[s]; j++) {
+                    final int k = next + random.nextInt(unseenCount - next);
+                    final int bit = unseen[k];
+                    unseen[k] = unseen[next];
+                    unseen[next++] = bit;
+                    key |= 1 << bit;
+                }
+            }
+            engine.setHand(s, key);
+        }
+        engine.start(seat, count, highSeat, highBit, highPoints);
+    }
+
+    private int addNode(int parent, int actor, int bit) {
+        final int n = nodeCount++;
+        nodeMove[n] = bit;
+        nodeSeat[n] = actor;
+        nodeChild[n] = -1;
+        nodeSibling[n] = nodeChild[parent];
+        nodeVisits[n] = 0;
+        nodeAvailable[n] = 1;
+        nodeReward[n] = 0.0;
+        nodeChild[parent] = n;
+        return n;
+    }
+
+    private int select(int node, int actor, int legal) {
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int c = nodeChild[node]; c >= 0; c = nodeSibling[c]) {
+            if (nodeSeat[c] != actor || (legal & (1 << nodeMove[c])) == 0) {
+                continue;
+            }
+            final double visits = Math.max(1, nodeVisits[c]);
+            final double score = nodeReward[c] / visits
+                    + EXPLORATION * Math.sqrt(Math.log(nodeAvailable[c]) / visits);
+            if (score > bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private int pickBit(int mask) {
+        int m = mask;
+        for (int n = random.nextInt(Integer.bitCount(mask)); n > 0; n--) {
+            m &= m - 1;
+        }
+        return Integer.numberOfTrailingZeros(m);
+    }
+
+    /**
+     * Samples deals of the unseen cards and plays each one out with the
+     * seat as the bidder, once for every trump suit.
+     */
+    private void sampleBids() {
+        for (int i = 0; i < SUITS.length; i++) {
+            for (int j = 0; j < histograms[i].length; j++) {
+                histograms[i][j] = 0;
+            }
+            otherPoints[i] = 0L;
+        }
+
+        final int cardCount = fill(~handMask & ((1L << CardGame.DECK_SIZE) - 1), cards);
+        for (long i = 0; i < playouts && !isExpired(i); i++) {
+            // Shuffle the unseen cards; the other seats get nine each
+            // in seat order and the rest is the deck for the redeal.
+            for (int k = cardCount - 1; k > 0; k--) {
+                final int j = random.nextInt(k + 1);
+                final int card = cards[k];
+                cards[k] = cards[j];
+                cards[j] = card;
+            }
+
+            for (int suit = 0; suit < SUITS.length; suit++) {
+                playBid(suit, cardCount);
+            }
+        }
+    }
+
+    private void playBid(int suit, int cardCount) {
+        final TrumpTable table = TrumpTable.get(SUITS[suit]);
+        final int[] keyBits = KEY_BITS[suit];
+
+        int next = 0;
+        for (int s = 0; s < 4; s++) {
+            if (s == seat) {
+                keys[s] = table.getHandKey(handMask);
+            } else {
+                int key = 0;
+                for (int j = 0; j < 9; j++) {
+                    key |= keyBits[cards[next++]];
+                }
+                keys[s] = key;
+            }
+        }
+
+        // Redeal up to six cards in seat order, the bidder takes the rest
+        for (int s = 0; s < 4; s++) {
+            for (int need = 6 - HandKey.size(keys[s]); need > 0 && next < cardCount; need--) {
+                keys[s] |= keyBits[cards[next++]];
+            }
+        }
+        while (next < cardCount) {
+            keys[seat] |= keyBits[cards[next++]];
+        }
+
+        for (int s = 0; s < 4; s++) {
+            engine.setHand(s, SimpleRules.bury(keys[s]));
+        }
+        engine.start(seat);
+        engine.playOut();
+
+        histograms[suit][engine.getPoints(seat & 1)]++;
+        otherPoints[suit] += engine.getPoints((seat + 1) & 1);
+    }
+
+    private static int fill(long mask, int[] bits) {
+        int n = 0;
+        for (long m = mask; m != 0; m &= m - 1) {
+            bits[n++] = Long.numberOfTrailingZeros(m);
+        }
+        return n;
+    }
+
+    private static int fill(int mask, int[] bits) {
+        return fill(mask & 0xFFFFFFFFL, bits);
+    }
+
+    /**
+     * Builds the hand key bit of every card for every trump suit.
+     * @return The key bits indexed by suit and card index, 0 for non-trump.
+     */
+    private static int[][] buildKeyBits() {
+        final int[][] result = new int[SUITS.length][CardGame.DECK_SIZE];
+        for (int i = 0; i < SUITS.length; i++) {
+            final TrumpTable table = TrumpTable.get(SUITS[i]);
+            for (int j = 0; j < CardGame.DECK_SIZE; j++) {
+                result[i][j] = table.getHandKey(1L << j);
+            }
+        }
+        return result;
+    }
+}
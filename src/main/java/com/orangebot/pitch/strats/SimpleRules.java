@@ -0,0 +1,76 @@
+package com.orangebot.pitch.strats;
+
+import com.orangebot.pitch.HandKey;
+
+/**
+ * The SimpleRules class holds the bury and card rules of
+ * {@link SimpleStrategy} and {@link com.orangebot.pitch.PitchGame} on
+ * hand keys.
+ *
+ * The engines that play whole rounds without a game, the playouts of
+ * {@link MonteCarloStrategy} and the lanes of
+ * {@link com.orangebot.pitch.sim.BatchEngine}, both take their decisions
+ * from here, so they cannot drift apart.
+ */
+public final class SimpleRules {
+    private static final int POINT_MASK = HandKey.POINT_CARDS;
+    private static final int THREE = HandKey.bit(3);
+
+    private SimpleRules() {
+    }
+
+    /**
+     * Removes cards from a hand until it has six, in the same order as
+     * {@link com.orangebot.pitch.PitchGame#buryPlayer}: the lowest
+     * non-point cards, then the lowest cards other than the three.
+     * @param key The hand key.
+     * @return The hand key after the bury.
+     */
+    public static int bury(int key) {
+        while (HandKey.size(key) > 6) {
+            int candidates = key & ~POINT_MASK;
+            if (candidates == 0) {
+                candidates = key & ~THREE;
+            }
+            key &= ~Integer.lowestOneBit(candidates);
+        }
+        return key;
+    }
+
+    /**
+     * Chooses a card with the rules of {@link SimpleStrategy#playCard}.
+     * @param hand The hand key of the seat to play.
+     * @param others The key of the cards held by the other seats.
+     * @param seat The seat to play.
+     * @param highSeat The seat holding the high card, or -1.
+     * @param highBit The key bit of the high card, or -1.
+     * @return The key bit of the card.
+     */
+    public static int choose(int hand, int others, int seat, int highSeat, int highBit) {
+        final int top = 31 - Integer.numberOfLeadingZeros(hand);
+
+        // If I have high card, play high card
+        if (top > highBit && (others & -(2 << top)) == 0) {
+            return top;
+        }
+
+        if (highSeat >= 0 && ((highSeat ^ seat) & 1) == 0 && (others & -(2 << highBit)) == 0) {
+            // High card is from my partner, try the three, then a point card
+            if ((hand & THREE) != 0) {
+                return Integer.numberOfTrailingZeros(THREE);
+            }
+            if ((hand & POINT_MASK) != 0) {
+                return Integer.numberOfTrailingZeros(hand & POINT_MASK);
+            }
+        }
+
+        // Try a non-point card, then avoid the three
+        if ((hand & ~POINT_MASK) != 0) {
+            return Integer.numberOfTrailingZeros(hand & ~POINT_MASK);
+        }
+        if ((hand & ~THREE) != 0) {
+            return Integer.numberOfTrailingZeros(hand & ~THREE);
+        }
+        return Integer.numberOfTrailingZeros(hand);
+    }
+}
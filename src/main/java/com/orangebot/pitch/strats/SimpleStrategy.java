@@ -4,15 +4,26 @@
 import com.orangebot.pitch.CardGame.Card;
 import com.orangebot.pitch.CardGame.Rank;
 import com.orangebot.pitch.CardGame.Suit;
+import com.orangebot.pitch.FastRandom;
 import com.orangebot.pitch.PitchGame.PlayedCard;
 import com.orangebot.pitch.PitchGame.Player;
 import com.orangebot.pitch.PitchGame.PlayerStrategy;
+import com.orangebot.pitch.RandomSource;
 
 public class SimpleStrategy implements PlayerStrategy {
+    private final RandomSource random;
+
+    public SimpleStrategy() {
+        this(new FastRandom());
+    }
+
+    public SimpleStrategy(RandomSource random) {
+        this.random = random;
+    }
 
     @Override
     public int getBid(Player p) {
-        return 2 + (int)(Math.random() * 6.0);
+        return 2 + random.nextInt(6);
     }
 
     @Override
@@ -0,0 +1,155 @@
+package com.orangebot.pitch.strats;
+
+import com.orangebot.pitch.HandKey;
+
+/**
+ * The TrickEngine class plays out the trick play on hand keys.
+ *
+ * It follows the same rules as {@link com.orangebot.pitch.PitchGame#playHand()}:
+ * the players with cards play in seat order from the lead, the highest
+ * card takes the hand and leads the next one, and the deuce scores for
+ * the team that plays it.  An engine is reused for every playout, so
+ * playing a card never allocates.
+ */
+final class TrickEngine {
+    private final int[] hands;
+    private final int[] points;
+    private int seat;
+    private int count;
+    private int highSeat;
+    private int highBit;
+    private int highPoints;
+
+    TrickEngine() {
+        this.hands = new int[4];
+        this.points = new int[2];
+    }
+
+    /**
+     * Sets the hand of one seat.
+     * @param seat The seat index.
+     * @param key The hand key.
+     */
+    void setHand(int seat, int key) {
+        hands[seat] = key;
+    }
+
+    int getHand(int seat) {
+        return hands[seat];
+    }
+
+    /**
+     * Starts the play in the middle of a hand.
+     * The points are cleared, so they only count from here on.
+     * @param seat The seat to play next.
+     * @param count The number of players still to play in the hand.
+     * @param highSeat The seat holding the high card, or -1.
+     * @param highBit The key bit of the high card, or -1.
+     * @param highPoints The points that go to the team of the high card.
+     */
+    void start(int seat, int count, int highSeat, int highBit, int highPoints) {
+        this.points[0] = 0;
+        this.points[1] = 0;
+        this.seat = seat;
+        this.count = count;
+        this.highSeat = highSeat;
+        this.highBit = highBit;
+        this.highPoints = highPoints;
+    }
+
+    /**
+     * Starts the play at the beginning of a hand.
+     * @param lead The seat that leads.
+     */
+    void start(int lead) {
+        start(lead, 0, -1, -1, 0);
+        startHand(lead);
+    }
+
+    boolean isFinished() {
+        return count == 0;
+    }
+
+    /**
+     * Returns the seat to play next.
+     * @return The seat index.
+     */
+    int getSeat() {
+        return seat;
+    }
+
+    /**
+     * Returns the points a team has taken since the start.
+     * @param team The team.
+     * @return The points.
+     */
+    int getPoints(int team) {
+        return points[team];
+    }
+
+    /**
+     * Plays a card for the seat to play next.
+     * @param bit The key bit of the card.
+     */
+    void play(int bit) {
+        hands[seat] ^= 1 << bit;
+        if (bit == 0) {
+            points[seat & 1] += HandKey.pointValue(0);
+        } else {
+            highPoints += HandKey.pointValue(bit);
+        }
+        if (bit > highBit) {
+            highBit = bit;
+            highSeat = seat;
+        }
+
+        if (--count == 0) {
+            points[highSeat & 1] += highPoints;
+            startHand(highSeat);
+        } else {
+            nextSeat();
+        }
+    }
+
+    /**
+     * Plays the rest of the hands with {@link #choose()} for every player.
+     */
+    void playOut() {
+        while (count > 0) {
+            play(choose());
+        }
+    }
+
+    /**
+     * Chooses a card for the seat to play next with
+     * {@link SimpleRules#choose}.
+     * @return The key bit of the card.
+     */
+    int choose() {
+        final int hand = hands[seat];
+        final int others = (hands[0] | hands[1] | hands[2] | hands[3]) & ~hand;
+        return SimpleRules.choose(hand, others, seat, highSeat, highBit);
+    }
+
+    private void startHand(int lead) {
+        highSeat = -1;
+        highBit = -1;
+        highPoints = 0;
+        count = 0;
+        for (int i = 0; i < 4; i++) {
+            if (hands[i] != 0) {
+                count++;
+            }
+        }
+        seat = lead;
+        if (count > 0 && hands[seat] == 0) {
+            nextSeat();
+        }
+    }
+
+    private void nextSeat() {
+        do {
+            seat = (seat + 1) & 3;
+        } while (hands[seat] == 0);
+    }
+}
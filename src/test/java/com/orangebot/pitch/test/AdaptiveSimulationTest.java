@@ -0,0 +1,81 @@
+package com.orangebot.pitch.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.orangebot.pitch.HandKey;
+import com.orangebot.pitch.sim.AdaptiveSimulation;
+import com.orangebot.pitch.sim.SimulationData;
+import com.orangebot.pitch.sim.SimulationRow;
+
+public class AdaptiveSimulationTest {
+    private static final int MAX_TRUMP = 2;
+    private static final int MIN_DEALS = 3;
+    private static final int MAX_DEALS = 150;
+    private static final double TARGET = 0.5;
+    private static final double Z = 1.96;
+
+    @Test(timeout = 60000)
+    public void testEveryHoldingStops() {
+        SimulationData data = runAdaptive(3, 7L);
+
+        int converged = 0;
+        int capped = 0;
+        int constant = 0;
+        for (int rank = 0; rank < HandKey.count(MAX_TRUMP); rank++) {
+            int key = HandKey.unrank(rank);
+            long n = data.getTotal(key);
+            double variance = data.getVariance(key);
+            Assert.assertTrue(n >= MIN_DEALS);
+            Assert.assertTrue(n <= MAX_DEALS);
+
+            if (variance == 0.0) {
+                // Nothing is learned from more deals of a constant score
+                Assert.assertEquals(MIN_DEALS, n);
+                constant++;
+            } else if (n == MAX_DEALS) {
+                capped++;
+            } else {
+                Assert.assertTrue(Z * Math.sqrt(variance / n) <= TARGET);
+                converged++;
+            }
+        }
+
+        // The seed gives holdings that stop for each of the reasons
+        Assert.assertTrue(converged > 0);
+        Assert.assertTrue(capped > 0);
+        Assert.assertTrue(constant > 0);
+    }
+
+    @Test(timeout = 60000)
+    public void testSameSeedSameData() {
+        SimulationData a = runAdaptive(3, 7L);
+        assertSameData(a, runAdaptive(3, 7L));
+
+        // Every holding is seeded, so the threads do not matter either
+        assertSameData(a, runAdaptive(1, 7L));
+    }
+
+    private static SimulationData runAdaptive(int parallelism, long seed) {
+        AdaptiveSimulation simulation = new AdaptiveSimulation();
+        simulation.setMaxTrump(MAX_TRUMP);
+        simulation.setMinDeals(MIN_DEALS);
+        simulation.setMaxDeals(MAX_DEALS);
+        simulation.setBatchDeals(100);
+        simulation.setTargetHalfWidth(TARGET);
+        simulation.setZ(Z);
+        simulation.setParallelism(parallelism);
+        simulation.setSeed(seed);
+        return simulation.run();
+    }
+
+    private static void assertSameData(SimulationData expected, SimulationData actual) {
+        Assert.assertEquals(expected.getCount(), actual.getCount());
+        for (int rank = 0; rank < HandKey.count(MAX_TRUMP); rank++) {
+            int key = HandKey.unrank(rank);
+            for (int points = 0; points < SimulationRow.BUCKETS; points++) {
+                Assert.assertEquals(expected.getCount(key, points), actual.getCount(key, points));
+            }
+        }
+    }
+}
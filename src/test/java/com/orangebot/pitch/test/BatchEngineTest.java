@@ -0,0 +1,49 @@
+package com.orangebot.pitch.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.orangebot.pitch.FastRandom;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.sim.BatchEngine;
+import com.orangebot.pitch.sim.SimulationData;
+
+public class BatchEngineTest {
+
+    @Test
+    public void testMatchesPlayRound() {
+        int lanes = 64;
+        BatchEngine engine = new BatchEngine(lanes);
+        PitchGame[] games = new PitchGame[lanes];
+        for (int lane = 0; lane < lanes; lane++) {
+            engine.setSeed(lane, 1000L + lane);
+            games[lane] = TestGames.createGame(1000L + lane);
+        }
+
+        for (int round = 0; round < 100; round++) {
+            engine.playRounds();
+            for (int lane = 0; lane < lanes; lane++) {
+                PitchGame game = games[lane];
+                game.resetGame();
+                game.playRound();
+                Assert.assertEquals(game.getBidKey(), engine.getBidKey(lane));
+                Assert.assertEquals(game.getHighBid(), engine.getHighBid(lane));
+                Assert.assertEquals(game.getBiddingTeam(), engine.getBiddingTeam(lane));
+                Assert.assertEquals(game.getRoundScore(0), engine.getRoundScore(lane, 0));
+                Assert.assertEquals(game.getRoundScore(1), engine.getRoundScore(lane, 1));
+            }
+        }
+    }
+
+    @Test
+    public void testAddTo() {
+        BatchEngine engine = new BatchEngine(16);
+        engine.setSeeds(new FastRandom(3L));
+        SimulationData data = new SimulationData();
+        for (int i = 0; i < 10; i++) {
+            engine.playRounds();
+            engine.addTo(data);
+        }
+        Assert.assertEquals(160, data.getCount());
+    }
+}
@@ -1,5 +1,6 @@
 package com.orangebot.pitch.test;
 
+import java.util.Comparator;
 import java.util.List;
 
 import org.junit.Assert;
@@ -7,6 +8,8 @@
 
 import com.orangebot.pitch.CardGame;
 import com.orangebot.pitch.CardGame.Card;
+import com.orangebot.pitch.CardGame.Rank;
+import com.orangebot.pitch.CardGame.Suit;
 
 public class CardGameTest {
 
@@ -65,4 +68,151 @@ public void testShuffle() {
         cg.shuffle("deck");
         Assert.assertNotEquals(first, cg.get("deck").get(0));
     }
+
+    @Test
+    public void testMoveCard() {
+        CardGame cg = new CardGame("d1", "d2");
+        Card card = cg.get("d1").get(5);
+        cg.move(card, "d1", "d2");
+        Assert.assertFalse(cg.contains("d1", card));
+        Assert.assertTrue(cg.contains("d2", card));
+        Assert.assertEquals(53, cg.size("d1"));
+        Assert.assertEquals(1, cg.size("d2"));
+
+        // Moving a card that is not in the source list is ignored
+        cg.move(card, "d1", "d2");
+        Assert.assertEquals(53, cg.size("d1"));
+        Assert.assertEquals(1, cg.size("d2"));
+    }
+
+    @Test
+    public void testMoveMask() {
+        CardGame cg = new CardGame("d1", "d2");
+        long mask = Card.get(0).bit() | Card.get(53).bit();
+        cg.moveMask(mask, "d1", "d2");
+        Assert.assertEquals(mask, cg.getMask("d2"));
+        Assert.assertEquals(52, cg.size("d1"));
+
+        cg.moveAll("d1");
+        Assert.assertEquals(54, cg.size("d1"));
+        Assert.assertEquals(0L, cg.getMask("d2"));
+    }
+
+    @Test
+    public void testSortKeepsLocation() {
+        CardGame cg = new CardGame("d1", "d2");
+        cg.shuffle("d1");
+        cg.move("d1", "d2", 9);
+        long mask = cg.getMask("d2");
+        cg.sort("d2", new Comparator<Card>() {
+            @Override
+            public int compare(Card c1, Card c2) {
+                return Integer.compare(c1.index(), c2.index());
+            }});
+        Assert.assertEquals(mask, cg.getMask("d2"));
+
+        List<Card> cards = cg.get("d2");
+        for (int i = 1; i < cards.size(); i++) {
+            Assert.assertTrue(cards.get(i - 1).index() < cards.get(i).index());
+        }
+    }
+
+    @Test
+    public void testArrange() {
+        CardGame cg = new CardGame("d1", "d2");
+        cg.shuffle("d1");
+        cg.move("d1", "d2", 5);
+        int[] indexes = new int[5];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = cg.get("d2").get(4 - i).index();
+        }
+        cg.arrange("d2", indexes);
+
+        List<Card> cards = cg.view("d2");
+        for (int i = 0; i < indexes.length; i++) {
+            Assert.assertEquals(indexes[i], cards.get(i).index());
+        }
+        Assert.assertEquals(49, cg.size("d1"));
+
+        try {
+            cg.arrange("d2", new int[] { indexes[0] });
+            Assert.fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    @Test
+    public void testView() {
+        CardGame cg = new CardGame("d1", "d2");
+        List<Card> view = cg.view("d2");
+        Assert.assertSame(view, cg.view("d2"));
+        Assert.assertEquals(0, view.size());
+
+        cg.move("d1", "d2", 3);
+        Assert.assertEquals(3, view.size());
+        Assert.assertEquals(cg.get("d2"), view);
+        Assert.assertTrue(view.contains(cg.get("d2").get(0)));
+
+        try {
+            view.clear();
+            Assert.fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException ex) {
+        }
+    }
+
+    @Test
+    public void testSharedCards() {
+        CardGame g1 = new CardGame("deck");
+        CardGame g2 = new CardGame("deck");
+        for (int i = 0; i < CardGame.DECK_SIZE; i++) {
+            Card c = g1.get("deck").get(i);
+            Assert.assertSame(c, g2.get("deck").get(i));
+            Assert.assertSame(c, Card.get(i));
+            Assert.assertSame(c, Card.get(c.rank(), c.suit()));
+            Assert.assertEquals(i, c.index());
+            Assert.assertEquals(i, c.hashCode());
+        }
+
+        Assert.assertEquals(Suit.HEARTS.ordinal() * 13 + Rank.ACE.ordinal(), Card.get(Rank.ACE, Suit.HEARTS).index());
+        Assert.assertEquals(52, Card.get(Rank.LOW, Suit.JOKER).index());
+        Assert.assertEquals(53, Card.get(Rank.HIGH, Suit.JOKER).index());
+        Assert.assertNull(Card.get(Rank.ACE, Suit.JOKER));
+        Assert.assertNull(Card.get(Rank.HIGH, Suit.SPADES));
+    }
+
+    @Test
+    public void testSlots() {
+        CardGame cg = new CardGame("d1", "d2", "d3");
+        Assert.assertEquals(3, cg.getSlotCount());
+        int d1 = cg.getSlot("d1");
+        int d2 = cg.getSlot("d2");
+        int d3 = cg.getSlot("d3");
+        Assert.assertEquals(0, d1);
+        Assert.assertEquals(2, d3);
+
+        cg.move(d1, d2, 5);
+        cg.move(Card.get(53), d1, d3);
+        Assert.assertEquals(5, cg.size("d2"));
+        Assert.assertEquals(cg.getMask("d2"), cg.getMask(d2));
+        Assert.assertEquals(cg.get("d2"), cg.get(d2));
+        Assert.assertSame(cg.view("d3"), cg.view(d3));
+        Assert.assertTrue(cg.contains(d3, Card.get(53)));
+
+        cg.moveAll(d2, d3);
+        Assert.assertEquals(0, cg.size(d2));
+        Assert.assertEquals(6, cg.size(d3));
+        cg.moveAll(d1);
+        Assert.assertEquals(54, cg.size(d1));
+
+        try {
+            cg.getSlot("d4");
+            Assert.fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+        try {
+            cg.move(null, d1, d2);
+            Assert.fail("Expected NullPointerException");
+        } catch (NullPointerException ex) {
+        }
+    }
 }
@@ -0,0 +1,101 @@
+package com.orangebot.pitch.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.orangebot.pitch.CardGame.Suit;
+import com.orangebot.pitch.FastRandom;
+import com.orangebot.pitch.GameState;
+import com.orangebot.pitch.HandKey;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.TrumpTable;
+import com.orangebot.pitch.solver.DoubleDummySolver;
+
+public class DoubleDummySolverTest {
+    private static final PitchGame.PlayerId[] PLAYERS = { PitchGame.P1, PitchGame.P2, PitchGame.P3, PitchGame.P4 };
+
+    @Test
+    public void testKnownDeal() {
+        DoubleDummySolver solver = new DoubleDummySolver(10);
+
+        // P1 holds the ace and the three, nobody can take them
+        int ace = HandKey.bit(17);
+        int three = HandKey.bit(3);
+        int deuce = HandKey.bit(2);
+        int king = HandKey.bit(16);
+        Assert.assertEquals(4, solver.solve(new int[] { ace | three, king, 0, deuce }, PitchGame.P1));
+
+        // P2 keeps the deuce, and P1 takes the king with the ace
+        Assert.assertEquals(1, solver.solve(new int[] { ace, king | deuce, 0, 0 }, PitchGame.P2));
+    }
+
+    @Test
+    public void testMatchesMinimax() {
+        FastRandom random = new FastRandom(42L);
+        DoubleDummySolver solver = new DoubleDummySolver(12);
+        TrumpTable table = TrumpTable.get(Suit.HEARTS);
+        GameState state = new GameState();
+
+        for (int deal = 0; deal < 200; deal++) {
+            int[] hands = new int[4];
+            for (int bit = 0; bit < HandKey.TRUMP_COUNT; bit++) {
+                int seat = random.nextInt(5);
+                if (seat < 4 && HandKey.size(hands[seat]) < 4) {
+                    hands[seat] |= 1 << bit;
+                }
+            }
+            long[] masks = new long[4];
+            for (int i = 0; i < 4; i++) {
+                masks[i] = table.getCards(hands[i]);
+            }
+            int lead = random.nextInt(4);
+            state.set(masks, Suit.HEARTS, PLAYERS[lead]);
+            Assert.assertEquals(minimax(state), solver.solve(hands.clone(), PLAYERS[lead]));
+
+            // Play into the middle of a hand and solve from there
+            for (int i = random.nextInt(6); i > 0 && !state.isFinished(); i--) {
+                state.makeMove(Long.numberOfTrailingZeros(state.getMoves()));
+            }
+            Assert.assertEquals(minimax(state) - state.getRoundScore(0), solver.solve(state));
+        }
+    }
+
+    @Test
+    public void testSolveGame() {
+        PitchGame game = TestGames.createGame(9L);
+        DoubleDummySolver solver = new DoubleDummySolver();
+
+        for (int i = 0; i < 200; i++) {
+            game.resetGame();
+            TestGames.dealToFirstTrick(game);
+
+            int total = 0;
+            for (PitchGame.PlayerId id : PLAYERS) {
+                total += HandKey.points(TrumpTable.get(game.getTrump()).getHandKey(game.getHandMask(id)));
+            }
+            int points = solver.solve(game);
+            Assert.assertTrue(points >= 0 && points <= total);
+        }
+    }
+
+    /**
+     * Plain minimax over every card of the game state, without pruning
+     * or tables.
+     * @return The points team 0 has at the end of the round.
+     */
+    private static int minimax(GameState state) {
+        if (state.isFinished()) {
+            return state.getRoundScore(0);
+        }
+
+        boolean maximize = (state.getSeat() & 1) == 0;
+        int best = maximize ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        for (long m = state.getMoves(); m != 0; m &= m - 1) {
+            state.makeMove(Long.numberOfTrailingZeros(m));
+            int value = minimax(state);
+            state.unmakeMove();
+            best = maximize ? Math.max(best, value) : Math.min(best, value);
+        }
+        return best;
+    }
+}
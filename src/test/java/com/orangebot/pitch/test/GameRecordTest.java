@@ -0,0 +1,118 @@
+package com.orangebot.pitch.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.orangebot.pitch.CardGame.Suit;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.record.GameRecord;
+import com.orangebot.pitch.record.GameRecordReader;
+import com.orangebot.pitch.record.GameRecorder;
+import com.orangebot.pitch.record.GameReplayer;
+
+public class GameRecordTest {
+
+    @Test
+    public void testRecordAndReplay() throws IOException {
+        PitchGame game = TestGames.createGame(21L);
+        int rounds = 3000;
+        int[] bidKeys = new int[rounds];
+        int[] scores = new int[rounds];
+
+        File file = File.createTempFile("games", ".rec");
+        try {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                    FileChannel channel = raf.getChannel()) {
+                ByteBuffer header = ByteBuffer.allocate(GameRecord.HEADER_SIZE);
+                GameRecord.writeHeader(header);
+                header.flip();
+                channel.write(header);
+
+                GameRecorder recorder = new GameRecorder(channel);
+                game.addListener(recorder);
+                for (int i = 0; i < rounds; i++) {
+                    // Rotate the first bidder, and fix the contract for some rounds
+                    if (i % 3 == 0) {
+                        game.setContract(PitchGame.P3, 6, Suit.SPADES);
+                    } else {
+                        game.clearContract();
+                    }
+                    game.playRound();
+                    bidKeys[i] = game.getBidKey();
+                    scores[i] = game.getRoundScore(0) | game.getRoundScore(1) << 4;
+                }
+                recorder.flush();
+                Assert.assertEquals(rounds, recorder.getRoundCount());
+            }
+            Assert.assertTrue(file.length() <= GameRecord.HEADER_SIZE + (long) rounds * GameRecord.MAX_SIZE);
+
+            GameReplayer replayer = new GameReplayer();
+            GameRecord record = new GameRecord();
+            try (GameRecordReader reader = new GameRecordReader(file)) {
+                for (int i = 0; i < rounds; i++) {
+                    Assert.assertTrue(reader.next(record));
+                    Assert.assertEquals(i % 3 == 0, record.isContract());
+                    replayer.replay(record);
+                    PitchGame replayed = replayer.getGame();
+                    Assert.assertEquals(bidKeys[i], replayed.getBidKey());
+                    Assert.assertEquals(scores[i], replayed.getRoundScore(0) | replayed.getRoundScore(1) << 4);
+                }
+                Assert.assertFalse(reader.next(record));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testRecordRoundTrip() {
+        GameRecord record = new GameRecord();
+        record.setFirstBidder(2);
+        record.setContract(1, 7, Suit.DIAMONDS, false);
+        record.setBid(1, 7);
+        record.setBid(3, 5);
+        record.setPoints(3, 10);
+        int[] deal = record.getDeal();
+        for (int i = 0; i < deal.length; i++) {
+            deal[i] = (i * 7) % deal.length;
+        }
+        record.addPlay(1, 53);
+        record.addPlay(2, 0);
+
+        ByteBuffer buffer = ByteBuffer.allocate(GameRecord.MAX_SIZE);
+        record.write(buffer);
+        Assert.assertEquals(record.size(), buffer.position());
+        buffer.flip();
+
+        GameRecord copy = new GameRecord();
+        Assert.assertTrue(copy.read(buffer));
+        Assert.assertEquals(2, copy.getFirstBidder());
+        Assert.assertEquals(1, copy.getBidder());
+        Assert.assertEquals(7, copy.getHighBid());
+        Assert.assertEquals(Suit.DIAMONDS, copy.getTrump());
+        Assert.assertFalse(copy.isContract());
+        Assert.assertEquals(0, copy.getBid(0));
+        Assert.assertEquals(7, copy.getBid(1));
+        Assert.assertEquals(5, copy.getBid(3));
+        Assert.assertEquals(3, copy.getPoints(0));
+        Assert.assertEquals(10, copy.getPoints(1));
+        Assert.assertArrayEquals(deal, copy.getDeal());
+        Assert.assertEquals(2, copy.getPlayCount());
+        Assert.assertEquals(1, copy.getPlaySeat(0));
+        Assert.assertEquals(53, copy.getPlayCard(0));
+        Assert.assertEquals(2, copy.getPlaySeat(1));
+        Assert.assertEquals(0, copy.getPlayCard(1));
+
+        // A partial record is not read
+        buffer.rewind();
+        buffer.limit(record.size() - 1);
+        Assert.assertFalse(copy.read(buffer));
+        Assert.assertEquals(0, buffer.position());
+    }
+}
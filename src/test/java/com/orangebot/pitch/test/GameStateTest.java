@@ -0,0 +1,194 @@
+package com.orangebot.pitch.test;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.orangebot.pitch.FastRandom;
+import com.orangebot.pitch.GameState;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.PitchGame.PlayedCard;
+import com.orangebot.pitch.PitchGame.PlayerId;
+import com.sun.management.ThreadMXBean;
+
+public class GameStateTest {
+    private static final PlayerId[] PLAYERS = { PitchGame.P1, PitchGame.P2, PitchGame.P3, PitchGame.P4 };
+
+    @Test
+    public void testMatchesPitchGame() {
+        PitchGame game = TestGames.createGame(21L);
+        GameState state = new GameState();
+        for (int round = 0; round < 2000; round++) {
+            startTrickPlay(game);
+            state.set(game);
+            GameState start = new GameState(state);
+
+            for (int hand = 0; hand < 6; hand++) {
+                game.playHand();
+                List<PlayedCard> played = game.getPlayer(PitchGame.P1).getPlayedCards();
+                for (int i = 0; i < played.size(); i++) {
+                    PlayedCard c = played.get(i);
+                    Assert.assertEquals(c.getPlayerId().getIndex(), state.getSeat());
+                    Assert.assertEquals(i == 0, state.getCenterMask() == 0L);
+                    state.makeMove(c.getCard().index());
+                }
+                assertSameState(game, state);
+            }
+            Assert.assertTrue(state.isFinished());
+            Assert.assertEquals(0L, state.getMoves());
+
+            // Taking every move back returns to the start of the play
+            while (state.getMoveCount() > 0) {
+                state.unmakeMove();
+            }
+            assertSameState(start, state);
+        }
+    }
+
+    @Test
+    public void testUnmakeRestoresEveryPosition() {
+        PitchGame game = TestGames.createGame(22L);
+        FastRandom random = new FastRandom(23L);
+        GameState state = new GameState();
+        GameState replay = new GameState();
+        for (int round = 0; round < 500; round++) {
+            startTrickPlay(game);
+            state.set(game);
+            for (int step = 0; step < 200; step++) {
+                long moves = state.getMoves();
+                if (moves != 0 && (state.getMoveCount() == 0 || random.nextInt(3) != 0)) {
+                    int n = random.nextInt(Long.bitCount(moves));
+                    for (int i = 0; i < n; i++) {
+                        moves &= moves - 1;
+                    }
+                    state.makeMove(Long.numberOfTrailingZeros(moves));
+                } else if (state.getMoveCount() > 0) {
+                    state.unmakeMove();
+                }
+
+                // The same moves made from the start give the same state
+                replay.set(game);
+                for (int i = 0; i < state.getMoveCount(); i++) {
+                    replay.makeMove(state.getMove(i));
+                }
+                assertSameState(replay, state);
+            }
+        }
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        PitchGame game = TestGames.createGame(24L);
+        startTrickPlay(game);
+        GameState state = new GameState();
+        state.set(game);
+        state.makeMove(Long.numberOfTrailingZeros(state.getMoves()));
+        state.makeMove(Long.numberOfTrailingZeros(state.getMoves()));
+
+        GameState copy = new GameState(state);
+        assertSameState(state, copy);
+        while (!copy.isFinished()) {
+            copy.makeMove(Long.numberOfTrailingZeros(copy.getMoves()));
+        }
+        Assert.assertEquals(2, state.getMoveCount());
+
+        // The copy can take back the moves made before it was copied
+        while (copy.getMoveCount() > 2) {
+            copy.unmakeMove();
+        }
+        assertSameState(state, copy);
+        copy.unmakeMove();
+        copy.unmakeMove();
+        state.unmakeMove();
+        state.unmakeMove();
+        assertSameState(state, copy);
+    }
+
+    @Test
+    public void testIllegalMoves() {
+        PitchGame game = TestGames.createGame(25L);
+        startTrickPlay(game);
+        GameState state = new GameState();
+        state.set(game);
+        long other = state.getHandMask((state.getSeat() + 1) & 3);
+        if (other != 0) {
+            try {
+                state.makeMove(Long.numberOfTrailingZeros(other));
+                Assert.fail();
+            } catch (IllegalArgumentException ex) {
+                // Expected
+            }
+        }
+        try {
+            state.unmakeMove();
+            Assert.fail();
+        } catch (IllegalStateException ex) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testMovesDoNotAllocate() {
+        ThreadMXBean bean = TestGames.getAllocationBean();
+        long threadId = Thread.currentThread().getId();
+
+        PitchGame game = TestGames.createGame(26L);
+        startTrickPlay(game);
+        GameState state = new GameState();
+        state.set(game);
+
+        // Warm up, so that class loading and compilation are done
+        for (int i = 0; i < 20000; i++) {
+            playOutAndBack(state);
+        }
+
+        long before = bean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 1000; i++) {
+            playOutAndBack(state);
+        }
+        Assert.assertEquals(0L, bean.getThreadAllocatedBytes(threadId) - before);
+    }
+
+    private static void playOutAndBack(GameState state) {
+        while (!state.isFinished()) {
+            state.makeMove(63 - Long.numberOfLeadingZeros(state.getMoves()));
+        }
+        while (state.getMoveCount() > 0) {
+            state.unmakeMove();
+        }
+    }
+
+    private static void startTrickPlay(PitchGame game) {
+        game.resetGame();
+        TestGames.dealToFirstTrick(game);
+    }
+
+    private static void assertSameState(PitchGame game, GameState state) {
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(game.getHandMask(PLAYERS[i]), state.getHandMask(i));
+        }
+        Assert.assertEquals(game.getRoundScore(0), state.getRoundScore(0));
+        Assert.assertEquals(game.getRoundScore(1), state.getRoundScore(1));
+        Assert.assertEquals(game.getLead().getIndex(), state.getLead());
+        Assert.assertEquals(0L, state.getCenterMask());
+        Assert.assertEquals(game.getPlayer(PitchGame.P1).getPlayedMask(), state.getPlayedMask());
+    }
+
+    private static void assertSameState(GameState expected, GameState actual) {
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(expected.getHandMask(i), actual.getHandMask(i));
+        }
+        Assert.assertEquals(expected.getTrump(), actual.getTrump());
+        Assert.assertEquals(expected.getRoundScore(0), actual.getRoundScore(0));
+        Assert.assertEquals(expected.getRoundScore(1), actual.getRoundScore(1));
+        Assert.assertEquals(expected.getLead(), actual.getLead());
+        Assert.assertEquals(expected.getSeat(), actual.getSeat());
+        Assert.assertEquals(expected.getHighSeat(), actual.getHighSeat());
+        Assert.assertEquals(expected.getCenterMask(), actual.getCenterMask());
+        Assert.assertEquals(expected.getPlayedMask(), actual.getPlayedMask());
+        Assert.assertEquals(expected.getMoves(), actual.getMoves());
+        Assert.assertEquals(expected.isFinished(), actual.isFinished());
+        Assert.assertEquals(expected.getMoveCount(), actual.getMoveCount());
+    }
+}
@@ -0,0 +1,71 @@
+package com.orangebot.pitch.test;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.metrics.LatencyHistogram;
+import com.orangebot.pitch.metrics.Phase;
+import com.orangebot.pitch.metrics.RoundSampler;
+import com.orangebot.pitch.metrics.SimulationMetrics;
+
+public class MetricsTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        Assert.assertEquals(1000L, histogram.getCount());
+        Assert.assertEquals(500.5, histogram.getMeanMicros(), 1e-9);
+        Assert.assertEquals(1000.0, histogram.getMaxMicros(), 1e-9);
+        Assert.assertEquals(500.0, histogram.getMedianMicros(), 500.0 * 0.25);
+        Assert.assertEquals(990.0, histogram.getPercentile99Micros(), 990.0 * 0.25);
+
+        histogram.reset();
+        Assert.assertEquals(0L, histogram.getCount());
+        Assert.assertEquals(0.0, histogram.getMedianMicros(), 0.0);
+    }
+
+    @Test
+    public void testSampledPhases() throws Exception {
+        SimulationMetrics metrics = SimulationMetrics.get();
+        metrics.register();
+        int interval = metrics.getSampleInterval();
+        long deals = metrics.getHistogram(Phase.DEAL_ROUND).getCount();
+        long hands = metrics.getHistogram(Phase.PLAY_HAND).getCount();
+        long decisions = metrics.getHistogram(Phase.DECISION).getCount();
+        long rounds = metrics.getRounds();
+
+        PitchGame game = TestGames.createGame(9L);
+        RoundSampler sampler = metrics.createSampler();
+        game.setRoundSampler(sampler);
+        try {
+            metrics.setSampleInterval(10);
+            for (int i = 0; i < 1000; i++) {
+                game.resetGame();
+                game.playRound();
+            }
+        } finally {
+            metrics.setSampleInterval(interval);
+            sampler.close();
+        }
+
+        Assert.assertEquals(1000L, sampler.getRounds());
+        Assert.assertEquals(rounds + 1000L, metrics.getRounds());
+        Assert.assertEquals(deals + 100L, metrics.getHistogram(Phase.DEAL_ROUND).getCount());
+        Assert.assertEquals(hands + 600L, metrics.getHistogram(Phase.PLAY_HAND).getCount());
+        Assert.assertTrue(metrics.getHistogram(Phase.DECISION).getCount() >= decisions + 500L);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Object count = server.getAttribute(new ObjectName(SimulationMetrics.DOMAIN + ":type=Latency,name=bid"), "Count");
+        Assert.assertEquals(metrics.getHistogram(Phase.BID).getCount(), ((Long) count).longValue());
+        Assert.assertNotNull(server.getAttribute(new ObjectName(SimulationMetrics.DOMAIN + ":type=Simulation"), "RoundsPerSecond"));
+    }
+}
@@ -0,0 +1,167 @@
+package com.orangebot.pitch.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.orangebot.pitch.CardGame.Card;
+import com.orangebot.pitch.CardGame.Suit;
+import com.orangebot.pitch.HandKey;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.PitchGame.PlayedCard;
+import com.orangebot.pitch.PitchGame.Player;
+import com.orangebot.pitch.PitchGame.PlayerId;
+import com.orangebot.pitch.PitchGame.PlayerStrategy;
+import com.orangebot.pitch.RandomSource;
+import com.orangebot.pitch.TrumpTable;
+import com.orangebot.pitch.sim.Tournament;
+import com.orangebot.pitch.sim.Tournament.StrategyFactory;
+import com.orangebot.pitch.sim.TournamentResult;
+import com.orangebot.pitch.strats.MonteCarloStrategy;
+import com.orangebot.pitch.strats.SimpleStrategy;
+
+public class MonteCarloStrategyTest {
+
+    @Test
+    public void testPlaysRounds() {
+        MonteCarloStrategy mc = new MonteCarloStrategy(2, 1L);
+        mc.setPlayouts(200);
+        try {
+            PitchGame game = TestGames.createGame(5L, mc);
+            for (int i = 0; i < 50; i++) {
+                game.resetGame();
+                game.playRound();
+                int total = game.getRoundScore(0) + game.getRoundScore(1);
+                Assert.assertTrue(total >= 0 && total <= 10);
+            }
+        } finally {
+            mc.shutdown();
+        }
+    }
+
+    @Test
+    public void testSeededSearchIsReproducible() {
+        PitchGame g1 = createGame(11L);
+        PitchGame g2 = createGame(11L);
+
+        for (int i = 0; i < 20; i++) {
+            g1.resetGame();
+            g1.playRound();
+            g2.resetGame();
+            g2.playRound();
+            Assert.assertEquals(g1.getHighBid(), g2.getHighBid());
+            Assert.assertEquals(g1.getRoundScore(0), g2.getRoundScore(0));
+            Assert.assertEquals(g1.getRoundScore(1), g2.getRoundScore(1));
+        }
+    }
+
+    @Test
+    public void testTakesCertainTrick() {
+        MonteCarloStrategy mc = new MonteCarloStrategy(1, 3L);
+        mc.setPlayouts(200);
+        try {
+            TrickChecker checker = new TrickChecker(mc);
+            PitchGame game = TestGames.createGame(13L, checker);
+            for (int i = 0; i < 1000; i++) {
+                game.resetGame();
+                game.playRound();
+            }
+            Assert.assertTrue(checker.positions >= 10);
+        } finally {
+            mc.shutdown();
+        }
+    }
+
+    @Test
+    public void testBeatsSimpleStrategy() {
+        Tournament tournament = new Tournament();
+        tournament.setDeals(200L);
+        tournament.setParallelism(2);
+        tournament.setSeed(17L);
+        tournament.addEntrant("simple", new StrategyFactory() {
+            @Override
+            public PlayerStrategy create(RandomSource random) {
+                return new SimpleStrategy(random);
+            }
+        });
+        tournament.addEntrant("montecarlo", new StrategyFactory() {
+            @Override
+            public PlayerStrategy create(RandomSource random) {
+                final MonteCarloStrategy strategy = new MonteCarloStrategy(1, random);
+                strategy.setPlayouts(200);
+                return strategy;
+            }
+        });
+
+        TournamentResult result = tournament.run();
+        Assert.assertTrue(result.getMeanDifference(1, 0) > result.getConfidenceHalfWidth(1, 0, 1.96));
+    }
+
+    private static PitchGame createGame(long seed) {
+        MonteCarloStrategy mc = new MonteCarloStrategy(1, seed);
+        mc.setPlayouts(100);
+        return TestGames.createGame(seed, mc);
+    }
+
+    /**
+     * Checks the cards chosen when the player is the last with cards.
+     *
+     * When every other player has played their last card, the cards
+     * left in the player's hand are known to take the later tricks, and
+     * the only question is who takes this one.  If the opponents hold it
+     * and it has points, the player must play a card that beats it.
+     */
+    private static class TrickChecker implements PlayerStrategy {
+        private final MonteCarloStrategy mc;
+        private int positions;
+
+        private TrickChecker(MonteCarloStrategy mc) {
+            this.mc = mc;
+        }
+
+        @Override
+        public int getBid(Player p) {
+            return mc.getBid(p);
+        }
+
+        @Override
+        public Suit getSuit(Player p) {
+            return mc.getSuit(p);
+        }
+
+        @Override
+        public Card playCard(Player p) {
+            final Card card = mc.playCard(p);
+            final TrumpTable table = TrumpTable.get(p.getTrump());
+            final int hand = table.getHandKey(p.getHandMask());
+            if (HandKey.size(hand) < 2 || p.getPlayedCards().isEmpty()) {
+                return card;
+            }
+            for (PlayerId id : new PlayerId[] { PitchGame.P1, PitchGame.P2, PitchGame.P3, PitchGame.P4 }) {
+                if (!id.equals(p.getId()) && p.getHandSize(id) > 0) {
+                    return card;
+                }
+            }
+
+            PlayerId high = null;
+            int highBit = -1;
+            int points = 0;
+            for (PlayedCard c : p.getPlayedCards()) {
+                final int bit = Integer.numberOfTrailingZeros(table.getHandKey(c.getCard().bit()));
+                if (bit != 0) {
+                    points += HandKey.pointValue(bit);
+                }
+                if (bit > highBit) {
+                    high = c.getPlayerId();
+                    highBit = bit;
+                }
+            }
+            final int top = 31 - Integer.numberOfLeadingZeros(hand);
+            if (high.getTeam() != p.getId().getTeam() && points > 0 && top > highBit) {
+                final int bit = Integer.numberOfTrailingZeros(table.getHandKey(card.bit()));
+                Assert.assertTrue(bit > highBit);
+                positions++;
+            }
+            return card;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.orangebot.pitch.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.orangebot.pitch.CardGame;
+import com.orangebot.pitch.ConsoleGameListener;
+import com.orangebot.pitch.FastRandom;
+import com.orangebot.pitch.HandKey;
+import com.orangebot.pitch.TrumpTable;
+import com.orangebot.pitch.CardGame.Card;
+import com.orangebot.pitch.CardGame.Suit;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.PitchGame.GameListener;
+import com.orangebot.pitch.PitchGame.PlayedCard;
+import com.orangebot.pitch.PitchGame.Player;
+import com.orangebot.pitch.PitchGame.PlayerId;
+import com.orangebot.pitch.PitchGame.PlayerStrategy;
+import com.orangebot.pitch.strats.SimpleStrategy;
+import com.sun.management.ThreadMXBean;
+
+public class PitchGameTest {
+
+    @Test
+    public void testSeededGamesAreReproducible() {
+        PitchGame g1 = TestGames.createGame(12345L);
+        PitchGame g2 = TestGames.createGame(12345L);
+
+        for (int i = 0; i < 1000; i++) {
+            g1.resetGame();
+            g1.playRound();
+            g2.resetGame();
+            g2.playRound();
+            Assert.assertEquals(g1.getBidToken(), g2.getBidToken());
+            Assert.assertEquals(g1.getHighBid(), g2.getHighBid());
+            Assert.assertEquals(g1.getScore(0), g2.getScore(0));
+            Assert.assertEquals(g1.getScore(1), g2.getScore(1));
+        }
+    }
+
+    @Test
+    public void testWinningTeam() {
+        PitchGame game = TestGames.createGame(6L);
+        int bothOut = 0;
+        for (int i = 0; i < 2000; i++) {
+            game.resetGame();
+            Assert.assertEquals(-1, game.getWinningTeam());
+            game.playGame();
+
+            int winner = game.getWinningTeam();
+            Assert.assertTrue(game.getScore(winner) >= PitchGame.WIN_SCORE);
+            if (game.getScore(1 - winner) >= PitchGame.WIN_SCORE) {
+                // The bidder goes out
+                Assert.assertEquals(game.getBiddingTeam(), winner);
+                bothOut++;
+            }
+        }
+        Assert.assertTrue(bothOut > 0);
+    }
+
+    @Test
+    public void testRoundPoints() {
+        PitchGame game = TestGames.createGame(1L);
+        for (int i = 0; i < 1000; i++) {
+            game.resetGame();
+            game.playRound();
+            int total = game.getRoundScore(0) + game.getRoundScore(1);
+            Assert.assertTrue(total >= 0 && total <= 10);
+        }
+    }
+
+    @Test
+    public void testBidKey() {
+        PitchGame game = TestGames.createGame(7L);
+        for (int i = 0; i < 1000; i++) {
+            game.resetGame();
+            game.playRound();
+            Assert.assertTrue(HandKey.size(game.getBidKey()) <= 9);
+        }
+        Assert.assertEquals("", HandKey.toString(0));
+        Assert.assertEquals("A K Q LJ 2", HandKey.toString(0x8000 | 0x4000 | 0x2000 | 0x0800 | 0x0001));
+        Assert.assertEquals("JH JL 10", HandKey.toString(0x0400 | 0x0200 | 0x0100));
+    }
+
+    @Test
+    public void testHandKeyRanks() {
+        Assert.assertEquals(HandKey.SIZE, HandKey.count(16));
+        for (int rank = 0; rank < HandKey.SIZE; rank++) {
+            int key = HandKey.unrank(rank);
+            Assert.assertEquals(rank, HandKey.rank(key));
+            Assert.assertTrue(HandKey.size(key) <= HandKey.size(HandKey.unrank(Math.min(rank + 1, HandKey.SIZE - 1))));
+        }
+    }
+
+    @Test
+    public void testKnownHand() {
+        PitchGame game = TestGames.createGame(3L);
+        TrumpTable table = TrumpTable.get(Suit.HEARTS);
+        int key = 0x8000 | 0x0800 | 0x0002;
+        long hand = table.getCards(key);
+        Assert.assertEquals(key, table.getHandKey(hand));
+
+        // Fill the hand with non-trump cards
+        for (int i = 0; Long.bitCount(hand) < 9; i++) {
+            if ((table.getTrumpMask() & (1L << i)) == 0) {
+                hand |= 1L << i;
+            }
+        }
+
+        game.setContract(PitchGame.P2, 5, Suit.HEARTS);
+        for (int i = 0; i < 100; i++) {
+            game.playRound(PitchGame.P2, hand);
+            Assert.assertEquals(key, game.getBidKey());
+            Assert.assertEquals(1, game.getBiddingTeam());
+            Assert.assertEquals(5, game.getHighBid());
+        }
+    }
+
+    @Test
+    public void testPlayHandDoesNotAllocate() {
+        ThreadMXBean bean = TestGames.getAllocationBean();
+        long threadId = Thread.currentThread().getId();
+
+        // Warm up, so that class loading and compilation are done
+        PitchGame game = TestGames.createGame(17L);
+        for (int i = 0; i < 20000; i++) {
+            playTricks(game, bean, threadId);
+        }
+
+        long allocated = 0;
+        for (int i = 0; i < 1000; i++) {
+            allocated += playTricks(game, bean, threadId);
+        }
+        Assert.assertEquals(0L, allocated);
+    }
+
+    @Test
+    public void testListenerEvents() {
+        PitchGame game = TestGames.createGame(11L);
+        final int[] counts = new int[10];
+        final int[] points = new int[2];
+        final boolean[] made = new boolean[1];
+        final long[] buried = new long[4];
+        game.addListener(new GameListener() {
+            @Override
+            public void onDeal(PitchGame game) {
+                counts[0]++;
+            }
+
+            @Override
+            public void onBid(PitchGame game, Player player, int bid) {
+                counts[1]++;
+            }
+
+            @Override
+            public void onTrump(PitchGame game, Player bidder, Suit trump) {
+                counts[2]++;
+                Assert.assertEquals(game.getTrump(), trump);
+            }
+
+            @Override
+            public void onDiscard(PitchGame game, Player bidder) {
+                counts[8]++;
+                Assert.assertEquals(game.getBidKey(), TrumpTable.get(game.getTrump()).getHandKey(bidder.getHandMask()));
+            }
+
+            @Override
+            public void onRedeal(PitchGame game, Player bidder) {
+                counts[3]++;
+            }
+
+            @Override
+            public void onBury(PitchGame game, Player player, Card card) {
+                counts[4]++;
+                buried[player.getId().getIndex()] |= card.bit();
+                Assert.assertTrue((player.getBuriedMask() & card.bit()) != 0);
+            }
+
+            @Override
+            public void onPlay(PitchGame game, Player player, Card card) {
+                counts[5]++;
+                Assert.assertFalse(player.getHand().contains(card));
+            }
+
+            @Override
+            public void onOut(PitchGame game, Player player) {
+                counts[9]++;
+                Assert.assertTrue(player.isOut());
+            }
+
+            @Override
+            public void onTrickWon(PitchGame game, PlayedCard highCard, int team0Points, int team1Points) {
+                counts[6]++;
+                points[0] += team0Points;
+                points[1] += team1Points;
+            }
+
+            @Override
+            public void onRoundEnd(PitchGame game, boolean made0) {
+                counts[7]++;
+                made[0] = made0;
+            }
+        });
+
+        for (int i = 0; i < 100; i++) {
+            Arrays.fill(counts, 0);
+            Arrays.fill(points, 0);
+            Arrays.fill(buried, 0L);
+            game.resetGame();
+            game.playRound();
+            Assert.assertArrayEquals(new int[] { 1, 4, 1, 1 }, Arrays.copyOf(counts, 4));
+            Assert.assertEquals(1, counts[8]);
+            Assert.assertEquals(24, counts[5] + counts[9]);
+            Assert.assertTrue(counts[6] <= 6);
+            Assert.assertEquals(1, counts[7]);
+            Assert.assertEquals(game.getRoundScore(0), points[0]);
+            Assert.assertEquals(game.getRoundScore(1), points[1]);
+            Assert.assertEquals(game.getRoundScore(game.getBiddingTeam()) >= game.getHighBid(), made[0]);
+            Assert.assertEquals(buried[0], game.getPlayer(PitchGame.P1).getBuriedMask());
+            Assert.assertEquals(buried[1], game.getPlayer(PitchGame.P2).getBuriedMask());
+            Assert.assertEquals(buried[2], game.getPlayer(PitchGame.P3).getBuriedMask());
+            Assert.assertEquals(buried[3], game.getPlayer(PitchGame.P4).getBuriedMask());
+        }
+    }
+
+    @Test
+    public void testConsoleListener() {
+        PitchGame game = TestGames.createGame(13L);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConsoleGameListener listener = new ConsoleGameListener(new PrintStream(out));
+        game.addListener(listener);
+        game.playRound();
+        String log = out.toString();
+        Assert.assertTrue(log.contains("Round 1"));
+        Assert.assertTrue(log.contains("Hand 1"));
+        Assert.assertTrue(log.contains("Hand 6"));
+        Assert.assertTrue(log.contains(" is out"));
+        Assert.assertTrue(log.contains("Bid hand: "));
+        Assert.assertTrue(log.contains("Game Score: " + game.getScore(0) + ", " + game.getScore(1)));
+
+        game.removeListener(listener);
+        out.reset();
+        game.playRound();
+        Assert.assertEquals(0, out.size());
+    }
+
+    @Test
+    public void testCardTracking() {
+        final FastRandom random = new FastRandom(19L);
+        final SimpleStrategy simple = new SimpleStrategy(random);
+        final PitchGame[] games = new PitchGame[1];
+        final int[] checks = new int[1];
+        PlayerStrategy checker = new PlayerStrategy() {
+            @Override
+            public int getBid(Player p) {
+                return simple.getBid(p);
+            }
+
+            @Override
+            public Suit getSuit(Player p) {
+                return simple.getSuit(p);
+            }
+
+            @Override
+            public Card playCard(Player p) {
+                assertTracking(games[0], p);
+                checks[0]++;
+                return simple.playCard(p);
+            }
+        };
+        PitchGame game = new PitchGame(random, checker, checker, checker, checker);
+        games[0] = game;
+
+        for (int i = 0; i < 300; i++) {
+            game.resetGame();
+            game.playRound();
+            assertTracking(game, game.getPlayer(PitchGame.P1));
+            Assert.assertEquals(0, game.getUnplayedTrumpKey());
+            Assert.assertNull(game.getHighestUnplayedTrump());
+            for (int team = 0; team < 2; team++) {
+                Assert.assertEquals(game.getRoundScore(team), HandKey.points(game.getCapturedKey(team)));
+            }
+        }
+        Assert.assertTrue(checks[0] > 0);
+    }
+
+    /**
+     * Checks the tracked trump against the cards in the hands and the center.
+     */
+    private static void assertTracking(PitchGame game, Player p) {
+        TrumpTable table = TrumpTable.get(game.getTrump());
+        PlayerId[] ids = { PitchGame.P1, PitchGame.P2, PitchGame.P3, PitchGame.P4 };
+        int unplayed = 0;
+        for (PlayerId id : ids) {
+            int key = table.getHandKey(game.getHandMask(id));
+            Assert.assertEquals(key == 0, p.isVoid(id));
+            unplayed |= key;
+        }
+        Assert.assertEquals(unplayed, p.getUnplayedTrumpKey());
+
+        int center = 0;
+        for (PlayedCard c : p.getPlayedCards()) {
+            center |= table.getHandKey(c.getCard().bit());
+        }
+        int captured = p.getCapturedKey(0) | p.getCapturedKey(1);
+        Assert.assertEquals(0, p.getCapturedKey(0) & p.getCapturedKey(1));
+        Assert.assertEquals(0, captured & unplayed);
+        Assert.assertEquals((unplayed | center) & ~captured & HandKey.POINT_CARDS, p.getOutstandingPointsKey());
+
+        Card highest = p.getHighestUnplayedTrump();
+        if (unplayed == 0) {
+            Assert.assertNull(highest);
+        } else {
+            Assert.assertEquals(Integer.highestOneBit(unplayed), HandKey.bit(table.getSortValue(highest)));
+        }
+
+        // The tracked answer matches a scan of every hand and the center
+        List<Card> center0 = new ArrayList<>();
+        for (PlayedCard c : p.getPlayedCards()) {
+            center0.add(c.getCard());
+        }
+        for (int i = 0; i < CardGame.DECK_SIZE; i++) {
+            Card card = Card.get(i);
+            boolean high = p.isHighCard(card, center0);
+            for (PlayerId id : ids) {
+                high &= p.isHighCard(card, game.getPlayer(id).getHand());
+            }
+            Assert.assertEquals(high, p.isHighCard(card));
+        }
+    }
+
+    /**
+     * Deals a round and returns the bytes allocated by its six hands.
+     */
+    private static long playTricks(PitchGame game, ThreadMXBean bean, long threadId) {
+        game.resetGame();
+        TestGames.dealToFirstTrick(game);
+
+        long calibrate = bean.getThreadAllocatedBytes(threadId);
+        long start = bean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 6; i++) {
+            game.playHand();
+        }
+        long end = bean.getThreadAllocatedBytes(threadId);
+        return (end - start) - (start - calibrate);
+    }
+}
@@ -0,0 +1,104 @@
+package com.orangebot.pitch.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.orangebot.pitch.CardGame.Card;
+import com.orangebot.pitch.CardGame.Suit;
+import com.orangebot.pitch.FastRandom;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.PitchGame.PlayedCard;
+import com.orangebot.pitch.PitchGame.Player;
+import com.orangebot.pitch.PitchGame.PlayerId;
+import com.orangebot.pitch.PitchGame.PlayerStrategy;
+import com.orangebot.pitch.TrumpTable;
+import com.orangebot.pitch.strats.SimpleRules;
+import com.orangebot.pitch.strats.SimpleStrategy;
+
+public class SimpleRulesTest {
+    private static final PlayerId[] PLAYERS = { PitchGame.P1, PitchGame.P2, PitchGame.P3, PitchGame.P4 };
+
+    @Test
+    public void testMatchesPitchGame() {
+        FastRandom random = new FastRandom(31L);
+        RuleChecker checker = new RuleChecker(new SimpleStrategy(random));
+        PitchGame game = new PitchGame(random, checker, checker, checker, checker);
+        checker.game = game;
+
+        for (int round = 0; round < 2000; round++) {
+            game.resetGame();
+            game.setupRound();
+            game.dealRound();
+            game.bid();
+            game.discard();
+            game.redealRound();
+
+            TrumpTable table = TrumpTable.get(game.getTrump());
+            int[] keys = new int[4];
+            for (int i = 0; i < 4; i++) {
+                keys[i] = table.getHandKey(game.getHandMask(PLAYERS[i]));
+            }
+            game.bury();
+            for (int i = 0; i < 4; i++) {
+                Assert.assertEquals(SimpleRules.bury(keys[i]), table.getHandKey(game.getHandMask(PLAYERS[i])));
+            }
+
+            for (int hand = 0; hand < 6; hand++) {
+                game.playHand();
+            }
+        }
+        Assert.assertTrue(checker.cards > 10000);
+    }
+
+    /**
+     * Plays the simple strategy's cards and checks that the rules on
+     * hand keys choose the same cards.
+     */
+    private static class RuleChecker implements PlayerStrategy {
+        private final SimpleStrategy simple;
+        private PitchGame game;
+        private int cards;
+
+        private RuleChecker(SimpleStrategy simple) {
+            this.simple = simple;
+        }
+
+        @Override
+        public int getBid(Player p) {
+            return simple.getBid(p);
+        }
+
+        @Override
+        public Suit getSuit(Player p) {
+            return simple.getSuit(p);
+        }
+
+        @Override
+        public Card playCard(Player p) {
+            TrumpTable table = TrumpTable.get(p.getTrump());
+            int hand = table.getHandKey(p.getHandMask());
+            int others = 0;
+            for (PlayerId id : PLAYERS) {
+                if (!id.equals(p.getId())) {
+                    others |= table.getHandKey(game.getHandMask(id));
+                }
+            }
+
+            int highSeat = -1;
+            int highBit = -1;
+            for (PlayedCard c : p.getPlayedCards()) {
+                int bit = Integer.numberOfTrailingZeros(table.getHandKey(c.getCard().bit()));
+                if (bit > highBit) {
+                    highSeat = c.getPlayerId().getIndex();
+                    highBit = bit;
+                }
+            }
+
+            Card card = simple.playCard(p);
+            int expected = SimpleRules.choose(hand, others, p.getId().getIndex(), highSeat, highBit);
+            Assert.assertEquals(expected, Integer.numberOfTrailingZeros(table.getHandKey(card.bit())));
+            cards++;
+            return card;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.orangebot.pitch.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.orangebot.pitch.CardGame.Card;
+import com.orangebot.pitch.CardGame.Suit;
+import com.orangebot.pitch.PitchGame.Player;
+import com.orangebot.pitch.PitchGame.PlayerStrategy;
+import com.orangebot.pitch.RandomSource;
+import com.orangebot.pitch.sim.Simulation;
+import com.orangebot.pitch.sim.SimulationData;
+import com.orangebot.pitch.sim.SimulationRow;
+import com.orangebot.pitch.sim.Tournament.StrategyFactory;
+import com.orangebot.pitch.strats.SimpleStrategy;
+
+public class SimulationTest {
+    private final List<File> dirs = new ArrayList<>();
+
+    @After
+    public void deleteDirs() {
+        for (File dir : dirs) {
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testExactRoundBudget() throws Exception {
+        // 700 does not divide the budget, so the last block is short
+        Simulation simulation = createSimulation(3, 1L);
+        simulation.setShardRounds(700);
+        simulation.setRoundLimit(10_000L);
+        Assert.assertEquals(10_000L, simulation.run().getCount());
+
+        // Nor does the batch size divide the blocks
+        simulation = createSimulation(3, 1L);
+        simulation.setShardRounds(700);
+        simulation.setRoundLimit(10_000L);
+        simulation.setBatchSize(64);
+        Assert.assertEquals(10_000L, simulation.run().getCount());
+    }
+
+    @Test(timeout = 60000)
+    public void testSameSeedSameData() throws Exception {
+        SimulationData a = runRounds(3, 2L);
+        SimulationData b = runRounds(3, 2L);
+        assertSameData(a, b);
+
+        // The blocks are seeded, so the threads do not matter either
+        assertSameData(a, runRounds(1, 2L));
+
+        SimulationData c = runRounds(3, 3L);
+        boolean same = true;
+        for (int key = 0; key <= 0xFFFF && same; key++) {
+            same = a.getTotal(key) == c.getTotal(key);
+        }
+        Assert.assertFalse(same);
+    }
+
+    @Test(timeout = 60000)
+    public void testStopMergesPartialShards() throws Exception {
+        final Simulation simulation = createSimulation(2, 4L);
+        simulation.setShardRounds(Integer.MAX_VALUE);
+        FutureTask<SimulationData> task = new FutureTask<>(new Callable<SimulationData>() {
+            @Override
+            public SimulationData call() throws Exception {
+                return simulation.run();
+            }
+        });
+        new Thread(task).start();
+        Thread.sleep(300L);
+        simulation.stop();
+
+        // No block is finished, so every round comes from a stopped shard
+        Assert.assertTrue(simulation.awaitFinished(30_000L));
+        Assert.assertTrue(task.get().getCount() > 0);
+    }
+
+    @Test(timeout = 60000)
+    public void testTimeLimitMergesPartialShards() throws Exception {
+        Simulation simulation = createSimulation(2, 5L);
+        simulation.setShardRounds(Integer.MAX_VALUE);
+        simulation.setTimeLimitMillis(300L);
+        long start = System.currentTimeMillis();
+        SimulationData data = simulation.run();
+        Assert.assertTrue(System.currentTimeMillis() - start >= 300L);
+        Assert.assertTrue(data.getCount() > 0);
+    }
+
+    @Test(timeout = 60000)
+    public void testFailingThread() throws Exception {
+        Simulation simulation = createSimulation(3, 6L);
+        simulation.setRoundLimit(1_000_000_000L);
+        simulation.setShardRounds(1000);
+        simulation.setStrategyFactory(new StrategyFactory() {
+            @Override
+            public PlayerStrategy create(RandomSource random) {
+                return new FailingStrategy(random);
+            }
+        });
+        try {
+            simulation.run();
+            Assert.fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            Assert.assertEquals("Strategy failed", ex.getMessage());
+        }
+    }
+
+    private SimulationData runRounds(int threads, long seed) throws Exception {
+        Simulation simulation = createSimulation(threads, seed);
+        simulation.setShardRounds(1000);
+        simulation.setRoundLimit(5500L);
+        return simulation.run();
+    }
+
+    private Simulation createSimulation(int threads, long seed) throws IOException {
+        File dir = Files.createTempDirectory("simulation").toFile();
+        dirs.add(dir);
+        Simulation simulation = new Simulation();
+        simulation.setThreadCount(threads);
+        simulation.setSeed(seed);
+        simulation.setOutputDir(dir);
+        return simulation;
+    }
+
+    private static void assertSameData(SimulationData expected, SimulationData actual) {
+        Assert.assertEquals(expected.getCount(), actual.getCount());
+        for (int key = 0; key <= 0xFFFF; key++) {
+            for (int points = 0; points < SimulationRow.BUCKETS; points++) {
+                Assert.assertEquals(expected.getCount(key, points), actual.getCount(key, points));
+            }
+        }
+    }
+
+    /**
+     * Plays like the simple strategy for a while, then fails.
+     */
+    private static class FailingStrategy implements PlayerStrategy {
+        private final SimpleStrategy simple;
+        private int cards;
+
+        private FailingStrategy(RandomSource random) {
+            this.simple = new SimpleStrategy(random);
+        }
+
+        @Override
+        public int getBid(Player p) {
+            return simple.getBid(p);
+        }
+
+        @Override
+        public Suit getSuit(Player p) {
+            return simple.getSuit(p);
+        }
+
+        @Override
+        public Card playCard(Player p) {
+            if (++cards == 5000) {
+                throw new IllegalStateException("Strategy failed");
+            }
+            return simple.playCard(p);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.orangebot.pitch.test;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.orangebot.pitch.HandKey;
+import com.orangebot.pitch.sim.BinarySnapshot;
+import com.orangebot.pitch.sim.SimulationData;
+import com.orangebot.pitch.sim.SimulationRow;
+import com.orangebot.pitch.sim.SnapshotFormat;
+import com.orangebot.pitch.sim.SnapshotReader;
+import com.orangebot.pitch.sim.SnapshotWriter;
+
+public class SnapshotTest {
+
+    @Test
+    public void testBinaryRoundTrip() throws IOException {
+        SimulationData data = new SimulationData();
+        data.add(0, 0);
+        data.add(0x8001, 4, 7);
+        data.add(0xFFFF, 10, 3);
+        data.add(0x8001, 5);
+
+        File file = File.createTempFile("snapshot", ".snap");
+        try {
+            BinarySnapshot.write(data, file);
+
+            try (SnapshotReader reader = new SnapshotReader(file)) {
+                Assert.assertEquals(3, reader.getRowCount());
+                Assert.assertEquals(SimulationRow.BUCKETS, reader.getBucketCount());
+                Assert.assertEquals(12L, reader.getTotalCount());
+                Assert.assertEquals(0, reader.getKey(0));
+                Assert.assertEquals(0x8001, reader.getKey(1));
+                Assert.assertEquals(0xFFFF, reader.getKey(2));
+
+                int row = reader.findRow(0x8001);
+                Assert.assertEquals(1, row);
+                Assert.assertEquals(7, reader.getCount(row, 4));
+                Assert.assertEquals(1, reader.getCount(row, 5));
+                Assert.assertEquals(-1, reader.findRow(0x1234));
+            }
+
+            SimulationData loaded = SnapshotReader.load(file);
+            Assert.assertEquals(data.getCount(), loaded.getCount());
+            for (int key = 0; key < HandKey.SIZE; key++) {
+                for (int points = 0; points < SimulationRow.BUCKETS; points++) {
+                    Assert.assertEquals(data.getCount(key, points), loaded.getCount(key, points));
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testWriterSurvivesFailedWrites() throws Exception {
+        SnapshotWriter writer = new SnapshotWriter(SnapshotFormat.CSV);
+        File missing = new File("no-such-directory", "snapshot.csv");
+        SimulationData data = new SimulationData();
+
+        // More failed writes than buffers, so a lost buffer would block submit
+        for (int i = 0; i < 5; i++) {
+            writer.submit(data, missing);
+        }
+        try {
+            writer.close();
+            Assert.fail("Expected IOException");
+        } catch (IOException ex) {
+            Assert.assertTrue(ex.getMessage().contains(missing.toString()));
+            Assert.assertEquals(4, ex.getSuppressed().length);
+        }
+        Assert.assertFalse(missing.exists());
+    }
+}
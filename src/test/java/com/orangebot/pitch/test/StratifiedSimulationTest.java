@@ -0,0 +1,44 @@
+package com.orangebot.pitch.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.orangebot.pitch.HandKey;
+import com.orangebot.pitch.sim.SimulationData;
+import com.orangebot.pitch.sim.SimulationRow;
+import com.orangebot.pitch.sim.StratifiedSimulation;
+
+public class StratifiedSimulationTest {
+    private static final int MAX_TRUMP = 2;
+    private static final int DEALS = 50;
+
+    @Test(timeout = 60000)
+    public void testEveryHoldingIsPlayed() {
+        SimulationData data = runStratified(3, 11L);
+        Assert.assertEquals((long) HandKey.count(MAX_TRUMP) * DEALS, data.getCount());
+        for (int rank = 0; rank < HandKey.count(MAX_TRUMP); rank++) {
+            Assert.assertEquals(DEALS, data.getTotal(HandKey.unrank(rank)));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testSameSeedSameData() {
+        SimulationData a = runStratified(3, 11L);
+        SimulationData b = runStratified(1, 11L);
+        for (int rank = 0; rank < HandKey.count(MAX_TRUMP); rank++) {
+            int key = HandKey.unrank(rank);
+            for (int points = 0; points < SimulationRow.BUCKETS; points++) {
+                Assert.assertEquals(a.getCount(key, points), b.getCount(key, points));
+            }
+        }
+    }
+
+    private static SimulationData runStratified(int parallelism, long seed) {
+        StratifiedSimulation simulation = new StratifiedSimulation();
+        simulation.setMaxTrump(MAX_TRUMP);
+        simulation.setDealsPerHand(DEALS);
+        simulation.setParallelism(parallelism);
+        simulation.setSeed(seed);
+        return simulation.run();
+    }
+}
@@ -0,0 +1,71 @@
+package com.orangebot.pitch.test;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+
+import com.orangebot.pitch.FastRandom;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.PitchGame.PlayerStrategy;
+import com.orangebot.pitch.strats.SimpleStrategy;
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Games and measurements shared by the tests.
+ */
+final class TestGames {
+
+    private TestGames() {
+    }
+
+    /**
+     * Creates a game of four simple strategies.
+     * @param seed The seed of the game's random source.
+     * @return The game.
+     */
+    static PitchGame createGame(long seed) {
+        final FastRandom random = new FastRandom(seed);
+        final SimpleStrategy s = new SimpleStrategy(random);
+        return new PitchGame(random, s, s, s, s);
+    }
+
+    /**
+     * Creates a game of one strategy in seats P1 and P3 against simple
+     * strategies in seats P2 and P4.
+     * @param seed The seed of the game's random source.
+     * @param team0 The strategy of team 0.
+     * @return The game.
+     */
+    static PitchGame createGame(long seed, PlayerStrategy team0) {
+        final FastRandom random = new FastRandom(seed);
+        final SimpleStrategy s = new SimpleStrategy(random);
+        return new PitchGame(random, team0, s, team0, s);
+    }
+
+    /**
+     * Sets up and deals a round and plays it up to the first hand.
+     * @param game The game.
+     */
+    static void dealToFirstTrick(PitchGame game) {
+        game.setupRound();
+        game.dealRound();
+        game.bid();
+        game.discard();
+        game.redealRound();
+        game.bury();
+    }
+
+    /**
+     * Returns the thread bean with allocation accounting enabled, or skips
+     * the test on JVMs that do not count allocated bytes per thread.
+     * @return The thread bean.
+     */
+    static ThreadMXBean getAllocationBean() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof ThreadMXBean);
+        final ThreadMXBean allocationBean = (ThreadMXBean) bean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        return allocationBean;
+    }
+}
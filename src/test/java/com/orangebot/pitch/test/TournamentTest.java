@@ -0,0 +1,121 @@
+package com.orangebot.pitch.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.orangebot.pitch.CardGame.Card;
+import com.orangebot.pitch.CardGame.Suit;
+import com.orangebot.pitch.PitchGame.Player;
+import com.orangebot.pitch.PitchGame.PlayerStrategy;
+import com.orangebot.pitch.RandomSource;
+import com.orangebot.pitch.sim.Tournament;
+import com.orangebot.pitch.sim.Tournament.StrategyFactory;
+import com.orangebot.pitch.sim.TournamentResult;
+import com.orangebot.pitch.strats.MonteCarloStrategy;
+import com.orangebot.pitch.strats.SimpleStrategy;
+
+public class TournamentTest {
+
+    @Test
+    public void testIdenticalStrategiesTie() {
+        Tournament tournament = createTournament(2);
+        TournamentResult result = tournament.run();
+        Assert.assertEquals(2000L, result.getDealCount());
+        Assert.assertEquals(0.0, result.getMeanDifference(0, 1), 0.0);
+        Assert.assertEquals(0.0, result.getStandardDeviation(0, 1), 0.0);
+    }
+
+    @Test
+    public void testResultDoesNotDependOnThreads() {
+        Tournament t1 = createTournament(1);
+        Tournament t3 = createTournament(3);
+        addPasser(t1);
+        addPasser(t3);
+        TournamentResult r1 = t1.run();
+        TournamentResult r3 = t3.run();
+
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                if (i != j) {
+                    Assert.assertEquals(r1.getMeanDifference(i, j), r3.getMeanDifference(i, j), 0.0);
+                    Assert.assertEquals(r1.getStandardDeviation(i, j), r3.getStandardDeviation(i, j), 0.0);
+                    Assert.assertEquals(-r1.getMeanDifference(i, j), r1.getMeanDifference(j, i), 0.0);
+                }
+            }
+        }
+        Assert.assertTrue(r1.getConfidenceHalfWidth(0, 2, 1.96) > 0.0);
+    }
+
+    @Test
+    public void testMonteCarloResultDoesNotDependOnThreads() {
+        Tournament t1 = createTournament(1);
+        Tournament t3 = createTournament(3);
+        addMonteCarlo(t1);
+        addMonteCarlo(t3);
+        t1.setDeals(60L);
+        t3.setDeals(60L);
+        TournamentResult r1 = t1.run();
+        TournamentResult r3 = t3.run();
+
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals(r1.getMeanDifference(i, 2), r3.getMeanDifference(i, 2), 0.0);
+            Assert.assertEquals(r1.getStandardDeviation(i, 2), r3.getStandardDeviation(i, 2), 0.0);
+        }
+    }
+
+    private static Tournament createTournament(int parallelism) {
+        StrategyFactory simple = new StrategyFactory() {
+            @Override
+            public PlayerStrategy create(RandomSource random) {
+                return new SimpleStrategy(random);
+            }
+        };
+
+        Tournament tournament = new Tournament();
+        tournament.setDeals(2000L);
+        tournament.setParallelism(parallelism);
+        tournament.setSeed(5L);
+        tournament.addEntrant("a", simple);
+        tournament.addEntrant("b", simple);
+        return tournament;
+    }
+
+    private static void addMonteCarlo(Tournament tournament) {
+        tournament.addEntrant("montecarlo", new StrategyFactory() {
+            @Override
+            public PlayerStrategy create(RandomSource random) {
+                final MonteCarloStrategy strategy = new MonteCarloStrategy(1, random);
+                strategy.setPlayouts(20);
+                return strategy;
+            }
+        });
+    }
+
+    /**
+     * Adds an entrant that plays like the simple strategy but never bids.
+     */
+    private static void addPasser(Tournament tournament) {
+        tournament.addEntrant("passer", new StrategyFactory() {
+            @Override
+            public PlayerStrategy create(RandomSource random) {
+                final SimpleStrategy simple = new SimpleStrategy(random);
+                return new PlayerStrategy() {
+                    @Override
+                    public int getBid(Player p) {
+                        return 0;
+                    }
+
+                    @Override
+                    public Suit getSuit(Player p) {
+                        return simple.getSuit(p);
+                    }
+
+                    @Override
+                    public Card playCard(Player p) {
+                        return simple.playCard(p);
+                    }
+                };
+            }
+        });
+    }
+}
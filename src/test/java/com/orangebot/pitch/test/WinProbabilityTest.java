@@ -0,0 +1,129 @@
+package com.orangebot.pitch.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.orangebot.pitch.HandKey;
+import com.orangebot.pitch.PitchGame;
+import com.orangebot.pitch.solver.RoundOutcomes;
+import com.orangebot.pitch.solver.WinProbabilitySolver;
+
+public class WinProbabilityTest {
+
+    @Test
+    public void testOutcomes() {
+        RoundOutcomes outcomes = RoundOutcomes.simulate(20_000L, 1L);
+        Assert.assertEquals(20_000L, outcomes.getCount());
+        Assert.assertEquals(1.0, outcomes.getRoleProbability(RoundOutcomes.DEALER)
+                + outcomes.getRoleProbability(RoundOutcomes.OTHER), 1e-12);
+
+        for (int role = 0; role < 2; role++) {
+            double classSum = 0.0;
+            for (int c = 0; c < RoundOutcomes.HAND_CLASSES; c++) {
+                classSum += outcomes.getClassProbability(role, c);
+                if (outcomes.getCount(role, c) == 0) {
+                    continue;
+                }
+                double bidSum = 0.0;
+                for (int bid = RoundOutcomes.MIN_BID; bid <= RoundOutcomes.MAX_BID; bid++) {
+                    bidSum += outcomes.getBidProbability(role, c, bid);
+                }
+                Assert.assertEquals(1.0, bidSum, 1e-9);
+
+                double splitSum = 0.0;
+                for (int i = 0; i <= RoundOutcomes.MAX_POINTS; i++) {
+                    for (int j = 0; j <= RoundOutcomes.MAX_POINTS; j++) {
+                        splitSum += outcomes.getProbability(role, c, i, j);
+                    }
+                }
+                Assert.assertEquals(1.0, splitSum, 1e-9);
+
+                // A higher bid is made by fewer of the same splits
+                for (int bid = RoundOutcomes.MIN_BID; bid < RoundOutcomes.MAX_BID; bid++) {
+                    Assert.assertTrue(outcomes.getMadeProbability(role, c, bid)
+                            >= outcomes.getMadeProbability(role, c, bid + 1));
+                }
+            }
+            Assert.assertEquals(1.0, classSum, 1e-9);
+        }
+    }
+
+    @Test
+    public void testHandClasses() {
+        int ace = HandKey.bit(17);
+        int king = HandKey.bit(16);
+        Assert.assertEquals(0, RoundOutcomes.getHandClass(0));
+        Assert.assertEquals(2, RoundOutcomes.getHandClass(king));
+        Assert.assertEquals(3, RoundOutcomes.getHandClass(ace));
+        Assert.assertEquals(5, RoundOutcomes.getHandClass(ace | king));
+        Assert.assertEquals(RoundOutcomes.HAND_CLASSES - 1, RoundOutcomes.getHandClass(HandKey.SIZE - 1));
+    }
+
+    @Test
+    public void testSymmetry() {
+        WinProbabilitySolver solver = new WinProbabilitySolver(RoundOutcomes.simulate(20_000L, 2L));
+        solver.solve();
+
+        // Swapping the teams and the dealer's team gives the other team's chance
+        int key = HandKey.bit(17) | HandKey.bit(2);
+        for (int s0 = -10; s0 < PitchGame.WIN_SCORE; s0 += 7) {
+            for (int s1 = -10; s1 < PitchGame.WIN_SCORE; s1 += 5) {
+                double p = solver.getWinProbability(s0, s1, PitchGame.P4);
+                double q = solver.getWinProbability(s1, s0, PitchGame.P1);
+                Assert.assertEquals(1.0, p + q, 1e-9);
+                Assert.assertEquals(solver.getBestBid(s0, s1, PitchGame.P4, 0, key),
+                        solver.getBestBid(s1, s0, PitchGame.P1, 1, key));
+            }
+        }
+
+        Assert.assertTrue(solver.getWinProbability(48, 0, PitchGame.P4) > solver.getWinProbability(0, 0, PitchGame.P4));
+        Assert.assertTrue(solver.getWinProbability(0, 48, PitchGame.P4) < solver.getWinProbability(0, 0, PitchGame.P4));
+    }
+
+    @Test
+    public void testBestBids() {
+        RoundOutcomes outcomes = RoundOutcomes.simulate(20_000L, 3L);
+        WinProbabilitySolver best = new WinProbabilitySolver(outcomes);
+        best.solve();
+
+        // Every bid is scored against the same split for a holding, so a
+        // higher bid never takes more points and only adds the risk of a
+        // set, whatever the score
+        for (int s0 = 0; s0 < PitchGame.WIN_SCORE; s0 += 3) {
+            for (int s1 = 0; s1 < PitchGame.WIN_SCORE; s1 += 3) {
+                for (int key = 0; key < HandKey.SIZE; key += 97) {
+                    int c = RoundOutcomes.getHandClass(key);
+                    for (int team = 0; team < 2; team++) {
+                        // P4 deals, so team 1 is the dealer's team
+                        int role = team == 1 ? RoundOutcomes.DEALER : RoundOutcomes.OTHER;
+                        int expected = outcomes.getCount(role, c) > 0 ? RoundOutcomes.MIN_BID : 0;
+                        Assert.assertEquals(expected, best.getBestBid(s0, s1, PitchGame.P4, team, key));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testObservedBidsMatchGames() {
+        WinProbabilitySolver solver = new WinProbabilitySolver(RoundOutcomes.simulate(100_000L, 4L));
+        solver.setOptimizeBids(false);
+        solver.solve();
+
+        PitchGame game = TestGames.createGame(5L);
+        int games = 4000;
+        int wins = 0;
+        for (int i = 0; i < games; i++) {
+            game.resetGame();
+            game.playGame();
+            if (game.getWinningTeam() == 0) {
+                wins++;
+            }
+        }
+
+        // P1 opens the first auction, so P4 deals
+        double expected = solver.getWinProbability(0, 0, PitchGame.P4);
+        double stderr = Math.sqrt(expected * (1.0 - expected) / games);
+        Assert.assertEquals(expected, (double) wins / games, 4.0 * stderr);
+    }
+}